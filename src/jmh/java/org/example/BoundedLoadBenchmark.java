@@ -0,0 +1,98 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded-load ownership against the plain ring: the cost of computing the spilled owners and of a lookup.
+ * Every trial also prints the max/mean load ratio of both rings and the share of keys whose owner moved,
+ * for {@code keys} uniformly random keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundedLoadBenchmark {
+
+    @Param({"16", "64"})
+    public int nodes;
+
+    @Param({"16", "256", "1024"})
+    public int vnodes;
+
+    @Param({"0.05", "0.25"})
+    public double epsilon;
+
+    @Param({"1000000"})
+    public int keys;
+
+    private TokenRing ring;
+    private TokenRing bounded;
+    private long[] rangeLoads;
+    private int[] partitions;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<Token, Node> tokenToNode = new HashMap<>();
+        for (int i = 0; i < nodes; i++) {
+            Node node = new Node(random.nextLong(), "node-" + i);
+            for (int v = 0; v < vnodes; v++) {
+                tokenToNode.put(new Token(random.nextInt(), "murmur3"), node);
+            }
+        }
+        ring = TokenRing.of(tokenToNode);
+
+        partitions = new int[keys];
+        rangeLoads = new long[ring.size()];
+        for (int i = 0; i < keys; i++) {
+            partitions[i] = HashGenerator.hash(random.nextLong());
+            rangeLoads[ring.indexOf(partitions[i])]++;
+        }
+        bounded = ring.withBoundedLoads(rangeLoads, epsilon);
+
+        long moved = 0;
+        for (int partition : partitions) {
+            if (ring.ownerIndexOf(partition) != bounded.ownerIndexOf(partition)) {
+                moved++;
+            }
+        }
+        System.out.printf("%nnodes=%d vnodes=%d epsilon=%.2f: max/mean plain %.3f, bounded %.3f, keys moved %.2f%%%n",
+            nodes, vnodes, epsilon, maxMeanRatio(ring), maxMeanRatio(bounded), 100.0 * moved / keys);
+    }
+
+    private double maxMeanRatio(TokenRing target) {
+        long[] nodeLoads = new long[target.nodeCount()];
+        for (int partition : partitions) {
+            nodeLoads[target.ownerIndexOf(partition)]++;
+        }
+        long max = 0;
+        for (long nodeLoad : nodeLoads) {
+            max = Math.max(max, nodeLoad);
+        }
+
+        return max / ((double) keys / target.nodeCount());
+    }
+
+    @Benchmark
+    public TokenRing build() {
+        return ring.withBoundedLoads(rangeLoads, epsilon);
+    }
+
+    @Benchmark
+    public int plainLookup() {
+        return ring.ownerIndexOf(partitions[(next++ & Integer.MAX_VALUE) % keys]);
+    }
+
+    @Benchmark
+    public int boundedLookup() {
+        return bounded.ownerIndexOf(partitions[(next++ & Integer.MAX_VALUE) % keys]);
+    }
+}
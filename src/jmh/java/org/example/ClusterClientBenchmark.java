@@ -0,0 +1,83 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Snowflake;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest throughput: per-key dispatch against {@link ClusterClient} batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClusterClientBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    @Param({"4", "16"})
+    public int nodes;
+
+    @Param({"256"})
+    public int vnodes;
+
+    private TokenMetadata tokenMetadata;
+    private ClusterClient client;
+    private long[] keys;
+    private String[] values;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(vnodes);
+        for (int i = 0; i < nodes; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+
+        tokenMetadata = topology.nodes.values().iterator().next().getTokenMetadata();
+        client = new ClusterClient(tokenMetadata);
+        keys = new long[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+        }
+        values = new String[BATCH];
+        Arrays.fill(values, "v");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void singleKeyPut(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            Node responsibleNode = tokenMetadata.getTokenRing().getNode(HashGenerator.hash(keys[i]));
+            blackhole.consume(responsibleNode.process(new DbAccess.PutAccess(keys[i], values[i])));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batchedPut() {
+        client.putAll(keys, values);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void singleKeyGet(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            Node responsibleNode = tokenMetadata.getTokenRing().getNode(HashGenerator.hash(keys[i]));
+            blackhole.consume(responsibleNode.process(new DbAccess.GetAccess(keys[i])));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batchedGet(Blackhole blackhole) {
+        blackhole.consume(client.getAll(keys));
+    }
+}
@@ -0,0 +1,57 @@
+package org.example;
+
+import org.example.db.Snowflake;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinated access latency per consistency level, sampled so the JSON results carry p50/p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinatorBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    @Param({"ONE", "QUORUM", "ALL"})
+    public ConsistencyLevel level;
+
+    @Param({"3"})
+    public int replicationFactor;
+
+    private Coordinator coordinator;
+    private long[] keys;
+    private int next;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(256, replicationFactor, new SimpleStrategy());
+        for (int i = 0; i < 6; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+
+        coordinator = new Coordinator(topology.nodes.values().iterator().next().getTokenMetadata());
+        keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+            coordinator.put(keys[i], "v", ConsistencyLevel.ALL);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return coordinator.get(keys[(next++ & Integer.MAX_VALUE) % KEYS], level);
+    }
+
+    @Benchmark
+    public void put() {
+        coordinator.put(keys[(next++ & Integer.MAX_VALUE) % KEYS], "v", level);
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashGeneratorBenchmark {
+
+    private static final int BATCH = 1024;
+
+    private long key;
+    private int nodeName;
+    private final long[] keys = new long[BATCH];
+    private final int[] partitions = new int[BATCH];
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < BATCH; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public int hash() {
+        return HashGenerator.hash(key++);
+    }
+
+    // per key
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] hashBulk() {
+        HashGenerator.hash(keys, partitions);
+        return partitions;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] murmur3Loop() {
+        for (int i = 0; i < BATCH; i++) {
+            partitions[i] = MurmurHash3.hash32(keys[i]);
+        }
+        return partitions;
+    }
+
+    @Benchmark
+    public long generateNodeId() throws NoSuchAlgorithmException {
+        return HashGenerator.generateNodeId("node-" + nodeName++);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example;
+
+import org.example.db.Snowflake;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read latency at ONE while one node stalls on 2% of its accesses, as it would under GC or rebalance streaming.
+ * A hedge percentile of 0 fans every read out to all replicas, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HedgedReadBenchmark {
+
+    private static final int KEYS = 10_000;
+    private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Param({"0", "0.95", "0.99"})
+    public double hedgePercentile;
+
+    private ExecutorService executor;
+    private Coordinator coordinator;
+    private long[] keys;
+    private int next;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        for (int i = 0; i < 6; i++) {
+            String nodeName = "node-" + i;
+            long id = HashGenerator.generateNodeId(nodeName);
+            Node node = i == 0
+                ? new DelayedNode(id, nodeName, () -> ThreadLocalRandom.current().nextInt(50) == 0 ? STALL_NANOS : 0)
+                : new Node(id, nodeName);
+            List<Token> tokens = new ArrayList<>();
+            for (int v = 0; v < 64; v++) {
+                tokens.add(new Token(HashGenerator.hash(id * 31 + v), "murmur3"));
+            }
+            tokenMetadata.updateNormalToken(node, tokens);
+        }
+
+        executor = Executors.newCachedThreadPool();
+        coordinator = new Coordinator(tokenMetadata, executor, new LatencyTracker(), hedgePercentile);
+        keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object get() {
+        return coordinator.get(keys[(next++ & Integer.MAX_VALUE) % KEYS], ConsistencyLevel.ONE);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read latency at ONE under Zipf-distributed keys, with and without a near-cache on the coordinator.
+ * Every node spends 20µs per access, so the owners of the hottest keys queue up without a cache.
+ * Every trial prints the cache hit ratio and the hottest key each node reports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class NearCacheBenchmark {
+
+    private static final int KEYS = 100_000;
+    private static final int SAMPLES = 1 << 20;
+    private static final long ACCESS_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    @Param({"0", "1000"})
+    public int cacheSize;
+
+    @Param({"0.99", "1.2"})
+    public double skew;
+
+    private ExecutorService executor;
+    private Coordinator coordinator;
+    private List<Node> nodes;
+    private long[] samples;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = (int) Thread.currentThread().getId() * 7919;
+    }
+
+    @Setup
+    public void setup() {
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        SplittableRandom random = new SplittableRandom(42);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Node node = new DelayedNode(random.nextLong(), "node-" + i, () -> ACCESS_NANOS);
+            List<Token> tokens = new ArrayList<>();
+            for (int v = 0; v < 64; v++) {
+                tokens.add(new Token(random.nextInt(), "murmur3"));
+            }
+            tokenMetadata.updateNormalToken(node, tokens);
+            nodes.add(node);
+        }
+        executor = Executors.newFixedThreadPool(16);
+        coordinator = new Coordinator(tokenMetadata, executor, new LatencyTracker(), 0, null, cacheSize > 0 ? new NearCache(cacheSize) : null);
+
+        ClusterClient client = new ClusterClient(tokenMetadata);
+        long[] keys = new long[KEYS];
+        String[] values = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i;
+            values[i] = "value-" + i;
+        }
+        client.putAll(keys, values);
+
+        // zipf: the key of rank r is read with weight 1 / r^skew
+        double[] cdf = new double[KEYS];
+        double sum = 0;
+        for (int rank = 1; rank <= KEYS; rank++) {
+            sum += 1 / Math.pow(rank, skew);
+            cdf[rank - 1] = sum;
+        }
+        samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            samples[i] = index < 0 ? -index - 1 : index;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        NearCache nearCache = coordinator.getNearCache();
+        if (nearCache != null) {
+            System.out.printf("%nnear-cache hit ratio %.3f%n", nearCache.stats().hitRatio());
+        }
+        for (Node node : nodes) {
+            List<HeavyHitters.Entry> hotKeys = node.getHotKeys();
+            if (!hotKeys.isEmpty()) {
+                System.out.printf("%s hottest key %d (~%d reads)%n", node.nodeName(), hotKeys.get(0).item(), hotKeys.get(0).estimate());
+            }
+        }
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        return coordinator.get(samples[(cursor.next++ & Integer.MAX_VALUE) % SAMPLES], ConsistencyLevel.ONE);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.ScanCursor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Node#process} for every {@link org.example.db.Method}, against a node holding {@code keys} entities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int keys;
+
+    // number of ranges the ring is split into for SCAN
+    @Param({"1024"})
+    public int scanRanges;
+
+    private Node node;
+    private long[] ids;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        node = new Node(1, "node-1");
+        ids = new long[keys];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < keys; i++) {
+            ids[i] = random.nextLong();
+            node.process(new DbAccess.PutAccess(ids[i], "v"));
+        }
+    }
+
+    private long nextId() {
+        long id = ids[cursor];
+        cursor = cursor + 1 == keys ? 0 : cursor + 1;
+        return id;
+    }
+
+    @Benchmark
+    public Result put() {
+        return node.process(new DbAccess.PutAccess(nextId(), "w"));
+    }
+
+    @Benchmark
+    public Result get() {
+        return node.process(new DbAccess.GetAccess(nextId()));
+    }
+
+    // deletes and restores the key so the dataset stays the same size
+    @Benchmark
+    public Result deleteAndPut() {
+        long id = nextId();
+        node.process(new DbAccess.DeleteAccess(id));
+        return node.process(new DbAccess.PutAccess(id, "v"));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void scan(Blackhole blackhole) {
+        int width = (int) ((1L << 32) / scanRanges);
+        int from = HashGenerator.hash(nextId());
+        Result result = node.process(new DbAccess.ScanAccess(from, from + width));
+        ScanCursor scanCursor = ((Result.Ok<ScanCursor>) result).value();
+        while (scanCursor.hasNext()) {
+            blackhole.consume(scanCursor.next());
+        }
+    }
+}
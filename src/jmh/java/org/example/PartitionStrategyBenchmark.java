@@ -0,0 +1,119 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placement engines side by side: lookup ns/op and the cost of building the lookup structure,
+ * whose {@code gc.alloc.rate.norm} is its memory footprint.
+ * Every trial also prints the max/mean load ratio and the share of keys moving when a node joins and when one leaves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionStrategyBenchmark {
+
+    private static final int KEYS = 1 << 20;
+
+    @Param({"RING", "JUMP_HASH", "RENDEZVOUS", "MAGLEV"})
+    public PartitionStrategy strategy;
+
+    @Param({"16", "128", "1024"})
+    public int nodes;
+
+    // vnodes per node, ring only
+    @Param({"256"})
+    public int vnodes;
+
+    private List<Node> members;
+    private Map<Token, Node> tokenToNode;
+    private TokenRing ring;
+    private Partitioner partitioner;
+    private int[] partitions;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        members = new ArrayList<>();
+        tokenToNode = new HashMap<>();
+        for (int i = 0; i <= nodes; i++) {
+            Node node = new Node(random.nextLong(), "node-" + i);
+            members.add(node);
+            for (int v = 0; v < vnodes; v++) {
+                tokenToNode.put(new Token(random.nextInt(), "murmur3"), node);
+            }
+        }
+        partitions = new int[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            partitions[i] = HashGenerator.hash(random.nextLong());
+        }
+
+        // the last member is the joining node
+        Partitioner grown = partitioner(members);
+        Node joining = members.remove(nodes);
+        tokenToNode.values().removeIf(node -> node == joining);
+        partitioner = partitioner(members);
+        ring = TokenRing.of(tokenToNode);
+        Partitioner shrunk = partitioner(members.subList(1, nodes));
+
+        System.out.printf("%n%s nodes=%d: max/mean %.3f, keys moved on join %.2f%%, on leave %.2f%%%n",
+            strategy, nodes, maxMeanRatio(partitioner), movedPercent(partitioner, grown), movedPercent(partitioner, shrunk));
+    }
+
+    private Partitioner partitioner(List<Node> nodeList) {
+        Set<Node> kept = new HashSet<>(nodeList);
+        Map<Token, Node> tokens = new HashMap<>(tokenToNode);
+        tokens.values().removeIf(node -> !kept.contains(node));
+        return strategy.partitioner(TokenRing.of(tokens), nodeList);
+    }
+
+    private double maxMeanRatio(Partitioner target) {
+        long[] loads = new long[target.nodeCount()];
+        for (int partition : partitions) {
+            loads[target.ownerIndexOf(partition)]++;
+        }
+        long max = 0;
+        for (long load : loads) {
+            max = Math.max(max, load);
+        }
+
+        return max / ((double) KEYS / target.nodeCount());
+    }
+
+    private double movedPercent(Partitioner from, Partitioner to) {
+        long moved = 0;
+        for (int partition : partitions) {
+            if (from.getNode(partition) != to.getNode(partition)) {
+                moved++;
+            }
+        }
+
+        return 100.0 * moved / KEYS;
+    }
+
+    @Benchmark
+    public int lookup() {
+        return partitioner.ownerIndexOf(partitions[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public Partitioner build() {
+        return strategy.partitioner(ring, members);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.ScanCursor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding what diverged between two replicas: comparing their Merkle trees against hashing both full scans.
+ * The tree comparison follows the number of diverged keys, the scan the number of stored keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepairBenchmark {
+
+    @Param({"1000000"})
+    public int keys;
+
+    @Param({"0", "10", "1000"})
+    public int diverged;
+
+    private Node source;
+    private Node target;
+
+    @Setup
+    public void setup() {
+        source = new Node(1, "source");
+        target = new Node(2, "target");
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < keys; i++) {
+            DbAccess.PutAccess put = new DbAccess.PutAccess(random.nextLong(), "value-" + i);
+            source.process(put);
+            if (i >= diverged) {
+                target.process(put);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<MerkleTree.Difference> merkleTree() {
+        return source.getMerkleTree().differences(target.getMerkleTree(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean fullScan() {
+        return scanHash(source) == scanHash(target);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long scanHash(Node node) {
+        ScanCursor cursor = ((Result.Ok<ScanCursor>) node.process(new DbAccess.ScanAccess(0, 0))).value();
+        long hash = 0;
+        while (cursor.hasNext()) {
+            Entity entity = cursor.next();
+            hash ^= MerkleTree.hashOf(entity);
+        }
+        return hash;
+    }
+}
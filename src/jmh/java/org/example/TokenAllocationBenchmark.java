@@ -0,0 +1,68 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of allocating the tokens of one joining node, random against balanced.
+ * Every trial also prints the balance of a cluster grown one join at a time with the allocator:
+ * max/mean and min/mean ownership and the coefficient of variation over nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenAllocationBenchmark {
+
+    @Param({"random", "balanced"})
+    public String allocator;
+
+    @Param({"16", "64"})
+    public int nodes;
+
+    @Param({"4", "16", "64", "256", "1024"})
+    public int vnodes;
+
+    private TokenAllocator tokenAllocator;
+    private TokenMetadata.Snapshot snapshot;
+    private Node joining;
+
+    @Setup
+    public void setup() {
+        tokenAllocator = allocator.equals("balanced") ? new BalancedTokenAllocator() : new RandomTokenAllocator();
+        SplittableRandom random = new SplittableRandom(42);
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        for (int i = 0; i < nodes; i++) {
+            Node node = new Node(random.nextLong(), "node-" + i);
+            tokenMetadata.updateNormalToken(node, tokenAllocator.allocate(tokenMetadata.snapshot(), node, vnodes));
+        }
+        snapshot = tokenMetadata.snapshot();
+        joining = new Node(random.nextLong(), "node-" + nodes);
+
+        TokenRing ring = snapshot.ring();
+        double[] owned = new double[ring.nodeCount()];
+        for (int i = 0; i < ring.size(); i++) {
+            owned[ring.ownerIndexAt(i)] += (ring.partitionAt(i) - ring.rangeStart(i) + 1) & 0xFFFFFFFFL;
+        }
+        double mean = (double) (1L << 32) / owned.length;
+        double max = 0;
+        double min = Double.MAX_VALUE;
+        double squares = 0;
+        for (double ownership : owned) {
+            max = Math.max(max, ownership);
+            min = Math.min(min, ownership);
+            squares += (ownership - mean) * (ownership - mean);
+        }
+        System.out.printf("%n%s nodes=%d vnodes=%d: max/mean %.3f, min/mean %.3f, cv %.4f%n",
+            allocator, nodes, vnodes, max / mean, min / mean, Math.sqrt(squares / owned.length) / mean);
+    }
+
+    @Benchmark
+    public Object allocate() {
+        return tokenAllocator.allocate(snapshot, joining, vnodes);
+    }
+}
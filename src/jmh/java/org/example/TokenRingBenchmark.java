@@ -0,0 +1,73 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ring lookup: {@link TokenRing} binary search against the {@code TreeMap} path
+ * ({@code ceilingKey} + {@code get}) it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenRingBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"16", "128", "1024"})
+    public int vnodes;
+
+    @Param({"8"})
+    public int nodes;
+
+    private Node node;
+    private NavigableMap<Integer, Token> treeRing;
+    private Map<Token, Node> tokenToNode;
+    private TokenRing tokenRing;
+    private int[] partitions;
+    private int cursor;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(vnodes);
+        for (int i = 0; i < nodes; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+
+        node = topology.nodes.values().iterator().next();
+        TokenMetadata tokenMetadata = node.getTokenMetadata();
+        treeRing = tokenMetadata.getRing();
+        tokenToNode = tokenMetadata.getTokenToNode();
+        tokenRing = tokenMetadata.getTokenRing();
+
+        SplittableRandom random = new SplittableRandom(42);
+        partitions = new int[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            partitions[i] = HashGenerator.hash(random.nextLong());
+        }
+    }
+
+    private int nextPartition() {
+        return partitions[cursor++ & (KEYS - 1)];
+    }
+
+    @Benchmark
+    public Node treeMap() {
+        Token vnode = node.getToken(nextPartition(), treeRing);
+        return tokenToNode.get(vnode);
+    }
+
+    @Benchmark
+    public Node tokenRing() {
+        return tokenRing.getNode(nextPartition());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link Topology#join} and {@link Topology#decommission} on a cluster of
+ * {@code nodes} nodes with {@code vnodes} vnodes each, holding {@code keys} keys in total.
+ * Every invocation runs against a freshly built cluster.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TopologyBenchmark {
+
+    @Param({"4", "16"})
+    public int nodes;
+
+    @Param({"16", "256"})
+    public int vnodes;
+
+    @Param({"100000"})
+    public int keys;
+
+    private Topology topology;
+    private Node joining;
+    private Node leaving;
+
+    @Setup(Level.Invocation)
+    public void setup() throws NoSuchAlgorithmException {
+        topology = new Topology(vnodes);
+        for (int i = 0; i < nodes; i++) {
+            String nodeName = "node-" + i;
+            Node node = new Node(HashGenerator.generateNodeId(nodeName), nodeName);
+            topology.join(node);
+            leaving = node;
+        }
+
+        ClusterClient client = new ClusterClient(leaving.getTokenMetadata());
+        SplittableRandom random = new SplittableRandom(42);
+        long[] ids = new long[keys];
+        String[] values = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            ids[i] = random.nextLong();
+            values[i] = "v";
+        }
+        client.putAll(ids, values);
+
+        String nodeName = "node-" + nodes;
+        joining = new Node(HashGenerator.generateNodeId(nodeName), nodeName);
+    }
+
+    @Benchmark
+    public Topology join() {
+        topology.join(joining);
+        return topology;
+    }
+
+    @Benchmark
+    public Topology decommission() {
+        topology.decommission(leaving);
+        return topology;
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded read/write/scan mix against {@link LocalFileSystem} and {@link OffHeapStorage}.
+ * The scaling curve comes from running the same benchmarks at increasing thread counts, e.g.
+ * {@code java -jar build/libs/consistent-hashing-1.0-SNAPSHOT-jmh.jar ConcurrentStorageBenchmark -t 1,2,4,8,16}
+ * for the ungrouped benchmarks and {@code -tg 6,2,1} style distributions for the mixed group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentStorageBenchmark {
+
+    @Param({"1000000"})
+    public int keys;
+
+    // the ring is split into this many ranges, a scan covers one of them
+    @Param({"100000"})
+    public int scanRanges;
+
+    @Param({"heap", "offheap"})
+    public String storage;
+
+    private Storage database;
+    private long[] ids;
+
+    @Setup
+    public void setup() {
+        database = storage.equals("offheap") ? new OffHeapStorage() : new LocalFileSystem();
+        ids = new long[keys];
+        for (int i = 0; i < keys; i++) {
+            ids[i] = ThreadLocalRandom.current().nextLong();
+            database.write(HashGenerator.hash(ids[i]), new Entity(ids[i], "v"));
+        }
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(keys)];
+    }
+
+    @Benchmark
+    public Entity read() {
+        long id = randomId();
+        return database.read(HashGenerator.hash(id), id);
+    }
+
+    @Benchmark
+    public void write() {
+        long id = randomId();
+        database.write(HashGenerator.hash(id), new Entity(id, "w"));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Entity mixedRead() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedWrite() {
+        write();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public int mixedScan() {
+        long width = (1L << 32) / scanRanges;
+        int from = ThreadLocalRandom.current().nextInt();
+        int to = (int) (from + width);
+        ScanCursor cursor = database.scan(from, to, ScanCursor.DEFAULT_PAGE_SIZE);
+        int scanned = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            scanned++;
+        }
+        return scanned;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cost of the {@code (partition, id)} layout of {@link LocalFileSystem}
+ * against the previous layout keyed by the partition alone, which loses colliding ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class PartitionLayoutBenchmark {
+
+    @Param({"10000000"})
+    public int keys;
+
+    private ConcurrentNavigableMap<Integer, Entity> partitionOnly;
+    private LocalFileSystem partitionAndId;
+    private long[] ids;
+    private int lost;
+
+    @Setup
+    public void setup() {
+        partitionOnly = new ConcurrentSkipListMap<>();
+        partitionAndId = new LocalFileSystem();
+        ids = new long[keys];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < keys; i++) {
+            long id = random.nextLong(Long.MAX_VALUE);
+            int partition = HashGenerator.hash(id);
+            Entity entity = new Entity(id, "v");
+            ids[i] = id;
+            if (partitionOnly.put(partition, entity) != null) {
+                lost++;
+            }
+            partitionAndId.write(partition, entity);
+        }
+        System.out.println("\nids overwritten in the partition-only layout: " + lost);
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(keys)];
+    }
+
+    @Benchmark
+    public Entity partitionOnlyRead() {
+        return partitionOnly.get(HashGenerator.hash(randomId()));
+    }
+
+    @Benchmark
+    public Entity partitionAndIdRead() {
+        long id = randomId();
+        return partitionAndId.read(HashGenerator.hash(id), id);
+    }
+}
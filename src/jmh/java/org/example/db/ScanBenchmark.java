@@ -0,0 +1,57 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LocalFileSystem} scans of the same width, inside the ring and across its wrap-around point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+
+    // width of a scanned range, 1/64 of the ring
+    private static final int WIDTH = (int) ((1L << 32) / 64);
+
+    @Param({"1000000"})
+    public int keys;
+
+    @Param({"100", "1000", "10000"})
+    public int pageSize;
+
+    private LocalFileSystem database;
+
+    @Setup
+    public void setup() {
+        database = new LocalFileSystem();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < keys; i++) {
+            long id = random.nextLong();
+            database.write(HashGenerator.hash(id), new Entity(id, "v"));
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        ScanCursor cursor = database.scan(0, WIDTH, pageSize);
+        while (cursor.hasNext()) {
+            blackhole.consume(cursor.next());
+        }
+    }
+
+    @Benchmark
+    public void scanWrapAround(Blackhole blackhole) {
+        ScanCursor cursor = database.scan(Integer.MAX_VALUE - WIDTH / 2, Integer.MIN_VALUE + WIDTH / 2, pageSize);
+        while (cursor.hasNext()) {
+            blackhole.consume(cursor.next());
+        }
+    }
+}
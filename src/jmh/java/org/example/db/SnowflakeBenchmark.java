@@ -0,0 +1,85 @@
+package org.example.db;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id generation from 32 threads: the CAS-based {@link Snowflake} one id and one block at a time,
+ * against the previous monitor-based generator that spins out exhausted milliseconds.
+ * Other thread counts via {@code -t}, e.g. {@code SnowflakeBenchmark -t 1,4,32}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class SnowflakeBenchmark {
+
+    private static final long EPOCH = 1420070400000L;
+
+    @Param({"64"})
+    public int batch;
+
+    private Snowflake snowflake;
+    private SynchronizedSnowflake synchronizedSnowflake;
+
+    @Setup
+    public void setup() {
+        snowflake = new Snowflake(1);
+        synchronizedSnowflake = new SynchronizedSnowflake(1);
+    }
+
+    @Benchmark
+    public long casNextId() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public long[] casNextIds() {
+        return snowflake.nextIds(batch);
+    }
+
+    @Benchmark
+    public long synchronizedNextId() {
+        return synchronizedSnowflake.nextId();
+    }
+
+    // the generator before the CAS rewrite, kept as the baseline
+    static final class SynchronizedSnowflake {
+
+        private static final long MAX_SEQUENCE = (1L << 12) - 1;
+
+        private final long nodeId;
+        private volatile long lastTimestamp = -1L;
+        private volatile long sequence = 0L;
+
+        SynchronizedSnowflake(long nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        synchronized long nextId() {
+            long currentTimestamp = System.currentTimeMillis() - EPOCH;
+            if (currentTimestamp < lastTimestamp) {
+                throw new IllegalStateException("Invalid System Clock!");
+            }
+
+            if (currentTimestamp == lastTimestamp) {
+                sequence = (sequence + 1) & MAX_SEQUENCE;
+                if (sequence == 0) {
+                    while (currentTimestamp == lastTimestamp) {
+                        currentTimestamp = System.currentTimeMillis() - EPOCH;
+                    }
+                }
+            } else {
+                sequence = 0;
+            }
+            lastTimestamp = currentTimestamp;
+
+            return currentTimestamp << 22 | nodeId << 12 | sequence;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.gossip;
+
+import org.example.Node;
+import org.example.NodeStatus;
+import org.example.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for one status change to reach every node, starting from a converged cluster.
+ * Every trial also prints rounds, messages and bytes to converge, next to the bytes
+ * of a full broadcast where the changed node pushes every state it knows to every other node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GossipBenchmark {
+
+    @Param({"100", "1000"})
+    public int nodes;
+
+    @Param({"1", "3"})
+    public int fanout;
+
+    private GossipNetwork network;
+    private List<Gossiper> gossipers;
+    private long broadcastBytes;
+    private int iteration;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        network = new GossipNetwork();
+        gossipers = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Gossiper gossiper = new Gossiper(new Node(i, "node-" + i), network, fanout, 1, null);
+            gossiper.publish(NodeStatus.STABLE, tokens(i));
+            gossipers.add(gossiper);
+        }
+        for (int i = 1; i < nodes; i++) {
+            gossipers.get(i).addSeed(gossipers.get(0));
+        }
+        GossipNetwork.Stats bootstrap = network.runUntilConverged(42, 1000);
+
+        long fullState = 0;
+        for (EndpointState state : gossipers.get(0).states()) {
+            fullState += state.serializedSize();
+        }
+        broadcastBytes = fullState * (nodes - 1);
+        System.out.printf("%nnodes=%d fanout=%d bootstrap: %d rounds, %d messages, %d bytes%n",
+            nodes, fanout, bootstrap.rounds(), bootstrap.messages(), bootstrap.bytes());
+    }
+
+    @Setup(Level.Iteration)
+    public void change() {
+        Gossiper changed = gossipers.get(iteration++ % nodes);
+        changed.publish(NodeStatus.STABLE, tokens(iteration));
+    }
+
+    @Benchmark
+    public GossipNetwork.Stats propagate() {
+        GossipNetwork.Stats stats = network.runUntilConverged(iteration, 1000);
+        System.out.printf("%n%d rounds, %d messages, %d bytes against %d bytes of full broadcast%n",
+            stats.rounds(), stats.messages(), stats.bytes(), broadcastBytes);
+        return stats;
+    }
+
+    private static List<Token> tokens(int seed) {
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            tokens.add(new Token(seed * 31 + i * 0x0FFFFFFF, "bench"));
+        }
+        return tokens;
+    }
+}
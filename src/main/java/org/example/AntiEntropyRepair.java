@@ -0,0 +1,63 @@
+package org.example;
+
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.ScanCursor;
+import org.example.stream.StreamSession;
+
+import java.util.List;
+
+/**
+ * Anti-entropy repair between two nodes holding the same range, e.g. a primary and a replica
+ * or a former owner and the node a failed handoff left short.
+ * The Merkle trees of both nodes are compared over the range and only differing leaves are streamed,
+ * so the cost follows the divergence instead of the data set.
+ * A leaf cut by a range boundary also holds data outside the range, its slice is hashed by a scan on both nodes first.
+ * The source wins: entities it holds are written to the target, entities only the target holds are kept.
+ * Entities carry no version, so a stale source overwrites newer values on the target, and a delete on the source
+ * never propagates: the target keeps the entity, and repairing in the other direction brings it back.
+ */
+public final class AntiEntropyRepair {
+
+    private AntiEntropyRepair() {
+    }
+
+    // streams the differing parts of [fromPartition, toPartition) from source to target, returns the number of slices submitted
+    public static int repair(Node source, Node target, int fromPartition, int toPartition, StreamSession session) {
+        int first = fromPartition;
+        int last = toPartition - 1;
+        if (fromPartition == toPartition) {
+            // the whole ring
+            first = Integer.MIN_VALUE;
+            last = Integer.MAX_VALUE;
+        }
+
+        List<MerkleTree.Difference> differences = source.getMerkleTree().differences(target.getMerkleTree(), first, last);
+        int slices = 0;
+        for (MerkleTree.Difference difference : differences) {
+            if (!difference.wholeLeaf() && sliceHash(source, difference) == sliceHash(target, difference)) {
+                continue;
+            }
+            session.submit(source, target, difference.first(), difference.last() + 1);
+            slices++;
+        }
+
+        return slices;
+    }
+
+    private static long sliceHash(Node node, MerkleTree.Difference slice) {
+        Result result = node.process(new DbAccess.ScanAccess(slice.first(), slice.last() + 1));
+        if (!(result instanceof Result.Ok<?> ok) || !(ok.value() instanceof ScanCursor cursor)) {
+            throw new DatabaseOperationFailedException("Failed to scan node " + node.nodeName() + " for repair");
+        }
+
+        long hash = 0;
+        while (cursor.hasNext()) {
+            Entity entity = cursor.next();
+            hash ^= MerkleTree.hashOf(entity);
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Gives a joining node an even share of the ring by taking it from the nodes owning the most.
+ * Each new token splits the largest range of the currently most loaded node, taking at most the node's
+ * remaining share spread over its remaining vnodes, so a few vnodes per node balance as well as thousands of random ones.
+ * The first node spreads its tokens evenly. Ownership is counted on primary ranges.
+ * A node always gets {@code vnodes} tokens, a ring without a range left to split fails the allocation.
+ */
+public class BalancedTokenAllocator implements TokenAllocator {
+
+    private static final long RING_SIZE = 1L << 32;
+
+    @Override
+    public List<Token> allocate(TokenMetadata.Snapshot current, Node node, int vnodes) {
+        // positions on [0, 2^32) keep the signed partition order
+        TreeMap<Long, Node> ring = new TreeMap<>();
+        current.tokenToNode().forEach((token, owner) -> ring.put(position(token.partition()), owner));
+
+        List<Token> tokens = new ArrayList<>(vnodes);
+        if (ring.isEmpty()) {
+            long offset = position(HashGenerator.hash(node.id()));
+            for (int i = 0; i < vnodes; i++) {
+                tokens.add(new Token(partition(offset + i * (RING_SIZE / vnodes)), "murmur3"));
+            }
+            return tokens;
+        }
+
+        // ranges (end, width) per node, largest first
+        Map<Node, PriorityQueue<long[]>> ranges = new HashMap<>();
+        Map<Node, Long> loads = new HashMap<>();
+        ring.forEach((position, owner) -> {
+            long width = width(ring, position);
+            ranges.computeIfAbsent(owner, o -> new PriorityQueue<>((a, b) -> Long.compare(b[1], a[1]))).add(new long[]{position, width});
+            loads.merge(owner, width, Long::sum);
+        });
+        long target = RING_SIZE / (loads.size() + 1);
+        long owned = 0;
+
+        for (int i = 0; i < vnodes; i++) {
+            Node donor = null;
+            for (Map.Entry<Node, Long> load : loads.entrySet()) {
+                // a node left with single-partition ranges has nothing to split
+                if (ranges.get(load.getKey()).peek()[1] >= 2 && (donor == null || load.getValue() > loads.get(donor))) {
+                    donor = load.getKey();
+                }
+            }
+            if (donor == null) {
+                throw new IllegalArgumentException("No range left to split for " + (vnodes - i) + " more tokens of " + node.nodeName());
+            }
+
+            // the donor's largest range (end - width, end]
+            long[] largest = ranges.get(donor).poll();
+
+            // the new token owns the first part of the range, the donor keeps the rest
+            long share = Math.max(1, (target - owned) / (vnodes - i));
+            long take = Math.min(share, largest[1] - 1);
+            long position = (largest[0] - largest[1] + take) & (RING_SIZE - 1);
+            ranges.get(donor).add(new long[]{largest[0], largest[1] - take});
+            loads.merge(donor, -take, Long::sum);
+            owned += take;
+            tokens.add(new Token(partition(position), "murmur3"));
+        }
+
+        return tokens;
+    }
+
+    // width of the range ending at the position, the whole ring for a single token
+    private static long width(TreeMap<Long, Node> ring, long position) {
+        Long previous = ring.lowerKey(position);
+        if (previous == null) {
+            previous = ring.lastKey();
+        }
+
+        return previous == position ? RING_SIZE : (position - previous) & (RING_SIZE - 1);
+    }
+
+    private static long position(int partition) {
+        return (partition & 0xFFFFFFFFL) ^ 0x80000000L;
+    }
+
+    private static int partition(long position) {
+        return (int) (position ^ 0x80000000L);
+    }
+}
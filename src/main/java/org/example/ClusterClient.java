@@ -0,0 +1,172 @@
+package org.example;
+
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.Method;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes batches of accesses to the replicas of their keys.
+ * Every key is hashed once, in bulk, and grouped by node against a single {@link Partitioner} snapshot,
+ * so each node receives one batch call no matter how many of its keys are in the batch.
+ * Writes go to every replica, reads to a single one rotated across batches to spread the load, skipping replicas marked down.
+ */
+public class ClusterClient {
+
+    private final TokenMetadata tokenMetadata;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ClusterClient(TokenMetadata tokenMetadata) {
+        this.tokenMetadata = tokenMetadata;
+    }
+
+    // results keep the order of the accesses, a write fails if any replica fails
+    @SuppressWarnings("unchecked")
+    public List<Result> execute(List<DbAccess> batch) {
+        TokenMetadata.Snapshot snapshot = tokenMetadata.snapshot();
+        Partitioner partitioner = snapshot.partitioner();
+        boolean[] down = new boolean[partitioner.nodeCount()];
+        if (!snapshot.downNodes().isEmpty()) {
+            for (int owner = 0; owner < down.length; owner++) {
+                down[owner] = snapshot.isDown(partitioner.node(owner));
+            }
+        }
+        int size = batch.size();
+        int replicas = partitioner.replicas();
+        int rotation = nextReplica.getAndIncrement() & Integer.MAX_VALUE;
+
+        // every access is sent to one node per write replica, reads to one
+        int[] accesses = new int[size * replicas];
+        int[] owners = new int[size * replicas];
+        int[] offsets = new int[partitioner.nodeCount() + 1];
+        int[] replicaOwners = new int[replicas];
+        int sends = 0;
+        for (int i = 0; i < size; i++) {
+            DbAccess access = batch.get(i);
+            partitioner.replicaOwnerIndices(partitionOf(access), replicaOwners);
+            if (access.getMethod() == Method.GET) {
+                int owner = replicaOwners[(rotation + i) % replicas];
+                for (int replica = 1; down[owner] && replica < replicas; replica++) {
+                    owner = replicaOwners[(rotation + i + replica) % replicas];
+                }
+                accesses[sends] = i;
+                owners[sends++] = owner;
+                offsets[owner + 1]++;
+                continue;
+            }
+            for (int replica = 0; replica < replicas; replica++) {
+                int owner = replicaOwners[replica];
+                accesses[sends] = i;
+                owners[sends++] = owner;
+                offsets[owner + 1]++;
+            }
+        }
+
+        // counting sort of the sends by owner index
+        for (int owner = 0; owner < partitioner.nodeCount(); owner++) {
+            offsets[owner + 1] += offsets[owner];
+        }
+        int[] order = new int[sends];
+        int[] cursors = Arrays.copyOf(offsets, partitioner.nodeCount());
+        for (int send = 0; send < sends; send++) {
+            order[cursors[owners[send]]++] = accesses[send];
+        }
+
+        Result[] results = new Result[size];
+        for (int owner = 0; owner < partitioner.nodeCount(); owner++) {
+            int from = offsets[owner];
+            int to = offsets[owner + 1];
+            if (from == to) {
+                continue;
+            }
+
+            List<DbAccess> nodeBatch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                nodeBatch.add(batch.get(order[i]));
+            }
+
+            Result result = partitioner.node(owner).processBatch(nodeBatch);
+            if (result instanceof Result.Error) {
+                for (int i = from; i < to; i++) {
+                    results[order[i]] = result;
+                }
+                continue;
+            }
+
+            List<Result> nodeResults = ((Result.Ok<List<Result>>) result).value();
+            for (int i = from; i < to; i++) {
+                // the first error of any replica wins
+                if (!(results[order[i]] instanceof Result.Error)) {
+                    results[order[i]] = nodeResults.get(i - from);
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    public void putAll(long[] keys, String[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values differ in length: " + keys.length + " != " + values.length);
+        }
+
+        int[] partitions = new int[keys.length];
+        HashGenerator.hash(keys, partitions);
+        List<DbAccess> batch = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            batch.add(new DbAccess.PutAccess(keys[i], partitions[i], values[i]));
+        }
+        checkErrors(execute(batch));
+    }
+
+    // missing keys map to null
+    @SuppressWarnings("unchecked")
+    public List<Entity> getAll(long[] keys) {
+        int[] partitions = new int[keys.length];
+        HashGenerator.hash(keys, partitions);
+        List<DbAccess> batch = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            batch.add(new DbAccess.GetAccess(keys[i], partitions[i]));
+        }
+
+        List<Result> results = execute(batch);
+        checkErrors(results);
+        List<Entity> entities = new ArrayList<>(keys.length);
+        for (Result result : results) {
+            entities.add(((Result.Ok<Entity>) result).value());
+        }
+
+        return entities;
+    }
+
+    public void deleteAll(long[] keys) {
+        int[] partitions = new int[keys.length];
+        HashGenerator.hash(keys, partitions);
+        List<DbAccess> batch = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            batch.add(new DbAccess.DeleteAccess(keys[i], partitions[i]));
+        }
+        checkErrors(execute(batch));
+    }
+
+    private void checkErrors(List<Result> results) {
+        for (Result result : results) {
+            if (result instanceof Result.Error error) {
+                throw new DatabaseOperationFailedException("Error while processing batch: " + error.error().getMessage());
+            }
+        }
+    }
+
+    private static int partitionOf(DbAccess access) {
+        if (!(access instanceof DbAccess.KeyAccess keyAccess)) {
+            throw new IllegalArgumentException("Scans are not routed by key");
+        }
+
+        return keyAccess.getPartition();
+    }
+}
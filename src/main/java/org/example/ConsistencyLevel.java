@@ -0,0 +1,19 @@
+package org.example;
+
+/**
+ * How many replicas must acknowledge an access before the {@link Coordinator} answers.
+ */
+public enum ConsistencyLevel {
+    ONE,
+    QUORUM,
+    ALL;
+
+    // acks needed out of the replicas of a range
+    public int blockFor(int replicas) {
+        return switch (this) {
+            case ONE -> 1;
+            case QUORUM -> replicas / 2 + 1;
+            case ALL -> replicas;
+        };
+    }
+}
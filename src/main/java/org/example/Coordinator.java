@@ -0,0 +1,303 @@
+package org.example;
+
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends single-key accesses to the replicas of the key in parallel
+ * and answers once the {@link ConsistencyLevel} is met, the remaining replies complete in the background.
+ * A read answers with the first entity found among the acks, so at ONE the fastest replica wins.
+ * With a hedge percentile set, reads go only to the replicas the level needs, ranked by a {@link DynamicSnitch},
+ * and another replica is tried once one of them is slower than its recent latency at that percentile.
+ * Replicas the token metadata marks down are skipped; a level they leave out of reach fails right away.
+ * With a {@link HintStore}, writes a replica fails are kept as hints and replayed once it is back; hints do not count as acks,
+ * and a write a replica acks discards its older hints for the key.
+ * With a {@link NearCache}, reads of hot keys are answered from the cache while it holds them.
+ * On JDK 21+ a virtual-thread executor ({@code Executors.newVirtualThreadPerTaskExecutor()}) can be passed in.
+ */
+public class Coordinator {
+
+    // hedge delay for replicas without enough samples
+    public static final long DEFAULT_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MIN_SAMPLES = 20;
+
+    private final TokenMetadata tokenMetadata;
+    private final Executor executor;
+    private final LatencyTracker latencyTracker;
+    private final DynamicSnitch snitch;
+    private final double hedgePercentile;
+    private final HintStore hintStore;
+    private final NearCache nearCache;
+
+    public Coordinator(TokenMetadata tokenMetadata) {
+        this(tokenMetadata, defaultExecutor());
+    }
+
+    public Coordinator(TokenMetadata tokenMetadata, Executor executor) {
+        this(tokenMetadata, executor, new LatencyTracker(), 0);
+    }
+
+    // hedgePercentile <= 0 sends reads to every replica
+    public Coordinator(TokenMetadata tokenMetadata, Executor executor, LatencyTracker latencyTracker, double hedgePercentile) {
+        this(tokenMetadata, executor, latencyTracker, hedgePercentile, null);
+    }
+
+    // hintStore null disables hinted handoff
+    public Coordinator(TokenMetadata tokenMetadata, Executor executor, LatencyTracker latencyTracker, double hedgePercentile, HintStore hintStore) {
+        this(tokenMetadata, executor, latencyTracker, hedgePercentile, hintStore, null);
+    }
+
+    // nearCache null disables caching
+    public Coordinator(TokenMetadata tokenMetadata,
+                       Executor executor,
+                       LatencyTracker latencyTracker,
+                       double hedgePercentile,
+                       HintStore hintStore,
+                       NearCache nearCache
+    ) {
+        if (hedgePercentile >= 1) {
+            throw new IllegalArgumentException("Hedge percentile must be below 1: " + hedgePercentile);
+        }
+        this.tokenMetadata = tokenMetadata;
+        this.executor = executor;
+        this.latencyTracker = latencyTracker;
+        this.snitch = new DynamicSnitch(latencyTracker);
+        this.hedgePercentile = hedgePercentile;
+        this.hintStore = hintStore;
+        this.nearCache = nearCache;
+    }
+
+    public LatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    public DynamicSnitch getSnitch() {
+        return snitch;
+    }
+
+    public HintStore getHintStore() {
+        return hintStore;
+    }
+
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    public CompletableFuture<Result> submit(DbAccess access, ConsistencyLevel level) {
+        if (!(access instanceof DbAccess.KeyAccess keyAccess)) {
+            throw new IllegalArgumentException("Scans are not coordinated");
+        }
+        long key = keyAccess.getKey();
+
+        TokenMetadata.Snapshot snapshot = tokenMetadata.snapshot();
+        int partition = keyAccess.getPartition();
+        long epoch = 0;
+        if (nearCache != null) {
+            if (access.getMethod() != Method.GET) {
+                nearCache.invalidate(key);
+            } else {
+                epoch = nearCache.epoch(key);
+                Entity cached = nearCache.get(key, snapshot.partitioner());
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(new Result.Ok<>(cached));
+                }
+            }
+        }
+        List<Node> replicas = snapshot.partitioner().getReplicas(partition);
+        int blockFor = level.blockFor(replicas.size());
+        if (!snapshot.downNodes().isEmpty()) {
+            List<Node> live = new ArrayList<>(replicas.size());
+            for (Node replica : replicas) {
+                if (!snapshot.isDown(replica)) {
+                    live.add(replica);
+                }
+            }
+            if (live.size() < blockFor) {
+                return CompletableFuture.completedFuture(new Result.Error(new DatabaseOperationFailedException(
+                    "Only " + live.size() + " of " + blockFor + " required replicas are up")));
+            }
+            if (hintStore != null && access.getMethod() != Method.GET) {
+                for (Node replica : replicas) {
+                    if (snapshot.isDown(replica)) {
+                        hintStore.store(replica, access);
+                    }
+                }
+            }
+            replicas = live;
+        }
+        boolean hedged = hedgePercentile > 0 && access.getMethod() == Method.GET && blockFor < replicas.size();
+        Responses responses = new Responses(access, hedged ? snitch.sortByProximity(replicas) : replicas, blockFor, hedged);
+        for (int i = 0; i < (hedged ? blockFor : replicas.size()); i++) {
+            send(responses);
+        }
+
+        if (nearCache != null) {
+            long readEpoch = epoch;
+            responses.result.thenAccept(result -> {
+                if (access.getMethod() != Method.GET) {
+                    // a read racing the write may have cached the old value
+                    nearCache.invalidate(key);
+                } else if (result instanceof Result.Ok<?> ok && ok.value() instanceof Entity entity) {
+                    // dropped if a write to the key started meanwhile
+                    nearCache.put(entity, partition, snapshot.partitioner(), readEpoch);
+                }
+            });
+        }
+
+        return responses.result;
+    }
+
+    // sends to the next replica in line, if any is left
+    private void send(Responses responses) {
+        int next = responses.sent.getAndIncrement();
+        if (next >= responses.replicas.size()) {
+            return;
+        }
+
+        Node replica = responses.replicas.get(next);
+        CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return replica.process(responses.access);
+            } finally {
+                latencyTracker.record(replica, System.nanoTime() - start);
+            }
+        }, executor).whenComplete((response, thrown) -> responses.onResponse(replica, response, thrown));
+
+        if (responses.hedged) {
+            CompletableFuture.delayedExecutor(hedgeDelay(replica), TimeUnit.NANOSECONDS, executor).execute(() -> {
+                // still waiting on acks, the slow replica is raced by the next one
+                if (!responses.result.isDone() && responses.pending(replica)) {
+                    send(responses);
+                }
+            });
+        }
+    }
+
+    private long hedgeDelay(Node replica) {
+        if (latencyTracker.count(replica) < MIN_SAMPLES) {
+            return DEFAULT_HEDGE_DELAY_NANOS;
+        }
+
+        return latencyTracker.percentile(replica, hedgePercentile);
+    }
+
+    // blocks until the consistency level is met
+    public Result execute(DbAccess access, ConsistencyLevel level) {
+        try {
+            return submit(access, level).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result.Error(e);
+        } catch (ExecutionException e) {
+            return new Result.Error(e.getCause());
+        }
+    }
+
+    public void put(long key, String value, ConsistencyLevel level) {
+        check(execute(new DbAccess.PutAccess(key, value), level));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Entity get(long key, ConsistencyLevel level) {
+        return ((Result.Ok<Entity>) check(execute(new DbAccess.GetAccess(key), level))).value();
+    }
+
+    public void delete(long key, ConsistencyLevel level) {
+        check(execute(new DbAccess.DeleteAccess(key), level));
+    }
+
+    private static Result check(Result result) {
+        if (result instanceof Result.Error error) {
+            throw new DatabaseOperationFailedException("Error while coordinating access: " + error.error().getMessage(), error.error());
+        }
+
+        return result;
+    }
+
+    // one thread per core, idle threads exit
+    private static Executor defaultExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // counts replica replies, the result completes on the ack that meets the level or the failure that rules it out
+    private final class Responses {
+
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+        private final DbAccess access;
+        private final Method method;
+        private final List<Node> replicas;
+        private final int blockFor;
+        private final boolean hedged;
+        private final AtomicInteger sent = new AtomicInteger();
+        private final Set<Node> answered = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger acks = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicReference<Entity> found = new AtomicReference<>();
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        private Responses(DbAccess access, List<Node> replicas, int blockFor, boolean hedged) {
+            this.access = access;
+            this.method = access.getMethod();
+            this.replicas = replicas;
+            this.blockFor = blockFor;
+            this.hedged = hedged;
+        }
+
+        private boolean pending(Node replica) {
+            return !answered.contains(replica);
+        }
+
+        private void onResponse(Node replica, Result response, Throwable thrown) {
+            answered.add(replica);
+            Throwable failure = thrown != null ? thrown
+                : response instanceof Result.Error error ? error.error() : null;
+            if (failure != null) {
+                if (hintStore != null && method != Method.GET) {
+                    hintStore.store(replica, access);
+                }
+                firstFailure.compareAndSet(null, failure);
+                if (failures.incrementAndGet() == replicas.size() - blockFor + 1) {
+                    result.complete(new Result.Error(new DatabaseOperationFailedException(
+                        "Only " + (replicas.size() - failures.get()) + " of " + blockFor + " required replicas can answer", firstFailure.get())));
+                } else if (hedged) {
+                    // replace the failed replica right away
+                    send(this);
+                }
+                return;
+            }
+
+            if (method == Method.GET && ((Result.Ok<?>) response).value() instanceof Entity entity) {
+                found.compareAndSet(null, entity);
+            } else if (hintStore != null && method != Method.GET) {
+                // older hints of the key would overwrite this write when replayed
+                hintStore.discard(replica, ((DbAccess.KeyAccess) access).getKey());
+            }
+            if (acks.incrementAndGet() == blockFor) {
+                result.complete(new Result.Ok<>(method == Method.GET ? found.get() : null));
+            }
+        }
+    }
+}
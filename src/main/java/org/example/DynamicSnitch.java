@@ -0,0 +1,51 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranks replicas by their recent median latency, fastest first.
+ * Scores are recomputed from the {@link LatencyTracker} at most once per interval, so ranking a read costs a sort of cached values.
+ * Nodes without samples rank first, which sends them traffic until they are measured.
+ */
+public class DynamicSnitch {
+
+    public static final long DEFAULT_UPDATE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LatencyTracker tracker;
+    private final long updateIntervalNanos;
+    private final Map<Long, Long> scores = new ConcurrentHashMap<>();
+    private final AtomicLong lastUpdate;
+
+    public DynamicSnitch(LatencyTracker tracker) {
+        this(tracker, DEFAULT_UPDATE_INTERVAL_NANOS);
+    }
+
+    public DynamicSnitch(LatencyTracker tracker, long updateIntervalNanos) {
+        this.tracker = tracker;
+        this.updateIntervalNanos = updateIntervalNanos;
+        this.lastUpdate = new AtomicLong(tracker.now() - updateIntervalNanos);
+    }
+
+    // a sorted copy, ties keep the ring order
+    public List<Node> sortByProximity(List<Node> replicas) {
+        long now = tracker.now();
+        long last = lastUpdate.get();
+        boolean refresh = now - last >= updateIntervalNanos && lastUpdate.compareAndSet(last, now);
+
+        List<Node> sorted = new ArrayList<>(replicas);
+        for (Node replica : sorted) {
+            if (refresh || !scores.containsKey(replica.id())) {
+                scores.put(replica.id(), tracker.percentile(replica, 0.5));
+            }
+        }
+        sorted.sort(Comparator.comparingLong(replica -> scores.get(replica.id())));
+
+        return sorted;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Phi-accrual failure detector, keyed by {@link Node#id()}.
+ * Every heartbeat records its interval since the previous one; phi is the suspicion that the node is dead given
+ * the silence since its last heartbeat, assuming exponentially distributed intervals with the recent mean.
+ * A node is down once phi reaches the threshold and up again on its next heartbeat,
+ * so a node that usually answers every 100ms is suspected far sooner than one heard from every few seconds.
+ * The listener is called under the lock of the node's window, so a heartbeat racing a conviction cannot deliver
+ * its up before the down it follows; listeners must be quick.
+ */
+public class FailureDetector {
+
+    public static final double DEFAULT_PHI_THRESHOLD = 8;
+    public static final long DEFAULT_INITIAL_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int WINDOW_SIZE = 1000;
+    // phi = -log10(P(silence >= t)) = t / mean / ln(10)
+    private static final double PHI_FACTOR = 1.0 / Math.log(10.0);
+
+    private final double phiThreshold;
+    private final long initialIntervalNanos;
+    private final LongSupplier clock;
+    private final Listener listener;
+    private final Map<Long, ArrivalWindow> windows = new ConcurrentHashMap<>();
+
+    public interface Listener {
+        void onDown(Node node);
+
+        void onUp(Node node);
+    }
+
+    public FailureDetector(Listener listener) {
+        this(DEFAULT_PHI_THRESHOLD, DEFAULT_INITIAL_INTERVAL_NANOS, System::nanoTime, listener);
+    }
+
+    // the initial interval stands in for the mean until a node has sent two heartbeats
+    public FailureDetector(double phiThreshold, long initialIntervalNanos, LongSupplier clock, Listener listener) {
+        if (phiThreshold <= 0 || initialIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Phi threshold and initial interval must be positive: " + phiThreshold + ", " + initialIntervalNanos);
+        }
+        this.phiThreshold = phiThreshold;
+        this.initialIntervalNanos = initialIntervalNanos;
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    // marks down and up nodes in the token metadata, routing then skips the down ones
+    public static Listener tokenMetadataListener(TokenMetadata tokenMetadata) {
+        return new Listener() {
+            @Override
+            public void onDown(Node node) {
+                tokenMetadata.markDown(node);
+            }
+
+            @Override
+            public void onUp(Node node) {
+                tokenMetadata.markUp(node);
+            }
+        };
+    }
+
+    public void heartbeat(Node node) {
+        windows.computeIfAbsent(node.id(), id -> new ArrivalWindow(node)).add(clock.getAsLong(), listener);
+    }
+
+    // forgets a node that left the cluster, it is neither convicted nor reported up any more
+    public void remove(Node node) {
+        windows.remove(node.id());
+    }
+
+    public double phi(Node node) {
+        ArrivalWindow window = windows.get(node.id());
+        return window == null ? 0 : window.phi(clock.getAsLong(), initialIntervalNanos);
+    }
+
+    public boolean isAlive(Node node) {
+        ArrivalWindow window = windows.get(node.id());
+        return window == null || !window.down;
+    }
+
+    // convicts every node whose phi reached the threshold, call it periodically, e.g. once per gossip round
+    public void interpret() {
+        long now = clock.getAsLong();
+        for (ArrivalWindow window : windows.values()) {
+            window.convict(now, initialIntervalNanos, phiThreshold, listener);
+        }
+    }
+
+    private static final class ArrivalWindow {
+
+        private final Node node;
+        private final long[] intervals = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private long sum;
+        private long last = Long.MIN_VALUE;
+        private volatile boolean down;
+
+        ArrivalWindow(Node node) {
+            this.node = node;
+        }
+
+        // tells the listener if the node was down
+        synchronized void add(long now, Listener listener) {
+            if (last != Long.MIN_VALUE) {
+                long interval = now - last;
+                if (count == WINDOW_SIZE) {
+                    sum -= intervals[next];
+                } else {
+                    count++;
+                }
+                intervals[next] = interval;
+                sum += interval;
+                next = (next + 1) % WINDOW_SIZE;
+            }
+            last = now;
+
+            if (down) {
+                down = false;
+                if (listener != null) {
+                    listener.onUp(node);
+                }
+            }
+        }
+
+        synchronized double phi(long now, long initialIntervalNanos) {
+            double mean = count == 0 ? initialIntervalNanos : (double) sum / count;
+            return PHI_FACTOR * (now - last) / Math.max(mean, 1);
+        }
+
+        // tells the listener if the node just went down
+        synchronized void convict(long now, long initialIntervalNanos, double phiThreshold, Listener listener) {
+            if (down || phi(now, initialIntervalNanos) < phiThreshold) {
+                return;
+            }
+
+            down = true;
+            if (listener != null) {
+                listener.onDown(node);
+            }
+        }
+    }
+}
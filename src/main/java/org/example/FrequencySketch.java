@@ -0,0 +1,74 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Count-Min sketch of access frequencies: four rows of counters, an item counts in one counter per row
+ * and its estimate is the smallest of them, never below the true count since the last reset.
+ * Once the additions reach ten times the width every counter is halved, so old popularity fades;
+ * a CAS on the additions lets exactly one thread halve per period.
+ * Counter increments are plain: racing threads may lose a few counts, and an increment racing the halving
+ * may store its count from before it, so an estimate can be off by the accesses that raced in either direction.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final int[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+    private volatile int resets;
+
+    FrequencySketch(int width) {
+        int rowWidth = Math.max(16, Integer.highestOneBit(Math.max(1, width - 1)) << 1);
+        this.counters = new int[DEPTH * rowWidth];
+        this.mask = rowWidth - 1;
+        this.sampleSize = 10 * rowWidth;
+    }
+
+    // returns the estimate including this occurrence
+    int increment(long item) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(item, row);
+            int count = counters[index];
+            if (count < Integer.MAX_VALUE) {
+                counters[index] = ++count;
+            }
+            estimate = Math.min(estimate, count);
+        }
+
+        int added = additions.incrementAndGet();
+        if (added >= sampleSize && additions.compareAndSet(added, 0)) {
+            reset();
+        }
+        return estimate;
+    }
+
+    int estimate(long item) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[indexOf(item, row)]);
+        }
+
+        return estimate;
+    }
+
+    // changes on every halving, estimates taken in an older period are stale
+    int period() {
+        return resets;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        resets++;
+    }
+
+    private int indexOf(long item, int row) {
+        return row * (mask + 1) + ((int) RendezvousPartitioner.mix(item ^ SEEDS[row]) & mask);
+    }
+}
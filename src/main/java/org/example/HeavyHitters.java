@@ -0,0 +1,83 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming top-K of the most frequent items, e.g. keys or partitions, on top of a {@link FrequencySketch}.
+ * Recording an item costs the sketch update; only an item whose estimate beats the weakest candidate takes the lock.
+ */
+public class HeavyHitters {
+
+    public static final int DEFAULT_SKETCH_WIDTH = 1024;
+
+    private final int k;
+    private final FrequencySketch sketch;
+    private final Set<Long> candidates = new HashSet<>();
+    // smallest estimate among full candidates, recomputed when the sketch ages
+    private volatile int threshold;
+    private volatile int thresholdPeriod;
+
+    public record Entry(long item, int estimate) {
+    }
+
+    public HeavyHitters(int k) {
+        this(k, DEFAULT_SKETCH_WIDTH);
+    }
+
+    public HeavyHitters(int k, int sketchWidth) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K must be positive: " + k);
+        }
+        this.k = k;
+        this.sketch = new FrequencySketch(sketchWidth);
+    }
+
+    public void record(long item) {
+        int estimate = sketch.increment(item);
+        if (estimate > threshold || thresholdPeriod != sketch.period()) {
+            offer(item);
+        }
+    }
+
+    public int estimate(long item) {
+        return sketch.estimate(item);
+    }
+
+    // hottest first
+    public List<Entry> top() {
+        List<Entry> top = new ArrayList<>(k);
+        synchronized (this) {
+            for (long candidate : candidates) {
+                top.add(new Entry(candidate, sketch.estimate(candidate)));
+            }
+        }
+        top.sort(Comparator.comparingInt(Entry::estimate).reversed());
+
+        return top;
+    }
+
+    private synchronized void offer(long item) {
+        candidates.add(item);
+        if (candidates.size() > k) {
+            long weakest = item;
+            for (long candidate : candidates) {
+                if (sketch.estimate(candidate) < sketch.estimate(weakest)) {
+                    weakest = candidate;
+                }
+            }
+            candidates.remove(weakest);
+        }
+
+        int period = sketch.period();
+        int min = candidates.size() < k ? 0 : Integer.MAX_VALUE;
+        for (long candidate : candidates) {
+            min = Math.min(min, sketch.estimate(candidate));
+        }
+        threshold = min;
+        thresholdPeriod = period;
+    }
+}
@@ -0,0 +1,319 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Method;
+import org.example.gossip.Gossiper;
+import org.example.stream.Throttle;
+
+import java.util.ArrayDeque;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Hinted handoff: writes a replica missed while unreachable, kept by the coordinator until the replica is back.
+ * Hints are appended per target in write order and replayed in the same order, in batches.
+ * The store holds at most {@code maxBytes} of hints, writes beyond it are dropped and left to repair;
+ * hints older than the TTL are dropped too, a replica down that long needs a repair anyway.
+ * Expired hints are purged when the store fills up, or by {@link #purgeExpired()}, not only when their target comes back.
+ * A replay holds the queue lock only to poll and requeue, never while throttled or sending, so writes keep adding hints.
+ * Writes carry no version, so a direct write that reaches the replica {@link #discard discards} its older hints,
+ * a replay would otherwise overwrite the newer value; only a hint already on its way can still land after it.
+ */
+public class HintStore {
+
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    public static final long DEFAULT_TTL_NANOS = TimeUnit.HOURS.toNanos(3);
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    // key, partition, expiry and delete flag next to the value
+    private static final long HINT_OVERHEAD = 2 * Long.BYTES + Integer.BYTES + 1;
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Long, Hints> hints = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    // value null is a delete, values are kept as UTF-8 so the size is what the store holds
+    private record Hint(long key, int partition, byte[] value, long expiresAt) {
+
+        long size() {
+            return HINT_OVERHEAD + (value == null ? 0 : value.length);
+        }
+
+        DbAccess access() {
+            return value == null
+                ? new DbAccess.DeleteAccess(key, partition)
+                : new DbAccess.PutAccess(key, partition, new String(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    // hints of one target, oldest first, guarded by its monitor
+    private static final class Hints {
+        private final ArrayDeque<Hint> queue = new ArrayDeque<>();
+        // one replay per target at a time keeps the hints in write order
+        private final AtomicBoolean replaying = new AtomicBoolean();
+        // keys written directly since the replay polled its batch
+        private final Set<Long> superseded = new HashSet<>();
+    }
+
+    public HintStore() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_TTL_NANOS, System::nanoTime);
+    }
+
+    public HintStore(long maxBytes, long ttlNanos, LongSupplier clock) {
+        if (maxBytes <= 0 || ttlNanos <= 0) {
+            throw new IllegalArgumentException("Hint store bound and TTL must be positive: " + maxBytes + ", " + ttlNanos);
+        }
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    // replays the hints of a node once it is announced STABLE, e.g. after a restart
+    public Gossiper.StateListener replayOnStable(Executor executor) {
+        return state -> {
+            if (state.status() == NodeStatus.STABLE && pending(state.node()) > 0) {
+                executor.execute(() -> replay(state.node()));
+            }
+        };
+    }
+
+    // returns false if the hint was dropped
+    public boolean store(Node target, DbAccess access) {
+        if (access.getMethod() != Method.PUT && access.getMethod() != Method.DELETE) {
+            throw new IllegalArgumentException("Only writes are hinted: " + access.getMethod());
+        }
+        DbAccess.KeyAccess write = (DbAccess.KeyAccess) access;
+        byte[] value = write instanceof DbAccess.PutAccess put ? put.getValue().getBytes(StandardCharsets.UTF_8) : null;
+        Hint hint = new Hint(write.getKey(), write.getPartition(), value, clock.getAsLong() + ttlNanos);
+
+        // expired hints of targets that never came back may be holding the space
+        if (!reserve(hint.size()) && (purgeExpired() == 0 || !reserve(hint.size()))) {
+            dropped.increment();
+            return false;
+        }
+
+        Hints targetHints = hints.computeIfAbsent(target.id(), id -> new Hints());
+        synchronized (targetHints) {
+            targetHints.queue.addLast(hint);
+        }
+
+        return true;
+    }
+
+    /**
+     * Drops the hints of the key for the target once a newer write reached it directly.
+     * A batch the replay has polled but not sent yet skips the key too.
+     */
+    public void discard(Node target, long key) {
+        Hints targetHints = hints.get(target.id());
+        if (targetHints == null) {
+            return;
+        }
+
+        synchronized (targetHints) {
+            targetHints.queue.removeIf(hint -> {
+                if (hint.key() != key) {
+                    return false;
+                }
+                bytes.addAndGet(-hint.size());
+                return true;
+            });
+            if (targetHints.replaying.get()) {
+                targetHints.superseded.add(key);
+            }
+        }
+    }
+
+    public int pending(Node target) {
+        Hints targetHints = hints.get(target.id());
+        if (targetHints == null) {
+            return 0;
+        }
+
+        synchronized (targetHints) {
+            return targetHints.queue.size();
+        }
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Drops the expired hints of every target, returns how many were dropped.
+     * Hints share one TTL and are kept in write order, so the expired ones are at the front of each queue.
+     */
+    public int purgeExpired() {
+        long now = clock.getAsLong();
+        int purged = 0;
+        for (Hints targetHints : hints.values()) {
+            synchronized (targetHints) {
+                while (!targetHints.queue.isEmpty() && targetHints.queue.peekFirst().expiresAt() - now <= 0) {
+                    bytes.addAndGet(-targetHints.queue.pollFirst().size());
+                    purged++;
+                }
+            }
+        }
+        dropped.add(purged);
+
+        return purged;
+    }
+
+    public int replay(Node target) {
+        return replay(target, DEFAULT_BATCH_SIZE, new Throttle(0));
+    }
+
+    /**
+     * Sends the hints of the target in batches of {@code batchSize}, paced by the throttle.
+     * The hints from the first failed one on go back to the front of the queue and stop the replay, the next replay retries them.
+     * Returns the number of hints delivered.
+     */
+    @SuppressWarnings("unchecked")
+    public int replay(Node target, int batchSize, Throttle throttle) {
+        Hints targetHints = hints.get(target.id());
+        if (targetHints == null) {
+            return 0;
+        }
+
+        int delivered = 0;
+        boolean failed = false;
+        // a concurrent replay delivers the hints, the loop retries if it finished before seeing new ones
+        while (!failed && pendingIn(targetHints) && targetHints.replaying.compareAndSet(false, true)) {
+            try {
+                while (true) {
+                    List<Hint> batch;
+                    synchronized (targetHints) {
+                        targetHints.superseded.clear();
+                        batch = pollBatch(targetHints, batchSize);
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+
+                    long batchBytes = 0;
+                    for (Hint hint : batch) {
+                        batchBytes += hint.size();
+                    }
+                    try {
+                        throttle.acquire(batchBytes);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        requeue(targetHints, batch);
+                        failed = true;
+                        break;
+                    }
+
+                    synchronized (targetHints) {
+                        batch = dropSuperseded(targetHints, batch);
+                    }
+                    List<DbAccess> accesses = new ArrayList<>(batch.size());
+                    for (Hint hint : batch) {
+                        accesses.add(hint.access());
+                    }
+                    Result result = target.processBatch(accesses);
+                    int sent = batch.size();
+                    if (result instanceof Result.Error) {
+                        sent = 0;
+                    } else {
+                        List<Result> results = ((Result.Ok<List<Result>>) result).value();
+                        for (int i = 0; i < results.size(); i++) {
+                            if (results.get(i) instanceof Result.Error) {
+                                sent = i;
+                                break;
+                            }
+                        }
+                    }
+                    for (Hint hint : batch.subList(0, sent)) {
+                        bytes.addAndGet(-hint.size());
+                    }
+                    delivered += sent;
+                    if (sent < batch.size()) {
+                        // the hints before the failed one reached the replica, resending them could overwrite newer writes
+                        requeue(targetHints, batch.subList(sent, batch.size()));
+                        failed = true;
+                        break;
+                    }
+                }
+            } finally {
+                targetHints.replaying.set(false);
+            }
+        }
+
+        return delivered;
+    }
+
+    private static boolean pendingIn(Hints targetHints) {
+        synchronized (targetHints) {
+            return !targetHints.queue.isEmpty();
+        }
+    }
+
+    private boolean reserve(long size) {
+        if (bytes.addAndGet(size) > maxBytes) {
+            bytes.addAndGet(-size);
+            return false;
+        }
+        return true;
+    }
+
+    // skips expired hints
+    private List<Hint> pollBatch(Hints targetHints, int batchSize) {
+        long now = clock.getAsLong();
+        List<Hint> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && !targetHints.queue.isEmpty()) {
+            Hint hint = targetHints.queue.pollFirst();
+            if (hint.expiresAt() - now <= 0) {
+                bytes.addAndGet(-hint.size());
+                dropped.increment();
+                continue;
+            }
+            batch.add(hint);
+        }
+
+        return batch;
+    }
+
+    // hints stored meanwhile are newer, the batch goes back in front of them
+    private void requeue(Hints targetHints, List<Hint> batch) {
+        synchronized (targetHints) {
+            List<Hint> live = dropSuperseded(targetHints, batch);
+            for (int i = live.size() - 1; i >= 0; i--) {
+                targetHints.queue.addFirst(live.get(i));
+            }
+        }
+    }
+
+    // caller holds the monitor of the target hints
+    private List<Hint> dropSuperseded(Hints targetHints, List<Hint> batch) {
+        if (targetHints.superseded.isEmpty()) {
+            return batch;
+        }
+
+        List<Hint> live = new ArrayList<>(batch.size());
+        for (Hint hint : batch) {
+            if (targetHints.superseded.contains(hint.key())) {
+                bytes.addAndGet(-hint.size());
+            } else {
+                live.add(hint);
+            }
+        }
+        return live;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Jump consistent hash (Lamping and Veach) over the members in join order.
+ * Adding a member moves the minimal share of partitions, removing one other than the last renumbers every member after it.
+ */
+public final class JumpHashPartitioner implements Partitioner {
+
+    private final Node[] nodes;
+
+    public JumpHashPartitioner(List<Node> members) {
+        this.nodes = members.toArray(new Node[0]);
+    }
+
+    @Override
+    public int ownerIndexOf(int partition) {
+        return jump(partition, nodes.length);
+    }
+
+    @Override
+    public Node node(int ownerIndex) {
+        return nodes[ownerIndex];
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    static int jump(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+
+        return (int) bucket;
+    }
+}
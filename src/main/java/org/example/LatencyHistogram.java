@@ -0,0 +1,72 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear latency histogram in the style of HdrHistogram.
+ * Values below 128 get exact buckets, above that every power of two is split into 64 buckets,
+ * so a recorded value is off by less than 1.6% and the whole long range fits in a fixed array.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 64;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = 58 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+        total.increment();
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    // upper bound of the bucket holding the quantile, -1 when nothing was recorded
+    public long percentile(double quantile) {
+        return percentile(quantile, null);
+    }
+
+    // percentile over this histogram and another one, without merging them
+    public long percentile(double quantile, LatencyHistogram other) {
+        long count = count() + (other == null ? 0 : other.count());
+        if (count == 0) {
+            return -1;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts.get(index) + (other == null ? 0 : other.counts.get(index));
+            if (seen >= rank) {
+                return highestValueAt(index);
+            }
+        }
+
+        return highestValueAt(BUCKETS - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+
+        // value >>> shift lands in [64, 128)
+        int shift = 57 - Long.numberOfLeadingZeros(value);
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,91 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Recent request latencies per node, keyed by {@link Node#id()}.
+ * Each node keeps the histogram of the current window and of the one before it,
+ * percentiles cover both, so older samples age out after two windows.
+ */
+public class LatencyTracker {
+
+    public static final long DEFAULT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW_NANOS, System::nanoTime);
+    }
+
+    public LatencyTracker(long windowNanos, LongSupplier clock) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowNanos);
+        }
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+    }
+
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    public void record(Node node, long latencyNanos) {
+        windows.computeIfAbsent(node.id(), id -> new Window(now())).current(now(), windowNanos).record(latencyNanos);
+    }
+
+    // latency at the quantile over the last two windows, -1 without samples
+    public long percentile(Node node, double quantile) {
+        Window window = windows.get(node.id());
+        if (window == null) {
+            return -1;
+        }
+
+        Window.Histograms histograms = window.histograms(now(), windowNanos);
+        return histograms.current().percentile(quantile, histograms.previous());
+    }
+
+    public long count(Node node) {
+        Window window = windows.get(node.id());
+        if (window == null) {
+            return 0;
+        }
+
+        Window.Histograms histograms = window.histograms(now(), windowNanos);
+        return histograms.current().count() + histograms.previous().count();
+    }
+
+    private static final class Window {
+
+        private record Histograms(long start, LatencyHistogram current, LatencyHistogram previous) {
+        }
+
+        private volatile Histograms histograms;
+
+        private Window(long now) {
+            this.histograms = new Histograms(now, new LatencyHistogram(), new LatencyHistogram());
+        }
+
+        private LatencyHistogram current(long now, long windowNanos) {
+            return histograms(now, windowNanos).current();
+        }
+
+        // rolls the window forward, a lost race only drops the samples recorded meanwhile
+        private Histograms histograms(long now, long windowNanos) {
+            Histograms current = histograms;
+            long elapsed = now - current.start();
+            if (elapsed < windowNanos) {
+                return current;
+            }
+
+            LatencyHistogram previous = elapsed < 2 * windowNanos ? current.current() : new LatencyHistogram();
+            Histograms next = new Histograms(now, new LatencyHistogram(), previous);
+            histograms = next;
+            return next;
+        }
+    }
+}
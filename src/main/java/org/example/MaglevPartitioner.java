@@ -0,0 +1,98 @@
+package org.example;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maglev lookup table: every member fills the table slots in its own permutation order, taking turns,
+ * so each owns nearly the same number of slots and a lookup is a single array access.
+ * A membership change moves slightly more than the minimal share of partitions.
+ * The table keeps at least {@value #MIN_SLOTS_PER_MEMBER} slots per member, see {@link #tableSizeFor}.
+ */
+public final class MaglevPartitioner implements Partitioner {
+
+    // prime, well above 100 slots per member for clusters of a few hundred nodes
+    public static final int DEFAULT_TABLE_SIZE = 65537;
+    public static final int MIN_SLOTS_PER_MEMBER = 100;
+
+    private final Node[] nodes;
+    private final int[] table;
+
+    public MaglevPartitioner(List<Node> members) {
+        this(members, tableSizeFor(members.size()));
+    }
+
+    // the table size must be prime for the permutations to cover every slot
+    public MaglevPartitioner(List<Node> members, int tableSize) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Maglev needs at least one member");
+        }
+        this.nodes = members.toArray(new Node[0]);
+        this.table = populate(nodes, tableSize);
+    }
+
+    /**
+     * The first prime above {@code 2^16 * 2^k} for the smallest {@code k} that leaves {@value #MIN_SLOTS_PER_MEMBER}
+     * slots per member, {@link #DEFAULT_TABLE_SIZE} up to 655 members.
+     * The size only changes when the membership crosses a doubling, and such a change remaps most partitions.
+     */
+    public static int tableSizeFor(int members) {
+        long size = 1 << 16;
+        while (size < (long) members * MIN_SLOTS_PER_MEMBER) {
+            size <<= 1;
+        }
+        if (size > 1 << 30) {
+            throw new IllegalArgumentException("Too many members for a Maglev table: " + members);
+        }
+
+        return BigInteger.valueOf(size).nextProbablePrime().intValueExact();
+    }
+
+    public int tableSize() {
+        return table.length;
+    }
+
+    @Override
+    public int ownerIndexOf(int partition) {
+        return table[(int) ((partition & 0xFFFFFFFFL) % table.length)];
+    }
+
+    @Override
+    public Node node(int ownerIndex) {
+        return nodes[ownerIndex];
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    private static int[] populate(Node[] nodes, int tableSize) {
+        long[] offsets = new long[nodes.length];
+        long[] skips = new long[nodes.length];
+        long[] next = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i] = Long.remainderUnsigned(RendezvousPartitioner.mix(nodes[i].id()), tableSize);
+            skips[i] = Long.remainderUnsigned(RendezvousPartitioner.mix(~nodes[i].id()), tableSize - 1) + 1;
+        }
+
+        int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < nodes.length; i++) {
+                int slot = (int) ((offsets[i] + next[i] * skips[i]) % tableSize);
+                while (table[slot] >= 0) {
+                    next[i]++;
+                    slot = (int) ((offsets[i] + next[i] * skips[i]) % tableSize);
+                }
+                table[slot] = i;
+                next[i]++;
+                if (++filled == tableSize) {
+                    return table;
+                }
+            }
+        }
+    }
+}
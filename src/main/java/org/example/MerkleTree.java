@@ -0,0 +1,123 @@
+package org.example;
+
+import org.example.db.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Merkle tree over the partition space of one node, kept up to date on every write.
+ * The ring is cut into {@code 2^depth} equal leaves in ring order; a leaf is the XOR of the hashes of its entities
+ * and an inner node the XOR of its children, so a write XORs one delta into the path from its leaf to the root.
+ * Two trees of the same depth are compared top-down, descending only into subtrees whose hashes differ.
+ */
+public final class MerkleTree {
+
+    public static final int DEFAULT_DEPTH = 12;
+    private static final int MAX_DEPTH = 24;
+
+    private final int depth;
+    // heap layout, the root at 1 and the leaves at [leaves, 2 * leaves)
+    private final AtomicLongArray hashes;
+    private final int leaves;
+
+    // part of a leaf inside a compared range, both bounds inclusive
+    public record Difference(int first, int last, boolean wholeLeaf) {
+    }
+
+    public MerkleTree() {
+        this(DEFAULT_DEPTH);
+    }
+
+    public MerkleTree(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be in [1, " + MAX_DEPTH + "]: " + depth);
+        }
+        this.depth = depth;
+        this.leaves = 1 << depth;
+        this.hashes = new AtomicLongArray(2 * leaves);
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long rootHash() {
+        return hashes.get(1);
+    }
+
+    // replaces removed with added in the partition, either may be null
+    public void update(int partition, Entity removed, Entity added) {
+        long delta = hashOf(removed) ^ hashOf(added);
+        if (delta == 0) {
+            return;
+        }
+
+        for (int node = leaves + leafOf(partition); node > 0; node >>>= 1) {
+            hashes.accumulateAndGet(node, delta, (a, b) -> a ^ b);
+        }
+    }
+
+    /**
+     * Leaves intersecting the inclusive partition range {@code [first, last]} whose hashes differ from the other tree,
+     * clipped to the range. {@code first > last} wraps around the ring.
+     */
+    public List<Difference> differences(MerkleTree other, int first, int last) {
+        if (other.depth != depth) {
+            throw new IllegalArgumentException("Cannot compare trees of depth " + depth + " and " + other.depth);
+        }
+
+        List<Difference> differences = new ArrayList<>();
+        if (first <= last) {
+            compare(other, 1, 0, leaves - 1, first, last, differences);
+        } else {
+            compare(other, 1, 0, leaves - 1, first, Integer.MAX_VALUE, differences);
+            compare(other, 1, 0, leaves - 1, Integer.MIN_VALUE, last, differences);
+        }
+
+        return differences;
+    }
+
+    private void compare(MerkleTree other, int node, int fromLeaf, int toLeaf, int first, int last, List<Difference> sink) {
+        if (fromLeaf > leafOf(last) || toLeaf < leafOf(first) || hashes.get(node) == other.hashes.get(node)) {
+            return;
+        }
+
+        if (fromLeaf == toLeaf) {
+            int leafFirst = firstPartition(fromLeaf);
+            int leafLast = lastPartition(fromLeaf);
+            int clippedFirst = Math.max(leafFirst, first);
+            int clippedLast = Math.min(leafLast, last);
+            sink.add(new Difference(clippedFirst, clippedLast, clippedFirst == leafFirst && clippedLast == leafLast));
+            return;
+        }
+
+        int middle = (fromLeaf + toLeaf) >>> 1;
+        compare(other, 2 * node, fromLeaf, middle, first, last, sink);
+        compare(other, 2 * node + 1, middle + 1, toLeaf, first, last, sink);
+    }
+
+    // leaves are in ring order, the top bits of the partition shifted to unsigned
+    int leafOf(int partition) {
+        return (partition ^ Integer.MIN_VALUE) >>> (32 - depth);
+    }
+
+    private int firstPartition(int leaf) {
+        return (leaf << (32 - depth)) ^ Integer.MIN_VALUE;
+    }
+
+    private int lastPartition(int leaf) {
+        return firstPartition(leaf) + ((1 << (32 - depth)) - 1);
+    }
+
+    // 0 for no entity, which leaves the XOR unchanged
+    public static long hashOf(Entity entity) {
+        if (entity == null) {
+            return 0;
+        }
+
+        return RendezvousPartitioner.mix(RendezvousPartitioner.mix(entity.id()) ^ Objects.hashCode(entity.value()));
+    }
+}
@@ -0,0 +1,246 @@
+package org.example;
+
+import org.example.db.Entity;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Coordinator-side cache of hot entities, bounded in entries and age.
+ * W-TinyLFU: new entries land in a small LRU window; an entry evicted from the window only enters the main LRU
+ * if the {@link FrequencySketch} saw its key more often than the key the main area would evict for it.
+ * One-off reads then pass through the window without flushing the hot keys.
+ * Entries are dropped when their partition changes replicas and on writes through the owning coordinator;
+ * writes through other coordinators are seen once the TTL expires.
+ * Every write through the owning coordinator bumps the epoch of its key, a read caches its value only if the epoch
+ * it saw before reading is still current, so a read racing a write never caches the value the write replaced.
+ * Keys are spread over independently locked stripes, each with its own window, main area and sketch.
+ */
+public class NearCache {
+
+    public static final long DEFAULT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    public static final int DEFAULT_STRIPES = 16;
+    // share of the capacity in the window
+    private static final double WINDOW_RATIO = 0.01;
+    // below it admission decisions of a stripe get noisy, small caches keep fewer stripes
+    private static final int MIN_STRIPE_CAPACITY = 1024;
+    // epochs per stripe, keys sharing one only cost each other a cached read
+    private static final int EPOCHS = 256;
+
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private record CachedEntity(Entity entity, int partition, long expiresAt) {
+    }
+
+    public record Stats(long hits, long misses, int size) {
+
+        public double hitRatio() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    public NearCache(int capacity) {
+        this(capacity, DEFAULT_TTL_NANOS, System::nanoTime);
+    }
+
+    public NearCache(int capacity, long ttlNanos, LongSupplier clock) {
+        this(capacity, ttlNanos, clock, stripesFor(capacity));
+    }
+
+    // stripes is rounded down to a power of two
+    public NearCache(int capacity, long ttlNanos, LongSupplier clock, int stripes) {
+        if (capacity <= 0 || ttlNanos <= 0 || stripes <= 0 || stripes > capacity) {
+            throw new IllegalArgumentException("Capacity, TTL and stripes must be positive, stripes at most the capacity: "
+                + capacity + ", " + ttlNanos + ", " + stripes);
+        }
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.stripes = new Stripe[Integer.highestOneBit(stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(capacity / this.stripes.length);
+        }
+    }
+
+    static int stripesFor(int capacity) {
+        return Math.max(1, Math.min(DEFAULT_STRIPES, Integer.highestOneBit(Math.max(1, capacity / MIN_STRIPE_CAPACITY))));
+    }
+
+    // null on a miss, counts the access towards admission
+    public Entity get(long key, Partitioner current) {
+        return stripe(key).get(key, current);
+    }
+
+    // write epoch of the key, read it before reading the replicas and hand it to put
+    public long epoch(long key) {
+        return stripe(key).epoch(key);
+    }
+
+    // an entity just read from the replicas of its partition under the given partitioner
+    public void put(Entity entity, int partition, Partitioner current) {
+        put(entity, partition, current, epoch(entity.id()));
+    }
+
+    // dropped if the key was written since the epoch was read
+    public void put(Entity entity, int partition, Partitioner current, long epoch) {
+        stripe(entity.id()).put(entity, partition, current, epoch);
+    }
+
+    // drops the key and bumps its epoch
+    public void invalidate(long key) {
+        stripe(key).invalidate(key);
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    public Stats stats() {
+        long hits = 0;
+        long misses = 0;
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            Stats stats = stripe.stats();
+            hits += stats.hits();
+            misses += stats.misses();
+            size += stats.size();
+        }
+        return new Stats(hits, misses, size);
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (mix(key) >>> 32) & (stripes.length - 1)];
+    }
+
+    // snowflake ids differ mostly in their low bits
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private final class Stripe {
+
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final FrequencySketch sketch;
+        // access order, eldest first
+        private final LinkedHashMap<Long, CachedEntity> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<Long, CachedEntity> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final long[] epochs = new long[EPOCHS];
+        private long hits;
+        private long misses;
+        // replicas the cached entries were read from
+        private Partitioner partitioner;
+
+        Stripe(int capacity) {
+            this.windowCapacity = Math.max(1, (int) (capacity * WINDOW_RATIO));
+            this.mainCapacity = Math.max(1, capacity - windowCapacity);
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        synchronized Entity get(long key, Partitioner current) {
+            invalidateMoved(current);
+            sketch.increment(key);
+
+            CachedEntity cached = main.get(key);
+            if (cached == null) {
+                cached = window.get(key);
+            }
+            if (cached == null || cached.expiresAt() - clock.getAsLong() <= 0) {
+                if (cached != null) {
+                    remove(key);
+                }
+                misses++;
+                return null;
+            }
+
+            hits++;
+            return cached.entity();
+        }
+
+        synchronized long epoch(long key) {
+            return epochs[epochIndex(key)];
+        }
+
+        synchronized void put(Entity entity, int partition, Partitioner current, long epoch) {
+            if (epochs[epochIndex(entity.id())] != epoch) {
+                return;
+            }
+            invalidateMoved(current);
+            if (main.containsKey(entity.id())) {
+                main.put(entity.id(), new CachedEntity(entity, partition, clock.getAsLong() + ttlNanos));
+                return;
+            }
+
+            window.put(entity.id(), new CachedEntity(entity, partition, clock.getAsLong() + ttlNanos));
+            if (window.size() <= windowCapacity) {
+                return;
+            }
+
+            Iterator<Map.Entry<Long, CachedEntity>> eldest = window.entrySet().iterator();
+            Map.Entry<Long, CachedEntity> candidate = eldest.next();
+            eldest.remove();
+            if (main.size() < mainCapacity) {
+                main.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+
+            // admission: the more frequent of the candidate and the main victim stays
+            Iterator<Map.Entry<Long, CachedEntity>> victims = main.entrySet().iterator();
+            Map.Entry<Long, CachedEntity> victim = victims.next();
+            if (sketch.estimate(candidate.getKey()) > sketch.estimate(victim.getKey())) {
+                victims.remove();
+                main.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        synchronized void invalidate(long key) {
+            epochs[epochIndex(key)]++;
+            remove(key);
+        }
+
+        synchronized void clear() {
+            window.clear();
+            main.clear();
+        }
+
+        synchronized Stats stats() {
+            return new Stats(hits, misses, window.size() + main.size());
+        }
+
+        private void remove(long key) {
+            window.remove(key);
+            main.remove(key);
+        }
+
+        // drops the entries whose partition moved to other replicas since they were cached
+        private void invalidateMoved(Partitioner current) {
+            Partitioner previous = partitioner;
+            partitioner = current;
+            if (previous == null || previous == current) {
+                return;
+            }
+
+            window.values().removeIf(cached -> moved(cached.partition(), previous, current));
+            main.values().removeIf(cached -> moved(cached.partition(), previous, current));
+        }
+
+        // the low bits of the mix, the stripe takes the high ones
+        private int epochIndex(long key) {
+            return (int) mix(key) & (EPOCHS - 1);
+        }
+    }
+
+    private static boolean moved(int partition, Partitioner previous, Partitioner current) {
+        List<Node> before = previous.getReplicas(partition);
+        List<Node> after = current.getReplicas(partition);
+        return !before.equals(after);
+    }
+}
@@ -4,23 +4,51 @@ import org.example.db.DatabaseOperationFailedException;
 import org.example.db.DbAccess;
 import org.example.db.Entity;
 import org.example.db.LocalFileSystem;
+import org.example.db.Storage;
+import org.example.metrics.Metrics;
 
-import java.util.Collections;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NavigableMap;
-import java.util.Set;
 
 public class Node {
 
+    public static final String DEFAULT_RACK = "rack1";
+    public static final int HOT_KEYS = 16;
+
     private final long id;
     private final String nodeName;
-    private final LocalFileSystem database;
-    private TokenMetadata tokenMetadata;
+    private final String rack;
+    private final Storage database;
+    // XOR of every stored entity, maintained by process
+    private final MerkleTree merkleTree = new MerkleTree();
+    // most read keys and partitions, tracked unless switched off, independently of metrics
+    private final HeavyHitters hotKeys = new HeavyHitters(HOT_KEYS);
+    private final HeavyHitters hotPartitions = new HeavyHitters(HOT_KEYS);
+    private volatile boolean trackHotKeys = true;
+    private volatile TokenMetadata tokenMetadata;
+    // a stopped node fails every access, like an unreachable one
+    private volatile boolean running = true;
 
     public Node(long id, String nodeName) {
+        this(id, nodeName, new LocalFileSystem());
+    }
+
+    public Node(long id, String nodeName, Storage database) {
+        this(id, nodeName, DEFAULT_RACK, database);
+    }
+
+    public Node(long id, String nodeName, String rack) {
+        this(id, nodeName, rack, new LocalFileSystem());
+    }
+
+    public Node(long id, String nodeName, String rack, Storage database) {
         this.id = id;
         this.nodeName = nodeName;
-        this.database = new LocalFileSystem();
+        this.rack = rack;
+        this.database = database;
+        // storage may come back with data after a restart, the tree is rebuilt under the partitions it was stored with
+        database.forEach((partition, entity) -> merkleTree.update(partition, null, entity));
     }
 
     public long id() {
@@ -31,126 +59,125 @@ public class Node {
         return nodeName;
     }
 
-    public void updateTokenMetadata(TokenMetadata tokenMetadata) {
-        this.tokenMetadata = tokenMetadata;
+    public String rack() {
+        return rack;
     }
 
-    @SuppressWarnings("unchecked")
-    public void mergeGossip(Gossip gossip) {
-        switch (gossip.status()) {
-            case BOOTSTRAPING -> {
-                Node newNode = gossip.node();
-                Collections.sort(gossip.tokens());
-
-                NavigableMap<Integer, Token> ring = tokenMetadata.getRing();
-                Map<Token, Node> tokenToNode = tokenMetadata.getTokenToNode();
-                // rebalance tokens
-                for (Token token : gossip.tokens()) {
-                    Integer tailKey = ring.ceilingKey(token.partition());
-                    if (tailKey == null) {
-                        tailKey = ring.firstKey();
-                    }
-
-                    Token vnode = getToken(tailKey, ring);
-                    Node responsibleNode = tokenToNode.get(vnode);
-                    DbAccess.ScanAccess scanAccess = new DbAccess.ScanAccess(token.partition(), tailKey);
-                    Result result = responsibleNode.process(scanAccess);
-
-                    if (result instanceof Result.Error) {
-                        throw new DatabaseOperationFailedException("Error while scanning node " + responsibleNode.nodeName);
-                    }
-
-                    // takeover
-                    for (Map.Entry<Integer, Entity> entry : ((Result.Ok<Set<Map.Entry<Integer, Entity>>>) result).value()) {
-                        Entity entity = entry.getValue();
-                        DbAccess.PutAccess putAccess = new DbAccess.PutAccess(entity.id(), entity.value());
-                        newNode.process(putAccess);
-                    }
-
-                    ring.put(token.partition(), token);
-                    tokenToNode.put(token, gossip.node());
-                }
-            }
-            case STABLE -> {
-                // update token metadata
-                tokenMetadata.updateNormalToken(gossip.node(), gossip.tokens());
-            }
-            case LEAVING -> {
-                // receive data stream from leaving node
-                // rebalance tokens in leaving node
-                Collections.sort(gossip.tokens());
-                NavigableMap<Integer, Token> ring = tokenMetadata.getRing();
-                Map<Token, Node> tokenToNode = tokenMetadata.getTokenToNode();
-
-                for (Token token : gossip.tokens()) {
-                    ring.remove(token.partition());
-                    Integer headKey = ring.lowerKey(token.partition());
-                    if (headKey == null) {
-                        headKey = ring.lastKey();
-                    }
-
-                    Token vnode = getToken(token.partition(), ring);
-                    Node responsibleNode = tokenToNode.get(vnode);
-
-                    if (gossip.node().id() == responsibleNode.id()) {
-                        continue;
-                    }
-
-                    // get [prevToken, T)
-                    DbAccess.ScanAccess scanAccess = new DbAccess.ScanAccess(headKey, token.partition());
-                    Result result = gossip.node().process(scanAccess);
-
-                    if (result instanceof Result.Error) {
-                        throw new DatabaseOperationFailedException("Error while scanning node " + gossip.node().nodeName);
-                    }
-
-                    // handoff
-                    for (Map.Entry<Integer, Entity> entry : ((Result.Ok<Set<Map.Entry<Integer, Entity>>>) result).value()) {
-                        Entity entity = entry.getValue();
-                        DbAccess.PutAccess putAccess = new DbAccess.PutAccess(entity.id(), entity.value());
-                        responsibleNode.process(putAccess);
-                    }
-                }
-            }
-            case REMOVED -> {
-                // update(delete) token metadata
-                tokenMetadata.removeEndpoint(gossip.node());
-            }
-        }
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    // storage survives a stop, like a restart
+    public void start() {
+        running = true;
+    }
+
+    public void updateTokenMetadata(TokenMetadata tokenMetadata) {
+        this.tokenMetadata = tokenMetadata;
     }
 
     public TokenMetadata getTokenMetadata() {
         return tokenMetadata;
     }
 
+    public MerkleTree getMerkleTree() {
+        return merkleTree;
+    }
+
+    // hottest first, estimates of recent GETs while tracking was on
+    public List<HeavyHitters.Entry> getHotKeys() {
+        return hotKeys.top();
+    }
+
+    public List<HeavyHitters.Entry> getHotPartitions() {
+        return hotPartitions.top();
+    }
+
+    // tracking costs a sketch update per GET, off leaves the hot keys and partitions as they are
+    public void setHotKeyTracking(boolean trackHotKeys) {
+        this.trackHotKeys = trackHotKeys;
+    }
+
     public Result process(DbAccess access) {
+        if (!Metrics.isEnabled()) {
+            return processAccess(access);
+        }
+
+        long start = System.nanoTime();
+        Result result = processAccess(access);
+        Metrics.recordAccess(id, nodeName, access.getMethod(), System.nanoTime() - start, result instanceof Result.Error);
+        return result;
+    }
+
+    private Result processAccess(DbAccess access) {
+        if (!running) {
+            return new Result.Error(new DatabaseOperationFailedException("Node " + nodeName + " is down"));
+        }
+
         switch (access.getMethod()) {
             case PUT: {
                 DbAccess.PutAccess putAccess = (DbAccess.PutAccess) access;
                 Entity entity = new Entity(putAccess.getKey(), putAccess.getValue());
-                database.write(HashGenerator.hash(entity.id()), entity);
+                int partition = putAccess.getPartition();
+                Entity previous = database.write(partition, entity);
+                merkleTree.update(partition, previous, entity);
+                if (Metrics.isEnabled()) {
+                    Metrics.recordWrite(id, nodeName, previous, entity);
+                }
                 return new Result.Ok<>(null);
             }
             case GET: {
                 DbAccess.GetAccess getAccess = (DbAccess.GetAccess) access;
-                int partition = HashGenerator.hash(getAccess.getKey());
-                return new Result.Ok<>(database.read(partition));
+                int partition = getAccess.getPartition();
+                if (trackHotKeys) {
+                    hotKeys.record(getAccess.getKey());
+                    hotPartitions.record(partition);
+                }
+                return new Result.Ok<>(database.read(partition, getAccess.getKey()));
             }
             case DELETE: {
                 DbAccess.DeleteAccess deleteAccess = (DbAccess.DeleteAccess) access;
-                int partition = HashGenerator.hash(deleteAccess.getKey());
-                database.delete(partition);
+                int partition = deleteAccess.getPartition();
+                Entity removed = database.delete(partition, deleteAccess.getKey());
+                merkleTree.update(partition, removed, null);
+                if (Metrics.isEnabled()) {
+                    Metrics.recordWrite(id, nodeName, removed, null);
+                }
                 return new Result.Ok<>(null);
             }
             case SCAN: {
                 DbAccess.ScanAccess scanAccess = (DbAccess.ScanAccess) access;
-                return new Result.Ok<>(database.scan(scanAccess.getFromPartition(), scanAccess.getToPartition()));
+                return new Result.Ok<>(database.scan(scanAccess.getFromPartition(), scanAccess.getToPartition(), scanAccess.getPageSize()));
             }
         }
 
         return new Result.Error(new IllegalStateException("Unknown access method: " + access.getMethod()));
     }
 
+    // one call per batch, results keep the order of the accesses
+    public Result processBatch(List<DbAccess> batch) {
+        List<Result> results = new ArrayList<>(batch.size());
+        for (DbAccess access : batch) {
+            results.add(process(access));
+        }
+
+        return new Result.Ok<>(results);
+    }
+
+    // owner of the partition under the configured partition strategy
+    public Node getOwner(int partition) {
+        return tokenMetadata.getPartitioner().getNode(partition);
+    }
+
+    // clockwise ownership, resolved against the current ring snapshot
+    public Token getToken(int partition) {
+        return tokenMetadata.getTokenRing().getToken(partition);
+    }
+
     // clockwise ownership
     // [T, nextToken)
     public Token getToken(int partition, NavigableMap<Integer, Token> ring) {
@@ -0,0 +1,33 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * How partitions are mapped to nodes.
+ * The ring is the only engine that replicates and places data by token ranges,
+ * the others route every partition independently and ignore the tokens.
+ */
+public enum PartitionStrategy {
+    // clockwise vnode ring, O(log vnodes) lookup
+    RING,
+    // Lamping and Veach, O(log nodes) lookup without any table, buckets follow the join order
+    JUMP_HASH,
+    // highest random weight, O(nodes) lookup, minimal movement on any membership change
+    RENDEZVOUS,
+    // Maglev lookup table, O(1) lookup, sized from the member count
+    MAGLEV;
+
+    // members in join order
+    public Partitioner partitioner(TokenRing ring, List<Node> members) {
+        if (members.isEmpty()) {
+            return ring;
+        }
+
+        return switch (this) {
+            case RING -> ring;
+            case JUMP_HASH -> new JumpHashPartitioner(members);
+            case RENDEZVOUS -> new RendezvousPartitioner(members);
+            case MAGLEV -> new MaglevPartitioner(members);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Immutable lookup from a partition to the nodes holding it, built by a {@link PartitionStrategy} per metadata version.
+ * Owner indices are stable for the lifetime of one partitioner.
+ */
+public interface Partitioner {
+
+    int ownerIndexOf(int partition);
+
+    Node node(int ownerIndex);
+
+    int nodeCount();
+
+    default Node getNode(int partition) {
+        return node(ownerIndexOf(partition));
+    }
+
+    // replicas per partition
+    default int replicas() {
+        return 1;
+    }
+
+    // owner indices of the replicas of the partition into the sink, primary first
+    default void replicaOwnerIndices(int partition, int[] sink) {
+        sink[0] = ownerIndexOf(partition);
+    }
+
+    default List<Node> getReplicas(int partition) {
+        return List.of(getNode(partition));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Walks the ring clockwise from the vnode and prefers nodes on racks that hold no replica yet.
+ * Once every rack holds one, the nodes skipped on the way are taken in ring order.
+ */
+public class RackAwareStrategy implements ReplicationStrategy {
+
+    // rack count of the ring being placed, every vnode of a ring is placed in a row
+    private volatile RackCount rackCount;
+
+    private record RackCount(TokenRing ring, int racks) {
+    }
+
+    @Override
+    public int[] replicas(TokenRing ring, int index, int replicas) {
+        int racks = racks(ring);
+
+        int[] chosen = new int[replicas];
+        int count = 0;
+        Set<String> usedRacks = new HashSet<>();
+        // nodes passed over because their rack was taken, in ring order
+        int[] skipped = new int[ring.nodeCount()];
+        int skippedCount = 0;
+
+        for (int step = 0; step < ring.size() && count < replicas; step++) {
+            int owner = ring.ownerIndexAt((index + step) % ring.size());
+            if (SimpleStrategy.contains(chosen, count, owner) || SimpleStrategy.contains(skipped, skippedCount, owner)) {
+                continue;
+            }
+
+            if (usedRacks.size() == racks) {
+                // every rack is covered, skipped nodes come first
+                while (skippedCount > 0 && count < replicas) {
+                    chosen[count++] = skipped[0];
+                    System.arraycopy(skipped, 1, skipped, 0, --skippedCount);
+                }
+                if (count < replicas) {
+                    chosen[count++] = owner;
+                }
+            } else if (usedRacks.add(ring.node(owner).rack())) {
+                chosen[count++] = owner;
+            } else {
+                skipped[skippedCount++] = owner;
+            }
+        }
+
+        // fewer racks than replicas
+        for (int i = 0; i < skippedCount && count < replicas; i++) {
+            chosen[count++] = skipped[i];
+        }
+
+        return chosen;
+    }
+
+    private int racks(TokenRing ring) {
+        RackCount cached = rackCount;
+        if (cached == null || cached.ring() != ring) {
+            Set<String> racks = new HashSet<>();
+            for (int owner = 0; owner < ring.nodeCount(); owner++) {
+                racks.add(ring.node(owner).rack());
+            }
+            cached = new RackCount(ring, racks.size());
+            rackCount = cached;
+        }
+
+        return cached.racks();
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hashes the node id with the vnode number, so tokens are random but stable per node.
+ * Balance only comes from the number of vnodes.
+ */
+public class RandomTokenAllocator implements TokenAllocator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    @Override
+    public List<Token> allocate(TokenMetadata.Snapshot current, Node node, int vnodes) {
+        return allocate(taken(current), node, vnodes);
+    }
+
+    // one pass over the ring for the whole batch, the tokens are the same as joining the nodes one by one
+    @Override
+    public Map<Node, List<Token>> allocateAll(TokenMetadata.Snapshot current, List<Node> nodes, int vnodes) {
+        Set<Integer> taken = taken(current);
+        Map<Node, List<Token>> allocated = new LinkedHashMap<>();
+        for (Node node : nodes) {
+            allocated.put(node, allocate(taken, node, vnodes));
+        }
+
+        return allocated;
+    }
+
+    private static Set<Integer> taken(TokenMetadata.Snapshot current) {
+        Set<Integer> taken = new HashSet<>();
+        current.tokenToNode().keySet().forEach(token -> taken.add(token.partition()));
+        return taken;
+    }
+
+    private static List<Token> allocate(Set<Integer> taken, Node node, int vnodes) {
+        List<Token> tokens = new ArrayList<>(vnodes);
+        // a colliding hash moves on to the next seed
+        for (long i = 0; tokens.size() < vnodes; i++) {
+            int partition = HashGenerator.hash(RendezvousPartitioner.mix(node.id() + i * GOLDEN_GAMMA));
+            if (taken.add(partition)) {
+                tokens.add(new Token(partition, "murmur3"));
+            }
+        }
+
+        return tokens;
+    }
+}
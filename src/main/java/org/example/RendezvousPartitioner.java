@@ -0,0 +1,56 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Rendezvous (highest random weight) hashing: a partition belongs to the member scoring highest for it.
+ * A membership change only moves the partitions of the member that joined or left.
+ */
+public final class RendezvousPartitioner implements Partitioner {
+
+    private final Node[] nodes;
+    private final long[] seeds;
+
+    public RendezvousPartitioner(List<Node> members) {
+        this.nodes = members.toArray(new Node[0]);
+        this.seeds = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            seeds[i] = nodes[i].id();
+        }
+    }
+
+    @Override
+    public int ownerIndexOf(int partition) {
+        int owner = 0;
+        long best = Long.MIN_VALUE;
+        for (int i = 0; i < seeds.length; i++) {
+            long score = mix(seeds[i] ^ (partition * 0x9E3779B97F4A7C15L));
+            if (score > best) {
+                best = score;
+                owner = i;
+            }
+        }
+
+        return owner;
+    }
+
+    @Override
+    public Node node(int ownerIndex) {
+        return nodes[ownerIndex];
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    // murmur3 fmix64
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+/**
+ * Places the replicas of every vnode when a {@link TokenRing} is built.
+ */
+public interface ReplicationStrategy {
+
+    // owner indices of the replicas of the vnode at the index, primary (the vnode owner) first, all distinct
+    int[] replicas(TokenRing ring, int index, int replicas);
+}
@@ -0,0 +1,31 @@
+package org.example;
+
+/**
+ * Walks the ring clockwise from the vnode, skipping vnodes of nodes already chosen.
+ */
+public class SimpleStrategy implements ReplicationStrategy {
+
+    @Override
+    public int[] replicas(TokenRing ring, int index, int replicas) {
+        int[] chosen = new int[replicas];
+        int count = 0;
+        for (int i = index; count < replicas; i = (i + 1) % ring.size()) {
+            int owner = ring.ownerIndexAt(i);
+            if (!contains(chosen, count, owner)) {
+                chosen[count++] = owner;
+            }
+        }
+
+        return chosen;
+    }
+
+    static boolean contains(int[] chosen, int count, int owner) {
+        for (int i = 0; i < count; i++) {
+            if (chosen[i] == owner) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the tokens of a joining node.
+ */
+public interface TokenAllocator {
+
+    // tokens for a node that holds none yet, none of them taken by the current metadata
+    List<Token> allocate(TokenMetadata.Snapshot current, Node node, int vnodes);
+
+    // tokens for several nodes joining one after the other, in join order
+    default Map<Node, List<Token>> allocateAll(TokenMetadata.Snapshot current, List<Node> nodes, int vnodes) {
+        Map<Node, List<Token>> allocated = new LinkedHashMap<>();
+        TokenMetadata.Snapshot next = current;
+        for (Node node : nodes) {
+            List<Token> tokens = allocate(next, node, vnodes);
+            allocated.put(node, tokens);
+            next = next.withTokens(node, tokens);
+        }
+
+        return allocated;
+    }
+}
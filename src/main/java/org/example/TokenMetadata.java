@@ -1,49 +1,377 @@
 package org.example;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Copy-on-write token metadata.
+ * Readers see an immutable, versioned {@link Snapshot} without locking or copying;
+ * topology changes build the next version and publish it atomically.
+ */
 public class TokenMetadata {
 
-    private final NavigableMap<Integer, Token> ring;
-    private final Map<Token, Node> tokenToNode;
-    private final Map<Node, List<Token>> nodeToTokens;
+    private final AtomicReference<Snapshot> snapshot;
 
-    public TokenMetadata(NavigableMap<Integer, Token> ring,
-                         Map<Token, Node> tokenToNode,
-                         Map<Node, List<Token>> nodeToTokens
-    ) {
-        this.ring = ring;
-        this.tokenToNode = tokenToNode;
-        this.nodeToTokens = nodeToTokens;
+    public TokenMetadata() {
+        this(1, new SimpleStrategy());
+    }
+
+    public TokenMetadata(int replicationFactor, ReplicationStrategy replicationStrategy) {
+        this(replicationFactor, replicationStrategy, PartitionStrategy.RING);
+    }
+
+    public TokenMetadata(int replicationFactor, ReplicationStrategy replicationStrategy, PartitionStrategy partitionStrategy) {
+        this(new Snapshot(0, Map.of(), Map.of(), List.of(), new Settings(replicationFactor, replicationStrategy, partitionStrategy), Map.of(), 0, Set.of(), Map.of()));
+    }
+
+    private TokenMetadata(Snapshot snapshot) {
+        this.snapshot = new AtomicReference<>(snapshot);
+    }
+
+    // shares the current version, later updates diverge
+    public TokenMetadata copy() {
+        return new TokenMetadata(snapshot.get());
+    }
+
+    public Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    public long version() {
+        return snapshot.get().version();
     }
 
     public void updateNormalToken(Node newNode, List<Token> tokens) {
-        tokens.forEach(token -> {
-            ring.put(token.partition(), token);
-            tokenToNode.put(token, newNode);
-        });
-        nodeToTokens.put(newNode, tokens);
+        snapshot.updateAndGet(current -> current.withTokens(newNode, tokens));
+    }
+
+    // one version for all of them, members join in the map's order
+    public void updateNormalTokens(Map<Node, List<Token>> tokens) {
+        snapshot.updateAndGet(current -> current.withTokens(tokens));
     }
 
     public void removeEndpoint(Node node) {
-        List<Token> tokens = nodeToTokens.get(node);
-        tokens.forEach(token -> {
-            ring.remove(token.partition());
-            tokenToNode.remove(token);
-        });
-        nodeToTokens.remove(node);
+        snapshot.updateAndGet(current -> current.withoutEndpoint(node));
     }
 
-    // deep copy
+    // gossiped changes apply only if newer than the last one applied for the endpoint, returns whether it did
+    public boolean updateNormalToken(Node node, List<Token> tokens, EndpointVersion endpointVersion) {
+        Snapshot previous = snapshot.getAndUpdate(current -> current.withTokens(node, tokens, endpointVersion));
+        return endpointVersion.newerThan(previous.endpointVersion(node));
+    }
+
+    public boolean removeEndpoint(Node node, EndpointVersion endpointVersion) {
+        Snapshot previous = snapshot.getAndUpdate(current -> current.withoutEndpoint(node, endpointVersion));
+        return endpointVersion.newerThan(previous.endpointVersion(node));
+    }
+
+    // switches to bounded-load ownership, epsilon 0 turns it off
+    public void updateLoads(Map<Token, Long> loads, double epsilon) {
+        snapshot.updateAndGet(current -> current.withLoads(loads, epsilon));
+    }
+
+    // liveness as judged by this node, ownership stays as it is
+    public void markDown(Node node) {
+        snapshot.updateAndGet(current -> current.withDown(node, true));
+    }
+
+    public void markUp(Node node) {
+        snapshot.updateAndGet(current -> current.withDown(node, false));
+    }
+
+    public boolean isDown(Node node) {
+        return snapshot.get().isDown(node);
+    }
+
+    public TokenRing getTokenRing() {
+        return snapshot.get().ring();
+    }
+
+    public Partitioner getPartitioner() {
+        return snapshot.get().partitioner();
+    }
+
+    // read-only views of the current version
     public NavigableMap<Integer, Token> getRing() {
-        return new TreeMap<>(ring);
+        return snapshot.get().ringView();
     }
 
     public Map<Token, Node> getTokenToNode() {
-        return new HashMap<>(tokenToNode);
+        return snapshot.get().tokenToNode();
     }
 
     public Map<Node, List<Token>> getNodeToTokens() {
-        return new HashMap<>(nodeToTokens);
+        return snapshot.get().nodeToTokens();
+    }
+
+    // generation and version of the endpoint state a change came from, generations start over on restart
+    public record EndpointVersion(long generation, long version) {
+
+        public boolean newerThan(EndpointVersion other) {
+            return other == null || (generation != other.generation ? generation > other.generation : version > other.version);
+        }
+    }
+
+    // shared by every version of one metadata
+    private record Settings(int replicationFactor, ReplicationStrategy replicationStrategy, PartitionStrategy partitionStrategy) {
+
+        private Settings {
+            if (replicationFactor <= 0) {
+                throw new IllegalArgumentException("Replication factor must be positive: " + replicationFactor);
+            }
+            if (partitionStrategy != PartitionStrategy.RING && replicationFactor != 1) {
+                throw new IllegalArgumentException(partitionStrategy + " does not replicate, replication factor must be 1");
+            }
+        }
+    }
+
+    public static final class Snapshot {
+
+        private final long version;
+        private final Map<Token, Node> tokenToNode;
+        private final Map<Node, List<Token>> nodeToTokens;
+        // nodes in join order
+        private final List<Node> members;
+        private final Settings settings;
+        // measured keys per vnode, ranges spill when epsilon is positive
+        private final Map<Token, Long> loads;
+        private final double loadEpsilon;
+        private final TokenRing ring;
+        private final Partitioner partitioner;
+        // ids of members the failure detector considers down
+        private final Set<Long> downNodes;
+        // node id : last gossiped change applied, removed endpoints keep theirs so older states cannot bring them back
+        private final Map<Long, EndpointVersion> endpointVersions;
+        // built on first use, racing builders produce equal maps
+        private volatile NavigableMap<Integer, Token> ringView;
+
+        private Snapshot(long version,
+                         Map<Token, Node> tokenToNode,
+                         Map<Node, List<Token>> nodeToTokens,
+                         List<Node> members,
+                         Settings settings,
+                         Map<Token, Long> loads,
+                         double loadEpsilon,
+                         Set<Long> downNodes,
+                         Map<Long, EndpointVersion> endpointVersions
+        ) {
+            this.version = version;
+            this.tokenToNode = Collections.unmodifiableMap(tokenToNode);
+            this.nodeToTokens = Collections.unmodifiableMap(nodeToTokens);
+            this.members = List.copyOf(members);
+            this.settings = settings;
+            this.loads = Collections.unmodifiableMap(loads);
+            this.loadEpsilon = loadEpsilon;
+            this.ring = boundLoads(TokenRing.of(tokenToNode, settings.replicationFactor(), settings.replicationStrategy()));
+            this.partitioner = this.members.isEmpty() ? ring : settings.partitionStrategy().partitioner(ring, this.members);
+            this.downNodes = Set.copyOf(downNodes);
+            this.endpointVersions = endpointVersions;
+        }
+
+        // same ownership, other liveness or endpoint versions
+        private Snapshot(Snapshot base, long version, Set<Long> downNodes, Map<Long, EndpointVersion> endpointVersions) {
+            this.version = version;
+            this.tokenToNode = base.tokenToNode;
+            this.nodeToTokens = base.nodeToTokens;
+            this.members = base.members;
+            this.settings = base.settings;
+            this.loads = base.loads;
+            this.loadEpsilon = base.loadEpsilon;
+            this.ring = base.ring;
+            this.partitioner = base.partitioner;
+            this.ringView = base.ringView;
+            this.downNodes = Set.copyOf(downNodes);
+            this.endpointVersions = endpointVersions;
+        }
+
+        private TokenRing boundLoads(TokenRing ring) {
+            if (loadEpsilon <= 0 || ring.isEmpty()) {
+                return ring;
+            }
+
+            // vnodes added since the last measurement count as empty
+            long[] rangeLoads = new long[ring.size()];
+            for (int i = 0; i < ring.size(); i++) {
+                rangeLoads[i] = loads.getOrDefault(ring.tokenAt(i), 0L);
+            }
+            return ring.withBoundedLoads(rangeLoads, loadEpsilon);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public TokenRing ring() {
+            return ring;
+        }
+
+        // routes partitions, the ring itself unless another partition strategy is configured
+        public Partitioner partitioner() {
+            return partitioner;
+        }
+
+        public int replicationFactor() {
+            return settings.replicationFactor();
+        }
+
+        public PartitionStrategy partitionStrategy() {
+            return settings.partitionStrategy();
+        }
+
+        public List<Node> members() {
+            return members;
+        }
+
+        public double loadEpsilon() {
+            return loadEpsilon;
+        }
+
+        public Map<Token, Long> loads() {
+            return loads;
+        }
+
+        public boolean isDown(Node node) {
+            return downNodes.contains(node.id());
+        }
+
+        public Set<Long> downNodes() {
+            return downNodes;
+        }
+
+        // null if no gossiped change of the endpoint was applied
+        public EndpointVersion endpointVersion(Node node) {
+            return endpointVersions.get(node.id());
+        }
+
+        public Map<Token, Node> tokenToNode() {
+            return tokenToNode;
+        }
+
+        public Map<Node, List<Token>> nodeToTokens() {
+            return nodeToTokens;
+        }
+
+        public NavigableMap<Integer, Token> ringView() {
+            NavigableMap<Integer, Token> view = ringView;
+            if (view == null) {
+                NavigableMap<Integer, Token> map = new TreeMap<>();
+                for (int i = 0; i < ring.size(); i++) {
+                    map.put(ring.partitionAt(i), ring.tokenAt(i));
+                }
+                view = Collections.unmodifiableNavigableMap(map);
+                ringView = view;
+            }
+
+            return view;
+        }
+
+        Snapshot withTokens(Node node, List<Token> tokens) {
+            return withTokens(Map.of(node, tokens));
+        }
+
+        Snapshot withTokens(Map<Node, List<Token>> tokens) {
+            Map<Token, Node> newTokenToNode = new HashMap<>(tokenToNode);
+            Map<Node, List<Token>> newNodeToTokens = new HashMap<>(nodeToTokens);
+            List<Node> newMembers = new ArrayList<>(members);
+            tokens.forEach((node, nodeTokens) -> {
+                List<Token> previous = newNodeToTokens.get(node);
+                if (previous != null) {
+                    previous.forEach(newTokenToNode::remove);
+                } else {
+                    newMembers.add(node);
+                }
+                List<Token> sortedTokens = nodeTokens.stream().sorted().toList();
+                sortedTokens.forEach(token -> newTokenToNode.put(token, node));
+                newNodeToTokens.put(node, sortedTokens);
+            });
+
+            return new Snapshot(version + 1, newTokenToNode, newNodeToTokens, newMembers, settings, unchangedRangeLoads(newTokenToNode), loadEpsilon, downNodes, endpointVersions);
+        }
+
+        Snapshot withoutEndpoint(Node node) {
+            List<Token> tokens = nodeToTokens.get(node);
+            if (tokens == null) {
+                return this;
+            }
+
+            Map<Token, Node> newTokenToNode = new HashMap<>(tokenToNode);
+            Map<Node, List<Token>> newNodeToTokens = new HashMap<>(nodeToTokens);
+            List<Node> newMembers = new ArrayList<>(members);
+            tokens.forEach(newTokenToNode::remove);
+            newNodeToTokens.remove(node);
+            newMembers.remove(node);
+            Set<Long> newDownNodes = new HashSet<>(downNodes);
+            newDownNodes.remove(node.id());
+
+            return new Snapshot(version + 1, newTokenToNode, newNodeToTokens, newMembers, settings, unchangedRangeLoads(newTokenToNode), loadEpsilon, newDownNodes, endpointVersions);
+        }
+
+        // a load measures the range ending at its token, it goes stale once the token before it changes
+        // such ranges count as empty until the next measurement
+        private Map<Token, Long> unchangedRangeLoads(Map<Token, Node> newTokenToNode) {
+            if (loads.isEmpty() || newTokenToNode.isEmpty()) {
+                return Map.of();
+            }
+
+            int[] newPartitions = newTokenToNode.keySet().stream().mapToInt(Token::partition).sorted().toArray();
+            Map<Token, Long> unchanged = new HashMap<>();
+            loads.forEach((token, load) -> {
+                if (newTokenToNode.containsKey(token)) {
+                    int oldIndex = ring.indexOf(token.partition());
+                    int newIndex = Arrays.binarySearch(newPartitions, token.partition());
+                    int oldPrevious = ring.partitionAt((oldIndex + ring.size() - 1) % ring.size());
+                    int newPrevious = newPartitions[(newIndex + newPartitions.length - 1) % newPartitions.length];
+                    if (oldPrevious == newPrevious) {
+                        unchanged.put(token, load);
+                    }
+                }
+            });
+            return unchanged;
+        }
+
+        Snapshot withLoads(Map<Token, Long> newLoads, double newLoadEpsilon) {
+            if (newLoadEpsilon < 0) {
+                throw new IllegalArgumentException("Epsilon must not be negative: " + newLoadEpsilon);
+            }
+
+            return new Snapshot(version + 1, tokenToNode, nodeToTokens, members, settings, Map.copyOf(newLoads), newLoadEpsilon, downNodes, endpointVersions);
+        }
+
+        Snapshot withDown(Node node, boolean down) {
+            if (downNodes.contains(node.id()) == down) {
+                return this;
+            }
+
+            Set<Long> newDownNodes = new HashSet<>(downNodes);
+            if (down) {
+                newDownNodes.add(node.id());
+            } else {
+                newDownNodes.remove(node.id());
+            }
+            return new Snapshot(this, version + 1, newDownNodes, endpointVersions);
+        }
+
+        Snapshot withTokens(Node node, List<Token> tokens, EndpointVersion endpointVersion) {
+            if (!endpointVersion.newerThan(endpointVersions.get(node.id()))) {
+                return this;
+            }
+
+            return withTokens(node, tokens).withEndpointVersion(node, endpointVersion, version);
+        }
+
+        Snapshot withoutEndpoint(Node node, EndpointVersion endpointVersion) {
+            if (!endpointVersion.newerThan(endpointVersions.get(node.id()))) {
+                return this;
+            }
+
+            return withoutEndpoint(node).withEndpointVersion(node, endpointVersion, version);
+        }
+
+        // a change that left the ownership as it was still publishes a new version
+        private Snapshot withEndpointVersion(Node node, EndpointVersion endpointVersion, long baseVersion) {
+            Map<Long, EndpointVersion> newEndpointVersions = new HashMap<>(endpointVersions);
+            newEndpointVersions.put(node.id(), endpointVersion);
+            return new Snapshot(this, Math.max(version, baseVersion + 1), downNodes, Map.copyOf(newEndpointVersions));
+        }
     }
 }
@@ -0,0 +1,327 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable snapshot of the token ring.
+ * Partitions are kept in a sorted {@code int[]} next to a parallel array of owner indices,
+ * so a lookup is a single allocation-free binary search.
+ * Replica sets are precomputed per vnode by a {@link ReplicationStrategy}, a replica lookup costs the same search.
+ * In bounded-load mode the owner of a vnode is the node its range spilled to, see {@link #withBoundedLoads}.
+ * Topology changes build a new snapshot instead of mutating this one.
+ */
+public final class TokenRing implements Partitioner {
+
+    private static final TokenRing EMPTY = new TokenRing(new int[0], new Token[0], new int[0], new Node[0], new int[0], 0, new SimpleStrategy());
+
+    // sorted partitions of every vnode
+    private final int[] partitions;
+    // tokens[i] is the vnode placed at partitions[i]
+    private final Token[] tokens;
+    // owners[i] is an index into nodes
+    private final int[] owners;
+    private final Node[] nodes;
+    // owner indices of the replicas of vnode i at [i * replicas, (i + 1) * replicas), primary first
+    private final int[] replicaOwners;
+    private final int replicas;
+    private final ReplicationStrategy strategy;
+
+    private TokenRing(int[] partitions,
+                      Token[] tokens,
+                      int[] owners,
+                      Node[] nodes,
+                      int[] replicaOwners,
+                      int replicas,
+                      ReplicationStrategy strategy
+    ) {
+        this.partitions = partitions;
+        this.tokens = tokens;
+        this.owners = owners;
+        this.nodes = nodes;
+        this.replicaOwners = replicaOwners;
+        this.replicas = replicas;
+        this.strategy = strategy;
+    }
+
+    public static TokenRing empty() {
+        return EMPTY;
+    }
+
+    // single replica per vnode
+    public static TokenRing of(Map<Token, Node> tokenToNode) {
+        return of(tokenToNode, 1, new SimpleStrategy());
+    }
+
+    public static TokenRing of(Map<Token, Node> tokenToNode, int replicationFactor, ReplicationStrategy strategy) {
+        if (replicationFactor <= 0) {
+            throw new IllegalArgumentException("Replication factor must be positive: " + replicationFactor);
+        }
+        if (tokenToNode.isEmpty()) {
+            return EMPTY;
+        }
+
+        Token[] tokens = tokenToNode.keySet().toArray(new Token[0]);
+        Arrays.sort(tokens);
+
+        int[] partitions = new int[tokens.length];
+        int[] owners = new int[tokens.length];
+        Map<Node, Integer> nodeIndex = new IdentityHashMap<>();
+        for (int i = 0; i < tokens.length; i++) {
+            Node node = tokenToNode.get(tokens[i]);
+            Integer index = nodeIndex.get(node);
+            if (index == null) {
+                index = nodeIndex.size();
+                nodeIndex.put(node, index);
+            }
+            partitions[i] = tokens[i].partition();
+            owners[i] = index;
+        }
+
+        Node[] nodes = new Node[nodeIndex.size()];
+        nodeIndex.forEach((node, index) -> nodes[index] = node);
+
+        // a node holds at most one replica of a range
+        return place(partitions, tokens, owners, nodes, Math.min(replicationFactor, nodes.length), strategy);
+    }
+
+    private static TokenRing place(int[] partitions, Token[] tokens, int[] owners, Node[] nodes, int replicas, ReplicationStrategy strategy) {
+        TokenRing ring = new TokenRing(partitions, tokens, owners, nodes, owners, 1, strategy);
+        if (replicas == 1) {
+            return ring;
+        }
+
+        int[] replicaOwners = new int[tokens.length * replicas];
+        for (int i = 0; i < tokens.length; i++) {
+            int[] placement = strategy.replicas(ring, i, replicas);
+            if (placement.length != replicas || placement[0] != owners[i]) {
+                throw new IllegalStateException(strategy.getClass().getSimpleName() + " must place " + replicas + " replicas, primary first");
+            }
+            System.arraycopy(placement, 0, replicaOwners, i * replicas, replicas);
+        }
+
+        return new TokenRing(partitions, tokens, owners, nodes, replicaOwners, replicas, strategy);
+    }
+
+    /**
+     * Consistent hashing with bounded loads, at range granularity.
+     * Every node may hold up to {@code (1 + epsilon)} times the mean load; walking the ring in order,
+     * a range that would overflow its owner spills clockwise to the next vnode whose node has spare capacity.
+     * Vnodes of full nodes are skipped through union-find style pointers, so the walk stays close to {@code O(V)}.
+     * A range heavier than any spare capacity goes to the least loaded node.
+     * The result only depends on the tokens and the loads, so every node computes the same owners.
+     */
+    public TokenRing withBoundedLoads(long[] rangeLoads, double epsilon) {
+        if (rangeLoads.length != partitions.length) {
+            throw new IllegalArgumentException("Expected " + partitions.length + " range loads, got " + rangeLoads.length);
+        }
+        if (epsilon <= 0) {
+            throw new IllegalArgumentException("Epsilon must be positive: " + epsilon);
+        }
+        if (partitions.length == 0) {
+            return this;
+        }
+
+        int vnodes = partitions.length;
+        long total = 0;
+        long smallest = Long.MAX_VALUE;
+        for (long load : rangeLoads) {
+            total += load;
+            if (load > 0) {
+                smallest = Math.min(smallest, load);
+            }
+        }
+        long capacity = (long) Math.ceil((1 + epsilon) * total / nodes.length);
+
+        // vnodes of every node, nodeVnodes[nodeStart[node]..nodeStart[node + 1]) in ring order
+        int[] nodeStart = new int[nodes.length + 1];
+        for (int owner : owners) {
+            nodeStart[owner + 1]++;
+        }
+        for (int node = 0; node < nodes.length; node++) {
+            nodeStart[node + 1] += nodeStart[node];
+        }
+        int[] nodeVnodes = new int[vnodes];
+        int[] fill = Arrays.copyOf(nodeStart, nodes.length);
+        for (int index = 0; index < vnodes; index++) {
+            nodeVnodes[fill[owners[index]]++] = index;
+        }
+
+        // skip[index] == index while the node of the vnode has spare capacity, otherwise points clockwise past it
+        int[] skip = new int[vnodes];
+        for (int index = 0; index < vnodes; index++) {
+            skip[index] = index;
+        }
+        boolean[] full = new boolean[nodes.length];
+        int skipped = 0;
+
+        long[] nodeLoads = new long[nodes.length];
+        int[] bounded = new int[vnodes];
+        for (int index = 0; index < vnodes; index++) {
+            long load = rangeLoads[index];
+            int owner = -1;
+            // at most one lap, vnodes of full nodes cost nothing
+            int position = index;
+            int walked = 0;
+            while (skipped < vnodes && walked < vnodes) {
+                int next = find(skip, position);
+                walked += Math.floorMod(next - position, vnodes);
+                if (walked >= vnodes) {
+                    break;
+                }
+                if (nodeLoads[owners[next]] + load <= capacity) {
+                    owner = owners[next];
+                    break;
+                }
+                position = (next + 1) % vnodes;
+                walked++;
+            }
+            if (owner < 0) {
+                owner = 0;
+                for (int node = 1; node < nodes.length; node++) {
+                    if (nodeLoads[node] < nodeLoads[owner]) {
+                        owner = node;
+                    }
+                }
+            }
+
+            bounded[index] = owner;
+            nodeLoads[owner] += load;
+            // loads only grow, so a node that can not take the smallest range stays full
+            if (!full[owner] && capacity - nodeLoads[owner] < smallest) {
+                full[owner] = true;
+                for (int slot = nodeStart[owner]; slot < nodeStart[owner + 1]; slot++) {
+                    int vnode = nodeVnodes[slot];
+                    skip[vnode] = (vnode + 1) % vnodes;
+                    skipped++;
+                }
+            }
+        }
+
+        return place(partitions, tokens, bounded, nodes, replicas, strategy);
+    }
+
+    // first vnode at or clockwise after the index that is not skipped, compressing the path on the way back
+    private static int find(int[] skip, int index) {
+        int root = index;
+        while (skip[root] != root) {
+            root = skip[root];
+        }
+        while (skip[index] != root) {
+            int next = skip[index];
+            skip[index] = root;
+            index = next;
+        }
+        return root;
+    }
+
+    // clockwise ownership
+    // index of the first vnode at or after the partition, wrapping around to the first vnode
+    public int indexOf(int partition) {
+        if (partitions.length == 0) {
+            throw new NoSuchElementException("Token ring is empty");
+        }
+
+        int low = 0;
+        int high = partitions.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midPartition = partitions[mid];
+            if (midPartition < partition) {
+                low = mid + 1;
+            } else if (midPartition > partition) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return low == partitions.length ? 0 : low; // wrap-around
+    }
+
+    public Token getToken(int partition) {
+        return tokens[indexOf(partition)];
+    }
+
+    @Override
+    public Node getNode(int partition) {
+        return nodes[owners[indexOf(partition)]];
+    }
+
+    // owner index of the partition, stable for the lifetime of this snapshot
+    @Override
+    public int ownerIndexOf(int partition) {
+        return owners[indexOf(partition)];
+    }
+
+    // replicas per vnode, the replication factor capped by the number of nodes
+    @Override
+    public int replicas() {
+        return replicas;
+    }
+
+    // owner index of the n-th replica of the vnode at the index, the primary is replica 0
+    public int replicaOwnerIndex(int index, int replica) {
+        return replicaOwners[index * replicas + replica];
+    }
+
+    @Override
+    public void replicaOwnerIndices(int partition, int[] sink) {
+        System.arraycopy(replicaOwners, indexOf(partition) * replicas, sink, 0, replicas);
+    }
+
+    // replicas of the partition, primary first
+    @Override
+    public List<Node> getReplicas(int partition) {
+        int index = indexOf(partition);
+        Node[] replicaNodes = new Node[replicas];
+        for (int replica = 0; replica < replicas; replica++) {
+            replicaNodes[replica] = nodes[replicaOwners[index * replicas + replica]];
+        }
+
+        return List.of(replicaNodes);
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    @Override
+    public Node node(int ownerIndex) {
+        return nodes[ownerIndex];
+    }
+
+    // first partition owned by the vnode at the index, the vnode owns [rangeStart(index), partitionAt(index) + 1)
+    public int rangeStart(int index) {
+        int previous = index == 0 ? partitions.length - 1 : index - 1;
+        return partitions[previous] + 1;
+    }
+
+    public int size() {
+        return partitions.length;
+    }
+
+    public boolean isEmpty() {
+        return partitions.length == 0;
+    }
+
+    public int partitionAt(int index) {
+        return partitions[index];
+    }
+
+    public Token tokenAt(int index) {
+        return tokens[index];
+    }
+
+    public int ownerIndexAt(int index) {
+        return owners[index];
+    }
+
+    public Node nodeAt(int index) {
+        return nodes[owners[index]];
+    }
+}
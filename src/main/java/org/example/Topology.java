@@ -1,93 +1,405 @@
 package org.example;
 
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.ScanCursor;
+import org.example.gossip.GossipNetwork;
+import org.example.gossip.GossipScheduler;
+import org.example.gossip.Gossiper;
+import org.example.metrics.JoinEvent;
+import org.example.metrics.LeaveEvent;
+import org.example.metrics.Metrics;
+import org.example.stream.StreamScheduler;
+import org.example.stream.StreamSession;
+
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Membership of a cluster. Joins and decommissions stream the ranges that change hands, membership itself
+ * reaches the nodes through their {@link Gossiper}s, as versioned endpoint states applied to each node's {@link TokenMetadata}.
+ * Without a {@link GossipScheduler}, {@link #join} and {@link #decommission} run gossip rounds until the cluster converges;
+ * with one, rounds run in the background and the other members learn about the change a few intervals later.
+ * Every node has a {@link FailureDetector} fed by its gossip exchanges that marks silent nodes down in its token metadata;
+ * it is interpreted on the {@link GossipScheduler}, without one nodes are never convicted.
+ */
 public class Topology {
 
+    public static final int GOSSIP_FANOUT = 3;
+    public static final int MAX_GOSSIP_ROUNDS = 100;
+
     private final int vnodes;
+    private final int replicationFactor;
+    private final ReplicationStrategy replicationStrategy;
+    private final PartitionStrategy partitionStrategy;
+    private final TokenAllocator tokenAllocator;
+    private final StreamScheduler streamScheduler;
+    private final GossipNetwork gossipNetwork = new GossipNetwork();
+    private final Map<Long, Gossiper> gossipers = new HashMap<>();
+    private final Map<Long, FailureDetector> failureDetectors = new HashMap<>();
+    private final Map<Long, ScheduledFuture<?>> interpreters = new HashMap<>();
+    // null converges gossip before a membership change returns
+    private final GossipScheduler gossipScheduler;
+    private final long gossipIntervalMillis;
+    // generation of the next gossiper, a node joining again starts a newer one
+    private long generation;
     public final Map<Long, Node> nodes;
 
     public Topology() {
-        this.vnodes = 32;
-        this.nodes = new HashMap<>();
+        this(32);
     }
 
     public Topology(int vnodes) {
+        this(vnodes, new StreamScheduler());
+    }
+
+    public Topology(int vnodes, StreamScheduler streamScheduler) {
+        this(vnodes, 1, new SimpleStrategy(), streamScheduler);
+    }
+
+    public Topology(int vnodes, TokenAllocator tokenAllocator) {
+        this(vnodes, 1, new SimpleStrategy(), PartitionStrategy.RING, tokenAllocator, new StreamScheduler());
+    }
+
+    public Topology(int vnodes, int replicationFactor, ReplicationStrategy replicationStrategy) {
+        this(vnodes, replicationFactor, replicationStrategy, new StreamScheduler());
+    }
+
+    public Topology(int vnodes, int replicationFactor, ReplicationStrategy replicationStrategy, StreamScheduler streamScheduler) {
+        this(vnodes, replicationFactor, replicationStrategy, PartitionStrategy.RING, streamScheduler);
+    }
+
+    // vnodes still place tokens with non-ring strategies, the tokens just do not route
+    public Topology(int vnodes, PartitionStrategy partitionStrategy, StreamScheduler streamScheduler) {
+        this(vnodes, 1, new SimpleStrategy(), partitionStrategy, streamScheduler);
+    }
+
+    public Topology(int vnodes,
+                    int replicationFactor,
+                    ReplicationStrategy replicationStrategy,
+                    PartitionStrategy partitionStrategy,
+                    StreamScheduler streamScheduler
+    ) {
+        this(vnodes, replicationFactor, replicationStrategy, partitionStrategy, new RandomTokenAllocator(), streamScheduler);
+    }
+
+    public Topology(int vnodes,
+                    int replicationFactor,
+                    ReplicationStrategy replicationStrategy,
+                    PartitionStrategy partitionStrategy,
+                    TokenAllocator tokenAllocator,
+                    StreamScheduler streamScheduler
+    ) {
+        this(vnodes, replicationFactor, replicationStrategy, partitionStrategy, tokenAllocator, streamScheduler, null, 0);
+    }
+
+    public Topology(int vnodes,
+                    int replicationFactor,
+                    ReplicationStrategy replicationStrategy,
+                    PartitionStrategy partitionStrategy,
+                    TokenAllocator tokenAllocator,
+                    StreamScheduler streamScheduler,
+                    GossipScheduler gossipScheduler,
+                    long gossipIntervalMillis
+    ) {
+        if (replicationFactor <= 0) {
+            throw new IllegalArgumentException("Replication factor must be positive: " + replicationFactor);
+        }
         this.vnodes = vnodes;
+        this.replicationFactor = replicationFactor;
+        this.replicationStrategy = replicationStrategy;
+        this.partitionStrategy = partitionStrategy;
+        this.tokenAllocator = tokenAllocator;
+        this.streamScheduler = streamScheduler;
+        this.gossipScheduler = gossipScheduler;
+        this.gossipIntervalMillis = gossipIntervalMillis;
         this.nodes = new HashMap<>();
     }
 
-    public void join(Node node) {
-        NavigableMap<Integer, Token> ring;
-        Map<Token, Node> tokenToNode;
-        Map<Node, List<Token>> nodeToTokens;
+    public int getReplicationFactor() {
+        return replicationFactor;
+    }
+
+    public StreamScheduler getStreamScheduler() {
+        return streamScheduler;
+    }
+
+    public GossipNetwork getGossipNetwork() {
+        return gossipNetwork;
+    }
+
+    public FailureDetector getFailureDetector(Node node) {
+        return failureDetectors.get(node.id());
+    }
 
+    /**
+     * Streams the ranges the node becomes a replica of, then announces it STABLE through gossip.
+     * The other members add its tokens when the state reaches them, not when this method tells them to.
+     */
+    public void join(Node node) {
+        JoinEvent event = new JoinEvent();
+        event.begin();
+        event.node = node.nodeName();
+        event.vnodes = vnodes;
         if (nodes.isEmpty()) {
-            ring = new TreeMap<>();
-            tokenToNode = new HashMap<>();
-            nodeToTokens = new HashMap<>();
-            addTokens(node, ring, tokenToNode, nodeToTokens);
+            List<Token> tokens = addTokens(node, new TokenMetadata(replicationFactor, replicationStrategy, partitionStrategy));
+            publish(newGossiper(node), NodeStatus.STABLE, tokens);
         } else {
             // Select the seed node randomly
             List<Long> nodeIds = new ArrayList<>(nodes.keySet());
             Collections.shuffle(nodeIds);
             Node seed = nodes.get(nodeIds.get(0));
 
-            // Copy the existing metadata
-            TokenMetadata tokenMetadata = seed.getTokenMetadata();
-            ring = tokenMetadata.getRing();
-            tokenToNode = tokenMetadata.getTokenToNode();
-            nodeToTokens = tokenMetadata.getNodeToTokens();
-            List<Token> tokens = addTokens(node, ring, tokenToNode, nodeToTokens);
+            // Share the existing metadata, the new node's updates diverge from the seed
+            TokenMetadata.Snapshot current = seed.getTokenMetadata().snapshot();
+            TokenMetadata tokenMetadata = seed.getTokenMetadata().copy();
+            List<Token> tokens = addTokens(node, tokenMetadata);
+            Gossiper gossiper = newGossiper(node);
+            gossiper.addSeed(gossipers.get(seed.id()));
+            publish(gossiper, NodeStatus.BOOTSTRAPING, tokens);
 
-            // A new node tries to join the cluster
-            final Gossip aNewNodeTriesToJoin = new Gossip(node, NodeStatus.BOOTSTRAPING, tokens);
-            nodes.values().forEach(n -> n.mergeGossip(aNewNodeTriesToJoin));
+            // Donors stream the ranges the new node becomes a replica of in parallel
+            StreamSession session = streamScheduler.newSession("bootstrap of " + node.nodeName());
+            TokenMetadata.Snapshot pending = tokenMetadata.snapshot();
+            rebalance(current.partitioner(), pending.partitioner(), pending.ring(), session);
+            session.await();
+            Metrics.RebalanceSnapshot streamed = session.summary();
+            event.ranges = streamed.ranges();
+            event.entities = streamed.entities();
+            event.bytes = streamed.bytes();
 
-            // Add node to cluster after all nodes accept changes
-            final Gossip aNewNodeCompletesToJoin  = new Gossip(node, NodeStatus.STABLE, tokens);
-            nodes.values().forEach(n -> n.mergeGossip(aNewNodeCompletesToJoin));
+            // Other nodes route to the new node once its STABLE state reaches them
+            publish(gossiper, NodeStatus.STABLE, tokens);
         }
         nodes.put(node.id(), node);
+        event.commit();
     }
 
+    /**
+     * Announces the node LEAVING, lets the new replicas pull its ranges, then announces it REMOVED
+     * and hands that last state to a remaining member before leaving the gossip network.
+     */
     public void decommission(Node node) {
         if (!nodes.containsKey(node.id())) {
             return;
         }
 
-        List<Node> newTopology = nodes.values().stream()
-            .filter(n -> node.id() != n.id())
-            .toList();
-        TokenMetadata tokenMetadata = node.getTokenMetadata();
-        Map<Node, List<Token>> nodeToTokens = tokenMetadata.getNodeToTokens();
-        List<Token> heldTokens = nodeToTokens.get(node);
-        final Gossip aNodeRequestsToLeave = new Gossip(node, NodeStatus.LEAVING, heldTokens);
-        newTopology.forEach(n -> n.mergeGossip(aNodeRequestsToLeave));
+        TokenMetadata.Snapshot current = node.getTokenMetadata().snapshot();
+        List<Token> heldTokens = current.nodeToTokens().get(node);
+        Gossiper gossiper = gossipers.remove(node.id());
+        LeaveEvent event = new LeaveEvent();
+        event.begin();
+        event.node = node.nodeName();
+        publish(gossiper, NodeStatus.LEAVING, heldTokens);
+
+        // New replicas pull the ranges of the leaving node in parallel
+        StreamSession session = streamScheduler.newSession("decommission of " + node.nodeName());
+        TokenMetadata.Snapshot remaining = current.withoutEndpoint(node);
+        if (!remaining.members().isEmpty()) {
+            rebalance(current.partitioner(), remaining.partitioner(), current.ring(), session);
+        }
+        session.await();
+        Metrics.RebalanceSnapshot streamed = session.summary();
+        event.ranges = streamed.ranges();
+        event.entities = streamed.entities();
+        event.bytes = streamed.bytes();
 
-        final Gossip aNodeLeaves = new Gossip(node, NodeStatus.REMOVED, heldTokens);
-        newTopology.forEach(n -> n.mergeGossip(aNodeLeaves));
         nodes.remove(node.id());
+        failureDetectors.remove(node.id());
+        ScheduledFuture<?> interpreter = interpreters.remove(node.id());
+        if (interpreter != null) {
+            interpreter.cancel(false);
+        }
+        for (FailureDetector failureDetector : failureDetectors.values()) {
+            failureDetector.remove(node);
+        }
+        gossiper.publish(NodeStatus.REMOVED, heldTokens);
+        if (gossipers.isEmpty()) {
+            gossipNetwork.unregister(node.id());
+        } else {
+            List<Long> nodeIds = new ArrayList<>(gossipers.keySet());
+            Collections.shuffle(nodeIds);
+            gossiper.handOff(gossipers.get(nodeIds.get(0)));
+            converge();
+        }
+        event.commit();
     }
 
-    private List<Token> addTokens(Node node,
-                                  NavigableMap<Integer, Token> ring,
-                                  Map<Token, Node> tokenToNode,
-                                  Map<Node, List<Token>> nodeToTokens
-    ) {
-        List<Token> tokens = new ArrayList<>(vnodes);
+    /**
+     * Bounded-load mode: measures the keys of every vnode range and caps every node at {@code (1 + epsilon)} times the mean,
+     * ranges over the cap spill clockwise, see {@link TokenRing#withBoundedLoads}.
+     * Ranges that change hands are streamed before the new ownership is published.
+     */
+    public void balanceLoads(double epsilon) {
+        if (partitionStrategy != PartitionStrategy.RING) {
+            throw new IllegalStateException("Bounded loads need the token ring, not " + partitionStrategy);
+        }
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        TokenMetadata.Snapshot snapshot = nodes.values().iterator().next().getTokenMetadata().snapshot();
+        TokenRing ring = snapshot.ring();
+        Map<Token, Long> loads = measureLoads(ring);
+        TokenRing balancedRing = snapshot.withLoads(loads, epsilon).ring();
+
+        // Current owners push the ranges that spill
+        StreamSession session = streamScheduler.newSession("load balancing");
+        rebalance(ring, balancedRing, ring, session);
+        session.await();
+
+        nodes.values().forEach(n -> n.getTokenMetadata().updateLoads(loads, epsilon));
+    }
+
+    /**
+     * Anti-entropy repair: every replica of every vnode range is compared with the primary through their Merkle trees
+     * and receives the ranges where they differ. Returns the number of slices streamed.
+     * The primary wins even where it is stale, and entities deleted on it survive on the replicas, see {@link AntiEntropyRepair}.
+     */
+    public int repair() {
+        if (nodes.isEmpty()) {
+            return 0;
+        }
+
+        TokenRing ring = nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+        StreamSession session = streamScheduler.newSession("repair");
+        int slices = 0;
+        for (int i = 0; i < ring.size(); i++) {
+            Node primary = ring.nodeAt(i);
+            for (int replica = 1; replica < ring.replicas(); replica++) {
+                Node target = ring.node(ring.replicaOwnerIndex(i, replica));
+                slices += AntiEntropyRepair.repair(primary, target, ring.rangeStart(i), ring.partitionAt(i) + 1, session);
+            }
+        }
+        session.await();
+
+        return slices;
+    }
+
+    /**
+     * Keys and bytes owned by every vnode, in ring order. Every range is scanned on its current owner,
+     * so this is computed on demand rather than kept up to date on every write.
+     */
+    public List<VnodeLoad> vnodeLoads() {
+        if (nodes.isEmpty()) {
+            return List.of();
+        }
+
+        TokenRing ring = nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+        List<VnodeLoad> loads = new ArrayList<>(ring.size());
+        for (int i = 0; i < ring.size(); i++) {
+            ScanCursor cursor = scanRange(ring, i);
+            long keys = 0;
+            long bytes = 0;
+            while (cursor.hasNext()) {
+                bytes += StreamScheduler.sizeOf(cursor.next());
+                keys++;
+            }
+            loads.add(new VnodeLoad(ring.tokenAt(i), ring.nodeAt(i).nodeName(), keys, bytes));
+        }
+
+        return loads;
+    }
+
+    public record VnodeLoad(Token token, String nodeName, long keys, long bytes) {
+    }
+
+    // keys per vnode range, counted on the current owner
+    private static Map<Token, Long> measureLoads(TokenRing ring) {
+        Map<Token, Long> loads = new HashMap<>();
+        for (int i = 0; i < ring.size(); i++) {
+            ScanCursor cursor = scanRange(ring, i);
+            long keys = 0;
+            while (cursor.hasNext()) {
+                cursor.next();
+                keys++;
+            }
+            loads.put(ring.tokenAt(i), keys);
+        }
+
+        return loads;
+    }
+
+    private static ScanCursor scanRange(TokenRing ring, int index) {
+        DbAccess.ScanAccess scan = new DbAccess.ScanAccess(ring.rangeStart(index), ring.partitionAt(index) + 1);
+        Result result = ring.nodeAt(index).process(scan);
+        if (!(result instanceof Result.Ok<?> ok) || !(ok.value() instanceof ScanCursor cursor)) {
+            throw new DatabaseOperationFailedException("Failed to measure the load of " + ring.tokenAt(index));
+        }
+
+        return cursor;
+    }
+
+    // streams every range whose replica set differs between the partitioners, the finer ring holds the vnodes of both
+    private static void rebalance(Partitioner from, Partitioner to, TokenRing finer, StreamSession session) {
+        if (!(from instanceof TokenRing) || !(to instanceof TokenRing)) {
+            rebalancePartitions(from, to, session);
+            return;
+        }
+
+        for (int index = 0; index < finer.size(); index++) {
+            int partition = finer.partitionAt(index);
+            List<Node> current = from.getReplicas(partition);
+            List<Node> next = to.getReplicas(partition);
+            for (Node target : next) {
+                if (!current.contains(target)) {
+                    session.submit(sourceOf(current, next), target, finer.rangeStart(index), partition + 1);
+                }
+            }
+        }
+    }
+
+    // without token ranges, every source is scanned once and each moving entity is routed to its new owner
+    private static void rebalancePartitions(Partitioner from, Partitioner to, StreamSession session) {
+        for (int sourceIndex = 0; sourceIndex < from.nodeCount(); sourceIndex++) {
+            Node source = from.node(sourceIndex);
+            session.submit(source, 0, 0, partition -> from.getNode(partition) == source ? to.getNode(partition) : null);
+        }
+    }
+
+    // a replica losing the range hands it off, otherwise the primary copies it
+    private static Node sourceOf(List<Node> current, List<Node> next) {
+        for (Node node : current) {
+            if (!next.contains(node)) {
+                return node;
+            }
+        }
+
+        return current.get(0);
+    }
+
+    private Gossiper newGossiper(Node node) {
+        FailureDetector failureDetector = new FailureDetector(FailureDetector.tokenMetadataListener(node.getTokenMetadata()));
+        Gossiper gossiper = new Gossiper(node, gossipNetwork, GOSSIP_FANOUT, ++generation, Gossiper.tokenMetadataListener(node), failureDetector);
+        gossipers.put(node.id(), gossiper);
+        failureDetectors.put(node.id(), failureDetector);
+        if (gossipScheduler != null) {
+            gossipScheduler.start(gossiper, gossipIntervalMillis);
+            interpreters.put(node.id(), gossipScheduler.start(failureDetector, gossipIntervalMillis));
+        }
+
+        return gossiper;
+    }
+
+    private void publish(Gossiper gossiper, NodeStatus status, List<Token> tokens) {
+        gossiper.publish(status, tokens);
+        converge();
+    }
+
+    // without a scheduler gossip runs here, in deterministic rounds until every member holds the newest states
+    private void converge() {
+        if (gossipScheduler == null) {
+            gossipNetwork.runUntilConverged(ThreadLocalRandom.current().nextLong(), MAX_GOSSIP_ROUNDS);
+        }
+    }
+
+    private List<Token> addTokens(Node node, TokenMetadata tokenMetadata) {
         // Add new virtual nodes
-        for (int i = 0; i < vnodes; i++) {
-            int partition = HashGenerator.hash(node.id() << 4 + i);
-            Token token = new Token(partition, "murmur3");
-            ring.put(partition, token);
-            tokenToNode.put(token, node);
-            tokens.add(token);
-        }
-        nodeToTokens.put(node, tokens);
-        TokenMetadata newTokenMetadata = new TokenMetadata(ring, tokenToNode, nodeToTokens);
+        List<Token> tokens = tokenAllocator.allocate(tokenMetadata.snapshot(), node, vnodes);
+        tokenMetadata.updateNormalToken(node, tokens);
         // Renewed metadata applies to a new node only
-        node.updateTokenMetadata(newTokenMetadata);
+        node.updateTokenMetadata(tokenMetadata);
 
         return tokens;
     }
@@ -4,4 +4,8 @@ public class DatabaseOperationFailedException extends RuntimeException {
     public DatabaseOperationFailedException(String message) {
         super(message);
     }
+
+    public DatabaseOperationFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -1,23 +1,45 @@
 package org.example.db;
 
+import org.example.HashGenerator;
+
 public sealed abstract class DbAccess {
 
     public abstract Method getMethod();
 
-    public static final class PutAccess extends DbAccess {
+    // single-key accesses carry the partition of their key, hashed once by whoever builds them
+    public abstract static sealed class KeyAccess extends DbAccess permits PutAccess, GetAccess, DeleteAccess {
 
         private final long key;
-        private final String value;
+        private final int partition;
 
-        public PutAccess(long key, String value) {
+        // the partition must be HashGenerator.hash(key)
+        private KeyAccess(long key, int partition) {
             this.key = key;
-            this.value = value;
+            this.partition = partition;
         }
 
         public long getKey() {
             return key;
         }
 
+        public int getPartition() {
+            return partition;
+        }
+    }
+
+    public static final class PutAccess extends KeyAccess {
+
+        private final String value;
+
+        public PutAccess(long key, String value) {
+            this(key, HashGenerator.hash(key), value);
+        }
+
+        public PutAccess(long key, int partition, String value) {
+            super(key, partition);
+            this.value = value;
+        }
+
         public String getValue() {
             return value;
         }
@@ -28,16 +50,14 @@ public sealed abstract class DbAccess {
         }
     }
 
-    public static final class GetAccess extends DbAccess {
-
-        private final long key;
+    public static final class GetAccess extends KeyAccess {
 
         public GetAccess(long key) {
-            this.key = key;
+            this(key, HashGenerator.hash(key));
         }
 
-        public long getKey() {
-            return key;
+        public GetAccess(long key, int partition) {
+            super(key, partition);
         }
 
         @Override
@@ -46,15 +66,14 @@ public sealed abstract class DbAccess {
         }
     }
 
-    public static final class DeleteAccess extends DbAccess {
-        private final long key;
+    public static final class DeleteAccess extends KeyAccess {
 
         public DeleteAccess(long key) {
-            this.key = key;
+            this(key, HashGenerator.hash(key));
         }
 
-        public long getKey() {
-            return key;
+        public DeleteAccess(long key, int partition) {
+            super(key, partition);
         }
 
         @Override
@@ -66,10 +85,17 @@ public sealed abstract class DbAccess {
     public static final class ScanAccess extends DbAccess {
         private final int fromPartition;
         private final int toPartition;
+        private final int pageSize;
 
+        // [fromPartition, toPartition), fromPartition >= toPartition wraps around the ring
         public ScanAccess(int fromPartition, int toPartition) {
+            this(fromPartition, toPartition, ScanCursor.DEFAULT_PAGE_SIZE);
+        }
+
+        public ScanAccess(int fromPartition, int toPartition, int pageSize) {
             this.fromPartition = fromPartition;
             this.toPartition = toPartition;
+            this.pageSize = pageSize;
         }
 
         public int getFromPartition() {
@@ -80,6 +106,10 @@ public sealed abstract class DbAccess {
             return toPartition;
         }
 
+        public int getPageSize() {
+            return pageSize;
+        }
+
         @Override
         public Method getMethod() {
             return Method.SCAN;
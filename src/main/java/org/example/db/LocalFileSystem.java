@@ -1,37 +1,112 @@
 package org.example.db;
 
 import java.util.Map;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
-public class LocalFileSystem {
+/**
+ * In-memory storage of a single node.
+ * Entities are keyed by {@code (partition, id)}: the partition orders them on the ring,
+ * the full 64-bit id tells apart entities whose ids hash to the same partition.
+ * Point operations are lock-free; a scan never blocks writers and sees every write
+ * completed before it reached the partition, concurrent writes may or may not be included.
+ */
+public class LocalFileSystem implements Storage {
 
-    // partition key : entity
-    private final SortedMap<Integer, Entity> filesystem = new TreeMap<>();
+    private static final Entity[] EMPTY_BUCKET = new Entity[0];
 
-    public void write(int key, Entity value) {
-        filesystem.put(key, value);
+    // partition key : entities of that partition
+    // buckets are immutable and replaced on every change, almost all of them hold a single entity
+    private final ConcurrentNavigableMap<Integer, Entity[]> filesystem = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Entity write(int partition, Entity value) {
+        Entity[] previous = new Entity[1];
+        filesystem.compute(partition, (key, bucket) -> {
+            int index = indexOf(bucket, value.id());
+            if (index < 0) {
+                previous[0] = null;
+                return append(bucket, value);
+            }
+
+            previous[0] = bucket[index];
+            Entity[] replaced = bucket.clone();
+            replaced[index] = value;
+            return replaced;
+        });
+
+        return previous[0];
     }
 
-    public Entity read(int key) {
-        return filesystem.get(key);
+    @Override
+    public Entity read(int partition, long id) {
+        Entity[] bucket = filesystem.get(partition);
+        int index = indexOf(bucket, id);
+        return index < 0 ? null : bucket[index];
     }
 
-    public void delete(int key) {
-        filesystem.remove(key);
+    @Override
+    public Entity delete(int partition, long id) {
+        Entity[] removed = new Entity[1];
+        filesystem.computeIfPresent(partition, (key, bucket) -> {
+            int index = indexOf(bucket, id);
+            if (index < 0) {
+                removed[0] = null;
+                return bucket;
+            }
+
+            removed[0] = bucket[index];
+            return bucket.length == 1 ? null : remove(bucket, index);
+        });
+
+        return removed[0];
+    }
+
+    @Override
+    public long scanPage(int fromPartition, int toPartition, int limit, Visitor visitor) {
+        int added = 0;
+        for (Map.Entry<Integer, Entity[]> entry : filesystem.subMap(fromPartition, true, toPartition, true).entrySet()) {
+            for (Entity entity : entry.getValue()) {
+                visitor.visit(entry.getKey(), entity);
+            }
+            added += entry.getValue().length;
+            if (added >= limit) {
+                return entry.getKey() + 1L;
+            }
+        }
+
+        return toPartition + 1L;
     }
 
-    public Set<Map.Entry<Integer, Entity>> scan(int fromKey, int toKey) {
-        Set<Map.Entry<Integer, Entity>> entries = new HashSet<>();
-        if (fromKey < toKey) {
-            entries.addAll(filesystem.subMap(fromKey, toKey).entrySet());
-        } else { // wrap-around
-            entries.addAll(filesystem.subMap(toKey, Integer.MAX_VALUE).entrySet());
-            entries.addAll(filesystem.subMap(Integer.MIN_VALUE, fromKey).entrySet());
+    private static int indexOf(Entity[] bucket, long id) {
+        if (bucket == null) {
+            return -1;
         }
 
-        return entries;
+        for (int i = 0; i < bucket.length; i++) {
+            if (bucket[i].id() == id) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static Entity[] append(Entity[] bucket, Entity value) {
+        if (bucket == null) {
+            bucket = EMPTY_BUCKET;
+        }
+
+        Entity[] appended = new Entity[bucket.length + 1];
+        System.arraycopy(bucket, 0, appended, 0, bucket.length);
+        appended[bucket.length] = value;
+        return appended;
+    }
+
+    private static Entity[] remove(Entity[] bucket, int index) {
+        Entity[] removed = new Entity[bucket.length - 1];
+        System.arraycopy(bucket, 0, removed, 0, index);
+        System.arraycopy(bucket, index + 1, removed, index, bucket.length - index - 1);
+        return removed;
     }
 }
@@ -0,0 +1,474 @@
+package org.example.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage of a single node.
+ * Entities are keyed by {@code (partition, id)} like {@link LocalFileSystem}, appended to a log of memory-mapped
+ * segment files and located through an off-heap index, so values are bounded by disk rather than heap.
+ * Scans walk a {@link PartitionIndex}, a page costs a binary search plus its own entities; it is the only heap
+ * held per entity, about 12 bytes.
+ * Both indexes are rebuilt from the segments on startup; overwritten and deleted records are reclaimed
+ * by {@link #compact()}, one segment at a time.
+ *
+ * <pre>
+ * record: crc(4) type(1) partition(4) id(8) valueLength(4) value(valueLength)
+ * </pre>
+ * The crc covers everything after it, a record failing the check ends the segment (torn write).
+ */
+public class MappedLogStorage implements Storage {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    // share of garbage a segment needs before compaction rewrites it
+    public static final double DEFAULT_COMPACTION_RATIO = 0.5;
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final int HEADER_BYTES = 21;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // value length of a null value
+    private static final int NULL_VALUE = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final OffHeapIndex index = new OffHeapIndex(1 << 16);
+    private final PartitionIndex partitions = new PartitionIndex();
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment active;
+
+    public MappedLogStorage(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedLogStorage(Path directory, int segmentSize) {
+        if (segmentSize <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new DatabaseOperationFailedException("Error while opening storage in " + directory, e);
+        }
+    }
+
+    @Override
+    public Entity write(int partition, Entity value) {
+        byte[] bytes = value.value() == null ? null : value.value().getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            long location = append(PUT, partition, value.id(), bytes);
+            long previous = index.put(partition, value.id(), location);
+            if (previous == OffHeapIndex.MISSING) {
+                partitions.add(partition, value.id());
+                return null;
+            }
+
+            Entity replaced = readEntity(previous);
+            segment(previous).release(recordBytes(previous));
+            return replaced;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Entity read(int partition, long id) {
+        lock.readLock().lock();
+        try {
+            long location = index.get(partition, id);
+            return location == OffHeapIndex.MISSING ? null : readEntity(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // zero-copy view of the stored value bytes, null if the entity does not exist or has a null value
+    // the view stays valid across compactions
+    public ByteBuffer readValue(int partition, long id) {
+        lock.readLock().lock();
+        try {
+            long location = index.get(partition, id);
+            if (location == OffHeapIndex.MISSING) {
+                return null;
+            }
+
+            ByteBuffer buffer = segment(location).buffer;
+            int offset = offset(location);
+            int valueLength = buffer.getInt(offset + 17);
+            if (valueLength == NULL_VALUE) {
+                return null;
+            }
+
+            return buffer.slice(offset + HEADER_BYTES, valueLength).asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Entity delete(int partition, long id) {
+        lock.writeLock().lock();
+        try {
+            long previous = index.get(partition, id);
+            if (previous == OffHeapIndex.MISSING) {
+                return null;
+            }
+
+            Entity removed = readEntity(previous);
+            // the tombstone itself is garbage from the start, it only shadows older records until compaction
+            long tombstone = append(DELETE, partition, id, null);
+            segment(tombstone).release(HEADER_BYTES);
+            partitions.remove(partition, id);
+            index.remove(partition, id);
+            segment(previous).release(recordBytes(previous));
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long scanPage(int fromPartition, int toPartition, int limit, Visitor visitor) {
+        lock.readLock().lock();
+        try {
+            return partitions.scanPage(fromPartition, toPartition, limit, (partition, id) -> visitor.visit(partition, readEntity(index.get(partition, id))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // share of segment bytes held by overwritten or deleted records
+    public double garbageRatio() {
+        lock.readLock().lock();
+        try {
+            long written = 0;
+            long live = 0;
+            for (Segment segment : segments.values()) {
+                written += segment.writePosition;
+                live += segment.liveBytes;
+            }
+
+            return written == 0 ? 0 : 1 - live / (double) written;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int compact() {
+        return compact(DEFAULT_COMPACTION_RATIO);
+    }
+
+    /**
+     * Rewrites the live records of every segment holding at least {@code minGarbageRatio} of garbage into the active
+     * one and deletes it, oldest first; a full active segment is sealed and compacted too. Returns the number of
+     * segments compacted. Each segment takes the write lock on its own, so accesses go on between segments,
+     * and its live records are found by walking the segment itself, no heap is held per record.
+     * Tombstones are dropped from the oldest segment, elsewhere they still shadow records of older segments and are
+     * carried over, unless the entity was written again since; carried tombstones count as live bytes.
+     * A segment is deleted only once its live records are appended, so a crash midway never loses or resurrects one.
+     */
+    public int compact(double minGarbageRatio) {
+        if (minGarbageRatio < 0 || minGarbageRatio > 1) {
+            throw new IllegalArgumentException("Garbage ratio must be in [0, 1]: " + minGarbageRatio);
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            if (worthCompacting(active, minGarbageRatio)) {
+                // seal the active segment so its garbage is reclaimed too
+                active.force();
+                roll();
+            }
+            for (Segment segment : segments.headMap(active.id).values()) {
+                if (worthCompacting(segment, minGarbageRatio)) {
+                    candidates.add(segment.id);
+                }
+            }
+        } catch (IOException e) {
+            throw new DatabaseOperationFailedException("Error while compacting storage in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        int compacted = 0;
+        for (int id : candidates) {
+            lock.writeLock().lock();
+            try {
+                Segment segment = segments.get(id);
+                if (segment != null) {
+                    compact(segment);
+                    compacted++;
+                }
+            } catch (IOException e) {
+                throw new DatabaseOperationFailedException("Error while compacting segment " + id + " in " + directory, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        return compacted;
+    }
+
+    private static boolean worthCompacting(Segment segment, double minGarbageRatio) {
+        long garbage = segment.writePosition - segment.liveBytes;
+        return garbage > 0 && garbage >= minGarbageRatio * segment.writePosition;
+    }
+
+    // appends the live records of a sealed segment to the active one, then deletes it
+    private void compact(Segment segment) throws IOException {
+        boolean oldest = segments.firstKey() == segment.id;
+        ByteBuffer buffer = segment.buffer;
+        for (int offset = 0; offset < segment.writePosition; ) {
+            byte type = buffer.get(offset + 4);
+            int partition = buffer.getInt(offset + 5);
+            long id = buffer.getLong(offset + 9);
+            int valueLength = buffer.getInt(offset + 17);
+            long current = index.get(partition, id);
+            if (type == PUT && current == location(segment.id, offset)) {
+                byte[] bytes = null;
+                if (valueLength != NULL_VALUE) {
+                    bytes = new byte[valueLength];
+                    buffer.get(offset + HEADER_BYTES, bytes);
+                }
+                index.put(partition, id, append(PUT, partition, id, bytes));
+            } else if (type == DELETE && !oldest && current == OffHeapIndex.MISSING) {
+                append(DELETE, partition, id, null);
+            }
+            offset += HEADER_BYTES + Math.max(0, valueLength);
+        }
+
+        active.force();
+        segments.remove(segment.id);
+        segment.delete();
+    }
+
+    // flushes the active segment to disk
+    public void sync() {
+        lock.writeLock().lock();
+        try {
+            active.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            active.force();
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+            index.clear();
+            partitions.clear();
+        } catch (IOException e) {
+            throw new DatabaseOperationFailedException("Error while closing storage in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(file, id, Math.max(segmentSize, (int) Files.size(file)));
+            segments.put(id, segment);
+            replay(segment);
+        }
+        partitions.rebuild(index);
+
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    // rebuilds the index from the valid prefix of the segment
+    private void replay(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            byte type = buffer.get(offset + 4);
+            int valueLength = buffer.getInt(offset + 17);
+            int length = HEADER_BYTES + Math.max(0, valueLength);
+            if ((type != PUT && type != DELETE) || valueLength < NULL_VALUE || offset + length > buffer.capacity()) {
+                break;
+            }
+            if (buffer.getInt(offset) != crc(buffer, offset, length)) {
+                break; // torn write
+            }
+
+            int partition = buffer.getInt(offset + 5);
+            long id = buffer.getLong(offset + 9);
+            long previous;
+            if (type == PUT) {
+                segment.liveBytes += length;
+                previous = index.put(partition, id, location(segment.id, offset));
+            } else {
+                previous = index.remove(partition, id);
+            }
+            if (previous != OffHeapIndex.MISSING) {
+                segment(previous).release(recordBytes(previous));
+            }
+            offset += length;
+        }
+        segment.writePosition = offset;
+    }
+
+    private long append(byte type, int partition, long id, byte[] value) {
+        int length = HEADER_BYTES + (value == null ? 0 : value.length);
+        if (length > segmentSize) {
+            throw new DatabaseOperationFailedException("Record of " + length + " bytes exceeds the segment size " + segmentSize);
+        }
+        if (active.writePosition + length > active.buffer.capacity()) {
+            try {
+                active.force();
+                roll();
+            } catch (IOException e) {
+                throw new DatabaseOperationFailedException("Error while rolling segment in " + directory, e);
+            }
+        }
+
+        ByteBuffer buffer = active.buffer;
+        int offset = active.writePosition;
+        buffer.put(offset + 4, type);
+        buffer.putInt(offset + 5, partition);
+        buffer.putLong(offset + 9, id);
+        buffer.putInt(offset + 17, value == null ? NULL_VALUE : value.length);
+        if (value != null) {
+            buffer.put(offset + HEADER_BYTES, value);
+        }
+        buffer.putInt(offset, crc(buffer, offset, length));
+
+        active.writePosition += length;
+        active.liveBytes += length;
+        return location(active.id, offset);
+    }
+
+    private void roll() throws IOException {
+        int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Path file = directory.resolve(String.format("%010d%s", id, SEGMENT_SUFFIX));
+        active = Segment.open(file, id, segmentSize);
+        segments.put(id, active);
+    }
+
+    private Entity readEntity(long location) {
+        ByteBuffer buffer = segment(location).buffer;
+        int offset = offset(location);
+        long id = buffer.getLong(offset + 9);
+        int valueLength = buffer.getInt(offset + 17);
+        if (valueLength == NULL_VALUE) {
+            return new Entity(id, null);
+        }
+
+        byte[] bytes = new byte[valueLength];
+        buffer.get(offset + HEADER_BYTES, bytes);
+        return new Entity(id, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private int recordBytes(long location) {
+        int valueLength = segment(location).buffer.getInt(offset(location) + 17);
+        return HEADER_BYTES + Math.max(0, valueLength);
+    }
+
+    private Segment segment(long location) {
+        return segments.get(segmentId(location));
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 4, length - 4));
+        return (int) crc.getValue();
+    }
+
+    // segment id : offset in the segment
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private static final class Segment {
+
+        private final int id;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        // bytes of records still reachable through the index
+        private long liveBytes;
+
+        private Segment(int id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path file, int id, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(id, file, channel, buffer);
+        }
+
+        void release(int bytes) {
+            liveBytes -= bytes;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
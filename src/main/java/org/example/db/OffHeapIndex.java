@@ -0,0 +1,196 @@
+package org.example.db;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Open-addressing hash index from {@code (partition, id)} to a location, kept off-heap, so like
+ * {@link LocalFileSystem} the same id stored under two partitions is two entities.
+ * Slots are spread over direct buffers of at most {@code 2^20} slots each, so the table is not bounded
+ * by the 2 GiB limit of a single buffer.
+ * The meaning of a location belongs to the storage engine using the index.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+final class OffHeapIndex {
+
+    static final long MISSING = -1L;
+
+    // slot: id(8) location(8) partition(4) state(4)
+    private static final int SLOT_BYTES = 24;
+    private static final int LOCATION_OFFSET = 8;
+    private static final int PARTITION_OFFSET = 16;
+    private static final int STATE_OFFSET = 20;
+
+    private static final int EMPTY = 0;
+    private static final int USED = 1;
+    private static final int REMOVED = 2;
+
+    private static final int PAGE_SHIFT = 20;
+    private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+    private static final long MAX_CAPACITY = 1L << 40;
+    private static final double LOAD_FACTOR = 0.7;
+
+    private ByteBuffer[] pages;
+    private long capacity;
+    private long size;
+    // removed slots still lengthen probe sequences until the next rehash
+    private long removed;
+
+    interface Visitor {
+        void visit(long id, int partition, long location);
+    }
+
+    OffHeapIndex(int initialCapacity) {
+        allocate(Math.max(16, Long.highestOneBit(Math.max(1, initialCapacity - 1)) << 1));
+    }
+
+    long size() {
+        return size;
+    }
+
+    // bytes held off-heap
+    long capacityBytes() {
+        return capacity * SLOT_BYTES;
+    }
+
+    long get(int partition, long id) {
+        long slot = find(partition, id);
+        return slot < 0 ? MISSING : page(slot).getLong(base(slot) + LOCATION_OFFSET);
+    }
+
+    // returns the previous location, MISSING if there was none
+    long put(int partition, long id, long location) {
+        long slot = find(partition, id);
+        if (slot >= 0) {
+            ByteBuffer page = page(slot);
+            int base = base(slot);
+            long previous = page.getLong(base + LOCATION_OFFSET);
+            page.putLong(base + LOCATION_OFFSET, location);
+            return previous;
+        }
+
+        if (size + removed + 1 > capacity * LOAD_FACTOR) {
+            // drop removed slots, grow only if live entries need it
+            rehash(size + 1 > capacity * LOAD_FACTOR / 2 ? capacity << 1 : capacity);
+        }
+
+        long mask = capacity - 1;
+        for (long i = mix(partition, id) & mask; ; i = (i + 1) & mask) {
+            ByteBuffer page = page(i);
+            int base = base(i);
+            int state = page.getInt(base + STATE_OFFSET);
+            if (state != USED) {
+                if (state == REMOVED) {
+                    removed--;
+                }
+                write(page, base, id, partition, location);
+                size++;
+                return MISSING;
+            }
+        }
+    }
+
+    // returns the removed location, MISSING if there was none
+    long remove(int partition, long id) {
+        long slot = find(partition, id);
+        if (slot < 0) {
+            return MISSING;
+        }
+
+        ByteBuffer page = page(slot);
+        int base = base(slot);
+        long previous = page.getLong(base + LOCATION_OFFSET);
+        page.putInt(base + STATE_OFFSET, REMOVED);
+        size--;
+        removed++;
+        return previous;
+    }
+
+    void forEach(Visitor visitor) {
+        for (ByteBuffer page : pages) {
+            for (int base = 0; base < page.capacity(); base += SLOT_BYTES) {
+                if (page.getInt(base + STATE_OFFSET) == USED) {
+                    visitor.visit(page.getLong(base), page.getInt(base + PARTITION_OFFSET), page.getLong(base + LOCATION_OFFSET));
+                }
+            }
+        }
+    }
+
+    void clear() {
+        allocate(16);
+    }
+
+    private long find(int partition, long id) {
+        long mask = capacity - 1;
+        for (long i = mix(partition, id) & mask; ; i = (i + 1) & mask) {
+            ByteBuffer page = page(i);
+            int base = base(i);
+            int state = page.getInt(base + STATE_OFFSET);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == USED && page.getLong(base) == id && page.getInt(base + PARTITION_OFFSET) == partition) {
+                return i;
+            }
+        }
+    }
+
+    private ByteBuffer page(long slot) {
+        return pages[(int) (slot >>> PAGE_SHIFT)];
+    }
+
+    private static int base(long slot) {
+        return (int) (slot & PAGE_MASK) * SLOT_BYTES;
+    }
+
+    private static void write(ByteBuffer page, int base, long id, int partition, long location) {
+        page.putLong(base, id);
+        page.putLong(base + LOCATION_OFFSET, location);
+        page.putInt(base + PARTITION_OFFSET, partition);
+        page.putInt(base + STATE_OFFSET, USED);
+    }
+
+    private void rehash(long newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new DatabaseOperationFailedException("Index capacity exceeded: " + newCapacity + " slots");
+        }
+
+        ByteBuffer[] old = pages;
+        allocate(newCapacity);
+        long mask = capacity - 1;
+        for (ByteBuffer oldPage : old) {
+            for (int oldBase = 0; oldBase < oldPage.capacity(); oldBase += SLOT_BYTES) {
+                if (oldPage.getInt(oldBase + STATE_OFFSET) != USED) {
+                    continue;
+                }
+
+                long id = oldPage.getLong(oldBase);
+                int partition = oldPage.getInt(oldBase + PARTITION_OFFSET);
+                long i = mix(partition, id) & mask;
+                while (page(i).getInt(base(i) + STATE_OFFSET) == USED) {
+                    i = (i + 1) & mask;
+                }
+                write(page(i), base(i), id, partition, oldPage.getLong(oldBase + LOCATION_OFFSET));
+                size++;
+            }
+        }
+    }
+
+    private void allocate(long newCapacity) {
+        // capacities are powers of two, so a table either fits one page or fills whole pages
+        int pageSlots = (int) Math.min(newCapacity, 1L << PAGE_SHIFT);
+        pages = new ByteBuffer[(int) (newCapacity / pageSlots)];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = ByteBuffer.allocateDirect(pageSlots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+        capacity = newCapacity;
+        size = 0;
+        removed = 0;
+    }
+
+    // snowflake ids differ mostly in their low bits, spread them over the table
+    private static long mix(int partition, long id) {
+        long h = (id ^ ((long) partition << 32)) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.db;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory storage of a single node that keeps values off the heap, a drop-in for {@link LocalFileSystem}
+ * when a node holds too many entities for the garbage collector.
+ * Values are stored as UTF-8 in {@link SlabArena} chunks, {@code length(4) bytes(length)}, and located through
+ * an {@link OffHeapIndex} by id; overwrites and deletes return their chunk to the arena for reuse.
+ * Scans walk a {@link PartitionIndex}, the only heap held per entity, about 12 bytes in primitive arrays,
+ * against an {@link Entity}, its string and the map entry on the heap storage.
+ * Entities are keyed by {@code (partition, id)} like {@link LocalFileSystem}.
+ * Reads and scans share a read lock, writes take the write lock.
+ */
+public class OffHeapStorage implements Storage {
+
+    // location of an entity with a null value, it takes no chunk
+    private static final long NULL_VALUE = -2L;
+    private static final int LENGTH_BYTES = 4;
+
+    private final OffHeapIndex index = new OffHeapIndex(1 << 16);
+    private final SlabArena arena;
+    private final PartitionIndex partitions = new PartitionIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public OffHeapStorage() {
+        this(SlabArena.DEFAULT_SLAB_SIZE);
+    }
+
+    public OffHeapStorage(int slabSize) {
+        this.arena = new SlabArena(slabSize);
+    }
+
+    @Override
+    public Entity write(int partition, Entity value) {
+        byte[] bytes = value.value() == null ? null : value.value().getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            long location = NULL_VALUE;
+            if (bytes != null) {
+                location = arena.allocate(LENGTH_BYTES + bytes.length);
+                ByteBuffer buffer = arena.buffer(location);
+                int offset = SlabArena.offset(location);
+                buffer.putInt(offset, bytes.length);
+                buffer.put(offset + LENGTH_BYTES, bytes);
+            }
+
+            long previous = index.put(partition, value.id(), location);
+            if (previous == OffHeapIndex.MISSING) {
+                partitions.add(partition, value.id());
+                return null;
+            }
+
+            return release(value.id(), previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Entity read(int partition, long id) {
+        lock.readLock().lock();
+        try {
+            long location = index.get(partition, id);
+            return location == OffHeapIndex.MISSING ? null : readEntity(id, location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Entity delete(int partition, long id) {
+        lock.writeLock().lock();
+        try {
+            long previous = index.remove(partition, id);
+            if (previous == OffHeapIndex.MISSING) {
+                return null;
+            }
+
+            partitions.remove(partition, id);
+            return release(id, previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long scanPage(int fromPartition, int toPartition, int limit, Visitor visitor) {
+        lock.readLock().lock();
+        try {
+            return partitions.scanPage(fromPartition, toPartition, limit, (partition, id) -> visitor.visit(partition, readEntity(id, index.get(partition, id))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // bytes held off-heap by the slabs and the index
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return arena.capacityBytes() + index.capacityBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // bytes of the slabs taken by stored values
+    public long valueBytes() {
+        lock.readLock().lock();
+        try {
+            return arena.usedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            arena.clear();
+            partitions.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // returns the entity at the location and frees its chunk
+    private Entity release(long id, long location) {
+        Entity released = readEntity(id, location);
+        if (location != NULL_VALUE) {
+            arena.free(location, LENGTH_BYTES + arena.buffer(location).getInt(SlabArena.offset(location)));
+        }
+        return released;
+    }
+
+    private Entity readEntity(long id, long location) {
+        if (location == NULL_VALUE) {
+            return new Entity(id, null);
+        }
+
+        ByteBuffer buffer = arena.buffer(location);
+        int offset = SlabArena.offset(location);
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + LENGTH_BYTES, bytes);
+        return new Entity(id, new String(bytes, StandardCharsets.UTF_8));
+    }
+}
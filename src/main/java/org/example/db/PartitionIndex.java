@@ -0,0 +1,158 @@
+package org.example.db;
+
+import java.util.Arrays;
+
+/**
+ * Ids ordered by {@code (partition, id)}, so a range scan starts with a binary search instead of a pass over
+ * every entity. Entries are spread over 65536 buckets by the high bits of their partition, each a sorted pair of
+ * primitive arrays; partitions are hashes, so buckets stay small and an insert shifts only its own bucket.
+ * About 12 bytes of heap per entity.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+final class PartitionIndex {
+
+    private static final int BUCKET_BITS = 16;
+
+    private final Bucket[] buckets = new Bucket[1 << BUCKET_BITS];
+
+    interface Visitor {
+        void visit(int partition, long id);
+    }
+
+    private static final class Bucket {
+        private int[] partitions = new int[4];
+        private long[] ids = new long[4];
+        private int size;
+
+        // position of the entry, or -(insertion point) - 1 like Arrays.binarySearch
+        int search(int partition, long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int order = partitions[mid] != partition ? Integer.compare(partitions[mid], partition) : Long.compare(ids[mid], id);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insert(int position, int partition, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+                partitions = Arrays.copyOf(partitions, ids.length);
+            }
+            System.arraycopy(partitions, position, partitions, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            partitions[position] = partition;
+            ids[position] = id;
+            size++;
+        }
+
+        void delete(int position) {
+            System.arraycopy(partitions, position + 1, partitions, position, size - position - 1);
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+
+    void add(int partition, long id) {
+        Bucket bucket = bucket(partition);
+        int position = bucket.search(partition, id);
+        if (position < 0) {
+            bucket.insert(-position - 1, partition, id);
+        }
+    }
+
+    void remove(int partition, long id) {
+        Bucket bucket = buckets[bucketIndex(partition)];
+        int position = bucket == null ? -1 : bucket.search(partition, id);
+        if (position >= 0) {
+            bucket.delete(position);
+        }
+    }
+
+    // replaces the content with every entry of the id index, sorting once instead of inserting one by one
+    void rebuild(OffHeapIndex index) {
+        clear();
+        index.forEach((id, partition, location) -> {
+            Bucket bucket = bucket(partition);
+            bucket.insert(bucket.size, partition, id);
+        });
+
+        for (Bucket bucket : buckets) {
+            if (bucket != null && bucket.size > 1) {
+                sort(bucket);
+            }
+        }
+    }
+
+    /**
+     * Visits the entries of whole partitions in {@code [fromPartition, toPartition]} in order, stopping after the
+     * partition that brings the page to {@code limit} entries or more.
+     * Returns the partition to resume from, {@code toPartition + 1} once the range is exhausted.
+     */
+    long scanPage(int fromPartition, int toPartition, int limit, Visitor visitor) {
+        int visited = 0;
+        for (int b = bucketIndex(fromPartition); b <= bucketIndex(toPartition); b++) {
+            Bucket bucket = buckets[b];
+            if (bucket == null || bucket.size == 0) {
+                continue;
+            }
+
+            int i = bucket.search(fromPartition, Long.MIN_VALUE);
+            for (i = i < 0 ? -i - 1 : i; i < bucket.size && bucket.partitions[i] <= toPartition; i++) {
+                int partition = bucket.partitions[i];
+                visitor.visit(partition, bucket.ids[i]);
+                visited++;
+                boolean partitionEnds = i + 1 == bucket.size || bucket.partitions[i + 1] != partition;
+                if (visited >= limit && partitionEnds) {
+                    return partition + 1L;
+                }
+            }
+        }
+
+        return toPartition + 1L;
+    }
+
+    void clear() {
+        Arrays.fill(buckets, null);
+    }
+
+    private Bucket bucket(int partition) {
+        int b = bucketIndex(partition);
+        if (buckets[b] == null) {
+            buckets[b] = new Bucket();
+        }
+        return buckets[b];
+    }
+
+    private static void sort(Bucket bucket) {
+        Integer[] order = new Integer[bucket.size];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> bucket.partitions[a] != bucket.partitions[b]
+            ? Integer.compare(bucket.partitions[a], bucket.partitions[b])
+            : Long.compare(bucket.ids[a], bucket.ids[b]));
+
+        int[] partitions = new int[bucket.partitions.length];
+        long[] ids = new long[bucket.ids.length];
+        for (int i = 0; i < order.length; i++) {
+            partitions[i] = bucket.partitions[order[i]];
+            ids[i] = bucket.ids[order[i]];
+        }
+        bucket.partitions = partitions;
+        bucket.ids = ids;
+    }
+
+    // keeps the signed partition order
+    private static int bucketIndex(int partition) {
+        return (partition >> (Integer.SIZE - BUCKET_BITS)) + (1 << (BUCKET_BITS - 1));
+    }
+}
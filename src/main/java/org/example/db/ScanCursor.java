@@ -0,0 +1,110 @@
+package org.example.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the entities of a partition range page by page, in ring order starting at {@code fromKey}.
+ * The range is {@code [fromKey, toKey)}; {@code fromKey >= toKey} wraps around the ring and
+ * {@code fromKey == toKey} covers the whole ring.
+ * At most one page is held in memory. Pages end on partition boundaries, so writes racing the
+ * cursor are seen or missed per partition, never duplicated.
+ * {@link #partition()} tells the partition the last entity is stored under, so callers need not rehash ids.
+ */
+public final class ScanCursor implements Iterator<Entity> {
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private final Storage storage;
+    private final int pageSize;
+    // inclusive partition segments still to visit, at most two for a wrap-around range
+    private final int[] segmentStarts;
+    private final int[] segmentEnds;
+    private int segment;
+    // next partition to fetch in the current segment
+    private int next;
+    private List<Entity> page = List.of();
+    private int[] partitions = new int[0];
+    private int position;
+
+    public ScanCursor(Storage storage, int fromKey, int toKey, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.storage = storage;
+        this.pageSize = pageSize;
+
+        if (fromKey < toKey) {
+            segmentStarts = new int[]{fromKey};
+            segmentEnds = new int[]{toKey - 1};
+        } else if (toKey == Integer.MIN_VALUE) {
+            segmentStarts = new int[]{fromKey};
+            segmentEnds = new int[]{Integer.MAX_VALUE};
+        } else { // wrap-around
+            segmentStarts = new int[]{fromKey, Integer.MIN_VALUE};
+            segmentEnds = new int[]{Integer.MAX_VALUE, toKey - 1};
+        }
+        next = segmentStarts[0];
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position == page.size()) {
+            if (segment == segmentStarts.length) {
+                return false;
+            }
+            fetch();
+        }
+
+        return true;
+    }
+
+    @Override
+    public Entity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return page.get(position++);
+    }
+
+    // partition of the entity last returned by next()
+    public int partition() {
+        if (position == 0) {
+            throw new IllegalStateException("No entity returned yet");
+        }
+
+        return partitions[position - 1];
+    }
+
+    private void fetch() {
+        int end = segmentEnds[segment];
+        List<Entity> entities = new ArrayList<>(pageSize);
+        if (partitions.length < pageSize) {
+            partitions = new int[pageSize];
+        }
+        long resume = storage.scanPage(next, end, pageSize, (partition, entity) -> {
+            if (entities.size() == partitions.length) {
+                // a page overshoots the limit by the rest of its last partition
+                partitions = Arrays.copyOf(partitions, partitions.length * 2);
+            }
+            partitions[entities.size()] = partition;
+            entities.add(entity);
+        });
+        page = entities;
+        position = 0;
+
+        if (resume > end) {
+            // segment exhausted
+            segment++;
+            if (segment < segmentStarts.length) {
+                next = segmentStarts[segment];
+            }
+        } else {
+            next = (int) resume;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.db;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chunks of off-heap memory carved out of direct slabs, addressed by {@code slab : offset} locations.
+ * Chunk sizes are rounded up to size classes, 16-byte steps up to 128 then four classes per power of two,
+ * so at most a fifth of a chunk is slack. A freed chunk goes onto the free list of its class, threaded through
+ * the chunks themselves, and the next allocation of that class reuses it; slabs are never returned.
+ * Chunks larger than a slab get a slab of their own.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+final class SlabArena {
+
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    static final long NO_CHUNK = -1L;
+
+    private static final int MIN_CHUNK = 16;
+    private static final int[] CLASS_SIZES = classSizes();
+
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    // head location of the free list of every class, the first 8 bytes of a free chunk link to the next
+    private final long[] freeLists = new long[CLASS_SIZES.length];
+    private ByteBuffer current;
+    private int currentIndex = -1;
+    private int position;
+    private long slabBytes;
+    private long usedBytes;
+
+    SlabArena(int slabSize) {
+        if (slabSize < MIN_CHUNK) {
+            throw new IllegalArgumentException("Slab size too small: " + slabSize);
+        }
+        this.slabSize = slabSize;
+        Arrays.fill(freeLists, NO_CHUNK);
+    }
+
+    // location of a chunk of at least the given size
+    long allocate(int bytes) {
+        int sizeClass = sizeClass(bytes);
+        int chunkSize = CLASS_SIZES[sizeClass];
+        usedBytes += chunkSize;
+
+        long free = freeLists[sizeClass];
+        if (free != NO_CHUNK) {
+            freeLists[sizeClass] = buffer(free).getLong(offset(free));
+            return free;
+        }
+
+        if (chunkSize > slabSize) {
+            addSlab(chunkSize);
+            position = chunkSize;
+            return location(currentIndex, 0);
+        }
+        // the tail of a full slab is left unused
+        if (current == null || position + chunkSize > current.capacity()) {
+            addSlab(slabSize);
+        }
+        long location = location(currentIndex, position);
+        position += chunkSize;
+        return location;
+    }
+
+    // the chunk at the location, allocated with the same size
+    void free(long location, int bytes) {
+        int sizeClass = sizeClass(bytes);
+        usedBytes -= CLASS_SIZES[sizeClass];
+        buffer(location).putLong(offset(location), freeLists[sizeClass]);
+        freeLists[sizeClass] = location;
+    }
+
+    ByteBuffer buffer(long location) {
+        return slabs.get((int) (location >>> 32));
+    }
+
+    static int offset(long location) {
+        return (int) location;
+    }
+
+    // bytes of every slab
+    long capacityBytes() {
+        return slabBytes;
+    }
+
+    // bytes of allocated chunks, including the slack of their classes
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    void clear() {
+        slabs.clear();
+        Arrays.fill(freeLists, NO_CHUNK);
+        current = null;
+        currentIndex = -1;
+        position = 0;
+        slabBytes = 0;
+        usedBytes = 0;
+    }
+
+    private void addSlab(int size) {
+        current = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        slabs.add(current);
+        currentIndex = slabs.size() - 1;
+        position = 0;
+        slabBytes += size;
+    }
+
+    private static int sizeClass(int bytes) {
+        int index = Arrays.binarySearch(CLASS_SIZES, Math.max(bytes, MIN_CHUNK));
+        if (index >= 0) {
+            return index;
+        }
+        if (-index - 1 == CLASS_SIZES.length) {
+            throw new DatabaseOperationFailedException("Chunk of " + bytes + " bytes exceeds the largest size class");
+        }
+        return -index - 1;
+    }
+
+    private static int[] classSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        for (int size = MIN_CHUNK; size <= 128; size += 16) {
+            sizes.add(size);
+        }
+        for (int power = 128; power < 1 << 30; power <<= 1) {
+            for (int step = 1; step <= 4; step++) {
+                sizes.add(power + step * (power / 4));
+            }
+        }
+
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // slab index : offset in the slab
+    private static long location(int slab, int offset) {
+        return ((long) slab << 32) | (offset & 0xFFFFFFFFL);
+    }
+}
@@ -2,8 +2,9 @@ package org.example.db;
 
 import java.net.NetworkInterface;
 import java.security.SecureRandom;
-import java.time.Instant;
 import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Distributed Sequence Generator.
@@ -24,11 +25,15 @@ public class Snowflake {
     // Custom Epoch (January 1, 2015 Midnight UTC = 2015-01-01T00:00:00Z)
     private static final long DEFAULT_CUSTOM_EPOCH = 1420070400000L;
 
+    // ids issued by one millisecond beyond the clock before callers wait for it
+    private static final long MAX_BORROWED_MILLIS = 10;
+
     private final long nodeId;
     private final long customEpoch;
+    private final LongSupplier clock;
 
-    private volatile long lastTimestamp = -1L;
-    private volatile long sequence = 0L;
+    // timestamp and sequence of the last issued id, (timestamp << SEQUENCE_BITS) | sequence
+    private final AtomicLong last = new AtomicLong();
 
     static {
         instance = new Snowflake();
@@ -42,11 +47,17 @@ public class Snowflake {
 
     // Create Snowflake with a nodeId and custom epoch
     public Snowflake(long nodeId, long customEpoch) {
+        this(nodeId, customEpoch, System::currentTimeMillis);
+    }
+
+    // the clock returns epoch milliseconds
+    Snowflake(long nodeId, long customEpoch, LongSupplier clock) {
         if(nodeId < 0 || nodeId > maxNodeId) {
             throw new IllegalArgumentException(String.format("NodeId must be between %d and %d", 0, maxNodeId));
         }
         this.nodeId = nodeId;
         this.customEpoch = customEpoch;
+        this.clock = clock;
     }
 
     // Create Snowflake with a nodeId
@@ -56,52 +67,88 @@ public class Snowflake {
 
     // Let Snowflake generate a nodeId
     public Snowflake() {
-        this.nodeId = createNodeId();
-        this.customEpoch = DEFAULT_CUSTOM_EPOCH;
+        this(createNodeId(), DEFAULT_CUSTOM_EPOCH);
     }
 
-    public synchronized long nextId() {
-        long currentTimestamp = timestamp();
+    public long nextId() {
+        return compose(reserve(1));
+    }
 
-        if(currentTimestamp < lastTimestamp) {
-            throw new IllegalStateException("Invalid System Clock!");
+    /**
+     * n ids in increasing order, one CAS per block of up to 4096 ids of the same millisecond.
+     * Ids of one call are contiguous within a millisecond, other threads' ids never interleave with a block.
+     */
+    public long[] nextIds(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot generate " + n + " ids");
         }
 
-        if (currentTimestamp == lastTimestamp) {
-            sequence = (sequence + 1) & maxSequence;
-            if(sequence == 0) {
-                // Sequence Exhausted, wait till next millisecond.
-                currentTimestamp = waitNextMillis(currentTimestamp);
+        long[] ids = new long[n];
+        int filled = 0;
+        while (filled < n) {
+            long first = reserve(n - filled);
+            int count = granted(first, n - filled);
+            for (int i = 0; i < count; i++) {
+                ids[filled++] = compose(first + i);
             }
-        } else {
-            // reset sequence to start with zero for the next millisecond
-            sequence = 0;
         }
 
-        lastTimestamp = currentTimestamp;
+        return ids;
+    }
 
-        long id = currentTimestamp << (NODE_ID_BITS + SEQUENCE_BITS)
-            | (nodeId << SEQUENCE_BITS)
-            | sequence;
+    /**
+     * Lock-free: claims up to max consecutive sequences of one millisecond with a single CAS and returns the first.
+     * An exhausted millisecond borrows the next one ahead of the clock, up to MAX_BORROWED_MILLIS,
+     * so a burst above 4096 ids/ms does not stall; past that callers wait for the clock.
+     * A clock going back within the borrowed window continues from the last id, further back is an error.
+     */
+    private long reserve(int max) {
+        while (true) {
+            long current = last.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long currentTimestamp = timestamp();
+
+            long first;
+            if (currentTimestamp > lastTimestamp) {
+                // a new millisecond starts at sequence zero
+                first = currentTimestamp << SEQUENCE_BITS;
+            } else if (currentTimestamp < lastTimestamp - MAX_BORROWED_MILLIS) {
+                throw new IllegalStateException("Invalid System Clock!");
+            } else if ((current & maxSequence) < maxSequence) {
+                first = current + 1;
+            } else if (lastTimestamp - currentTimestamp < MAX_BORROWED_MILLIS) {
+                // sequence exhausted, borrow the next millisecond
+                first = (lastTimestamp + 1) << SEQUENCE_BITS;
+            } else {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            if (last.compareAndSet(current, first + granted(first, max) - 1)) {
+                return first;
+            }
+        }
+    }
 
-        return id;
+    // the sequences left in the millisecond of first cap a reservation
+    private static int granted(long first, int max) {
+        return (int) Math.min(max, maxSequence + 1 - (first & maxSequence));
     }
 
+    private long compose(long timestampAndSequence) {
+        long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+        long sequence = timestampAndSequence & maxSequence;
+        return timestamp << (NODE_ID_BITS + SEQUENCE_BITS)
+            | (nodeId << SEQUENCE_BITS)
+            | sequence;
+    }
 
     // Get current timestamp in milliseconds, adjust for the custom epoch.
     private long timestamp() {
-        return Instant.now().toEpochMilli() - customEpoch;
-    }
-
-    // Block and wait till next millisecond
-    private long waitNextMillis(long currentTimestamp) {
-        while (currentTimestamp == lastTimestamp) {
-            currentTimestamp = timestamp();
-        }
-        return currentTimestamp;
+        return clock.getAsLong() - customEpoch;
     }
 
-    private long createNodeId() {
+    private static long createNodeId() {
         long nodeId;
         try {
             StringBuilder sb = new StringBuilder();
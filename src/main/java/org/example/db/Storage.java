@@ -0,0 +1,41 @@
+package org.example.db;
+
+/**
+ * Storage engine of a single node.
+ * Entities are keyed by {@code (partition, id)}; implementations must be thread-safe.
+ */
+public interface Storage extends AutoCloseable {
+
+    interface Visitor {
+        void visit(int partition, Entity entity);
+    }
+
+    // returns the entity replaced by this write, null if there was none
+    Entity write(int partition, Entity value);
+
+    Entity read(int partition, long id);
+
+    // returns the deleted entity, null if there was none
+    Entity delete(int partition, long id);
+
+    /**
+     * Visits the entities of whole partitions in {@code [fromPartition, toPartition]} in partition order, with the
+     * partition each is stored under, stopping after the partition that brings the page to {@code limit} entities or more.
+     * Returns the partition to resume from, {@code toPartition + 1} once the range is exhausted.
+     */
+    long scanPage(int fromPartition, int toPartition, int limit, Visitor visitor);
+
+    // every entity in one pass, with its stored partition; engines holding a lock for scans hold it throughout
+    default void forEach(Visitor visitor) {
+        scanPage(Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, visitor);
+    }
+
+    // [fromKey, toKey) streamed in pages, fromKey >= toKey wraps around the ring
+    default ScanCursor scan(int fromKey, int toKey, int pageSize) {
+        return new ScanCursor(this, fromKey, toKey, pageSize);
+    }
+
+    @Override
+    default void close() {
+    }
+}
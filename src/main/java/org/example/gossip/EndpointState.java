@@ -0,0 +1,40 @@
+package org.example.gossip;
+
+import org.example.Node;
+import org.example.NodeStatus;
+import org.example.Token;
+
+import java.util.List;
+
+/**
+ * What a node announces about itself. The node bumps the version on every change
+ * and starts a new generation on restart, so the newest state always wins.
+ */
+public record EndpointState(
+    Node node,
+    long generation,
+    long version,
+    NodeStatus status,
+    List<Token> tokens
+) {
+
+    // id, generation, version, status, token count
+    private static final int HEADER_BYTES = 8 + 8 + 8 + 1 + 4;
+
+    public boolean newerThan(long otherGeneration, long otherVersion) {
+        return generation != otherGeneration ? generation > otherGeneration : version > otherVersion;
+    }
+
+    public boolean newerThan(EndpointState other) {
+        return other == null || newerThan(other.generation(), other.version());
+    }
+
+    public GossipDigest digest() {
+        return new GossipDigest(node.id(), generation, version);
+    }
+
+    // approximate wire size
+    public int serializedSize() {
+        return HEADER_BYTES + Integer.BYTES * tokens.size();
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.gossip;
+
+// the newest state a node holds about an endpoint, generation and version -1 when it holds none
+public record GossipDigest(
+    long nodeId,
+    long generation,
+    long version
+) {
+
+    static final int SERIALIZED_SIZE = 3 * Long.BYTES;
+}
@@ -0,0 +1,101 @@
+package org.example.gossip;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process transport between gossipers, counting messages and bytes.
+ * {@link #runUntilConverged} is the simulation mode: deterministic rounds, every member gossips once per round.
+ */
+public class GossipNetwork {
+
+    private final Map<Long, Gossiper> members = new ConcurrentHashMap<>();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public record Stats(int rounds, long messages, long bytes, boolean converged) {
+    }
+
+    void register(Gossiper gossiper) {
+        members.put(gossiper.local().id(), gossiper);
+    }
+
+    // an unreachable member, e.g. a stopped node
+    public void unregister(long nodeId) {
+        members.remove(nodeId);
+    }
+
+    public Gossiper member(long nodeId) {
+        return members.get(nodeId);
+    }
+
+    public Collection<Gossiper> members() {
+        return members.values();
+    }
+
+    void send(int messageBytes) {
+        messages.increment();
+        bytes.add(messageBytes);
+    }
+
+    public long messages() {
+        return messages.sum();
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    public void resetStats() {
+        messages.reset();
+        bytes.reset();
+    }
+
+    // every member holds the newest state of every endpoint known anywhere
+    public boolean converged() {
+        Map<Long, EndpointState> newest = new HashMap<>();
+        for (Gossiper member : members.values()) {
+            for (EndpointState state : member.states()) {
+                newest.merge(state.node().id(), state, (a, b) -> b.newerThan(a) ? b : a);
+            }
+        }
+
+        for (Gossiper member : members.values()) {
+            for (EndpointState state : newest.values()) {
+                EndpointState held = member.state(state.node().id());
+                if (held == null || state.newerThan(held)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public Stats runUntilConverged(long seed, int maxRounds) {
+        long messagesBefore = messages();
+        long bytesBefore = bytes();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Gossiper> ordered = new ArrayList<>(members.values());
+        ordered.sort(Comparator.comparingLong(gossiper -> gossiper.local().id()));
+
+        int rounds = 0;
+        boolean converged = converged();
+        while (!converged && rounds < maxRounds) {
+            for (Gossiper gossiper : ordered) {
+                gossiper.round(random);
+            }
+            rounds++;
+            converged = converged();
+        }
+
+        return new Stats(rounds, messages() - messagesBefore, bytes() - bytesBefore, converged);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.gossip;
+
+import org.example.FailureDetector;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gossip rounds of every member of a network asynchronously, each member once per interval.
+ * Topology changes then reach the cluster in the background instead of stalling every node.
+ * Failure detectors are interpreted on the same threads, so silence is judged at the pace heartbeats arrive.
+ */
+public class GossipScheduler {
+
+    private final ScheduledExecutorService executor;
+
+    public GossipScheduler(int threads) {
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // members added to the network later need their own start
+    public void start(GossipNetwork network, long intervalMillis) {
+        for (Gossiper gossiper : network.members()) {
+            start(gossiper, intervalMillis);
+        }
+    }
+
+    public void start(Gossiper gossiper, long intervalMillis) {
+        // spread the members over the interval
+        long initialDelay = ThreadLocalRandom.current().nextLong(intervalMillis);
+        executor.scheduleAtFixedRate(() -> gossiper.round(ThreadLocalRandom.current()), initialDelay, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // convicts silent nodes once per interval, cancel the returned future once the node is gone
+    public ScheduledFuture<?> start(FailureDetector failureDetector, long intervalMillis) {
+        long initialDelay = ThreadLocalRandom.current().nextLong(intervalMillis);
+        return executor.scheduleAtFixedRate(failureDetector::interpret, initialDelay, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,234 @@
+package org.example.gossip;
+
+import org.example.FailureDetector;
+import org.example.Node;
+import org.example.NodeStatus;
+import org.example.Token;
+import org.example.TokenMetadata;
+import org.example.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Gossip endpoint of one node.
+ * Every round it picks {@code fanout} random peers and runs a three-way exchange with each:
+ * SYN carries the digests of everything it knows, ACK returns the states the initiator lacks and asks for the ones the peer lacks,
+ * ACK2 answers those. Only states newer than the other side's digest travel, so a change costs one state per node reached.
+ * Every completed exchange is a heartbeat of the other side for the optional {@link FailureDetector},
+ * which convicts nodes when its {@link FailureDetector#interpret()} runs, e.g. on a {@link GossipScheduler}.
+ * A stopped node neither starts nor answers exchanges.
+ */
+public class Gossiper {
+
+    private final Node local;
+    private final GossipNetwork network;
+    private final int fanout;
+    private final StateListener listener;
+    private final FailureDetector failureDetector;
+    private final long generation;
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Long, EndpointState> states = new ConcurrentHashMap<>();
+    // set once the node handed off its last state, it gossips no more
+    private volatile boolean left;
+
+    // called for every remote state newer than the one held
+    public interface StateListener {
+        void onChange(EndpointState state);
+    }
+
+    public Gossiper(Node local, GossipNetwork network, int fanout, long generation, StateListener listener) {
+        this(local, network, fanout, generation, listener, null);
+    }
+
+    public Gossiper(Node local, GossipNetwork network, int fanout, long generation, StateListener listener, FailureDetector failureDetector) {
+        if (fanout <= 0) {
+            throw new IllegalArgumentException("Fanout must be positive: " + fanout);
+        }
+        this.local = local;
+        this.network = network;
+        this.fanout = fanout;
+        this.generation = generation;
+        this.listener = listener;
+        this.failureDetector = failureDetector;
+        network.register(this);
+    }
+
+    // applies STABLE and REMOVED states to the token metadata of the node, streaming states are driven by the topology
+    // the metadata keeps the endpoint version, so a state older than the one applied is ignored
+    public static StateListener tokenMetadataListener(Node node) {
+        return state -> {
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            TokenMetadata.EndpointVersion endpointVersion = new TokenMetadata.EndpointVersion(state.generation(), state.version());
+            switch (state.status()) {
+                case STABLE -> node.getTokenMetadata().updateNormalToken(state.node(), state.tokens(), endpointVersion);
+                case REMOVED -> node.getTokenMetadata().removeEndpoint(state.node(), endpointVersion);
+                default -> {
+                }
+            }
+            if (Metrics.isEnabled()) {
+                Metrics.recordGossip(node.id(), node.nodeName(), System.nanoTime() - start);
+            }
+        };
+    }
+
+    public Node local() {
+        return local;
+    }
+
+    // announces a new state of the local node
+    public void publish(NodeStatus status, List<Token> tokens) {
+        states.put(local.id(), new EndpointState(local, generation, version.incrementAndGet(), status, List.copyOf(tokens)));
+    }
+
+    // a seed is known from the start, it must have published its state
+    public void addSeed(Gossiper seed) {
+        EndpointState seedState = seed.state(seed.local().id());
+        if (seedState == null) {
+            throw new IllegalStateException("Seed " + seed.local().nodeName() + " has not published its state");
+        }
+        apply(List.of(seedState));
+    }
+
+    // a leaving node hands its last state to a peer, which spreads it once the leaving node is gone
+    public void handOff(Gossiper peer) {
+        List<EndpointState> last = List.of(states.get(local.id()));
+        network.send(sizeOf(last));
+        peer.apply(last);
+        left = true;
+        network.unregister(local.id());
+    }
+
+    public EndpointState state(long nodeId) {
+        return states.get(nodeId);
+    }
+
+    public Collection<EndpointState> states() {
+        return states.values();
+    }
+
+    public void round(RandomGenerator random) {
+        if (left || !local.isRunning()) {
+            return;
+        }
+
+        List<Gossiper> peers = new ArrayList<>();
+        for (Long nodeId : states.keySet()) {
+            Gossiper peer = network.member(nodeId);
+            if (nodeId != local.id() && peer != null) {
+                peers.add(peer);
+            }
+        }
+
+        for (int i = 0; i < fanout && !peers.isEmpty(); i++) {
+            exchange(peers.remove(random.nextInt(peers.size())));
+        }
+    }
+
+    private void exchange(Gossiper peer) {
+        List<GossipDigest> syn = digests();
+        network.send(syn.size() * GossipDigest.SERIALIZED_SIZE);
+        if (!peer.local().isRunning()) {
+            return; // lost
+        }
+        heartbeat(peer);
+        peer.heartbeat(this);
+
+        Ack ack = peer.onSyn(syn);
+        network.send(ack.serializedSize());
+        apply(ack.states());
+
+        List<EndpointState> ack2 = newerThan(ack.requests());
+        network.send(sizeOf(ack2));
+        peer.apply(ack2);
+    }
+
+    private void heartbeat(Gossiper peer) {
+        if (failureDetector != null) {
+            failureDetector.heartbeat(peer.local());
+        }
+    }
+
+    private record Ack(List<EndpointState> states, List<GossipDigest> requests) {
+
+        int serializedSize() {
+            return sizeOf(states) + requests.size() * GossipDigest.SERIALIZED_SIZE;
+        }
+    }
+
+    private Ack onSyn(List<GossipDigest> syn) {
+        List<EndpointState> newer = new ArrayList<>();
+        List<GossipDigest> requests = new ArrayList<>();
+        Set<Long> mentioned = new HashSet<>();
+        for (GossipDigest digest : syn) {
+            mentioned.add(digest.nodeId());
+            EndpointState mine = states.get(digest.nodeId());
+            if (mine == null) {
+                requests.add(new GossipDigest(digest.nodeId(), -1, -1));
+            } else if (mine.newerThan(digest.generation(), digest.version())) {
+                newer.add(mine);
+            } else if (!mine.digest().equals(digest)) {
+                // the initiator holds a newer state
+                requests.add(mine.digest());
+            }
+        }
+        // endpoints the initiator has never heard of
+        for (EndpointState state : states.values()) {
+            if (!mentioned.contains(state.node().id())) {
+                newer.add(state);
+            }
+        }
+
+        return new Ack(newer, requests);
+    }
+
+    private List<EndpointState> newerThan(List<GossipDigest> requests) {
+        List<EndpointState> newer = new ArrayList<>();
+        for (GossipDigest request : requests) {
+            EndpointState mine = states.get(request.nodeId());
+            if (mine != null && mine.newerThan(request.generation(), request.version())) {
+                newer.add(mine);
+            }
+        }
+
+        return newer;
+    }
+
+    private void apply(List<EndpointState> received) {
+        for (EndpointState state : received) {
+            boolean[] changed = new boolean[1];
+            states.compute(state.node().id(), (id, mine) -> {
+                if (state.newerThan(mine)) {
+                    changed[0] = true;
+                    return state;
+                }
+                return mine;
+            });
+            if (changed[0] && state.node().id() != local.id() && listener != null) {
+                listener.onChange(state);
+            }
+        }
+    }
+
+    private List<GossipDigest> digests() {
+        List<GossipDigest> digests = new ArrayList<>(states.size());
+        states.values().forEach(state -> digests.add(state.digest()));
+        return digests;
+    }
+
+    private static int sizeOf(List<EndpointState> states) {
+        int size = 0;
+        for (EndpointState state : states) {
+            size += state.serializedSize();
+        }
+
+        return size;
+    }
+}
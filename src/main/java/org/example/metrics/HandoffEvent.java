@@ -0,0 +1,23 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// one batch handed off to the target of a range
+@Name("org.example.Handoff")
+@Label("Handoff")
+@Category({"Consistent Hashing", "Streaming"})
+public class HandoffEvent extends jdk.jfr.Event {
+
+    @Label("Target")
+    public String target;
+
+    @Label("Entities")
+    public int entities;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
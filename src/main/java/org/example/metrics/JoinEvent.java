@@ -0,0 +1,28 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.Join")
+@Label("Node Join")
+@Category("Consistent Hashing")
+public class JoinEvent extends jdk.jfr.Event {
+
+    @Label("Node")
+    public String node;
+
+    @Label("Vnodes")
+    public int vnodes;
+
+    @Label("Ranges")
+    public int ranges;
+
+    @Label("Entities Streamed")
+    public long entities;
+
+    @Label("Bytes Streamed")
+    @DataAmount
+    public long bytes;
+}
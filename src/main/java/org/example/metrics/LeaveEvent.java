@@ -0,0 +1,25 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.Leave")
+@Label("Node Leave")
+@Category("Consistent Hashing")
+public class LeaveEvent extends jdk.jfr.Event {
+
+    @Label("Node")
+    public String node;
+
+    @Label("Ranges")
+    public int ranges;
+
+    @Label("Entities Streamed")
+    public long entities;
+
+    @Label("Bytes Streamed")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,96 @@
+package org.example.metrics;
+
+import org.example.db.Entity;
+import org.example.db.Method;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Process-wide metrics of node accesses, gossip handling and rebalancing, off by default.
+ * While disabled every hook costs one volatile read and nothing is allocated;
+ * once enabled each node gets striped counters and latency histograms per {@link Method} on its first access.
+ * Joins, leaves, range scans and handoffs are also emitted as JFR events, see {@link JoinEvent} and friends.
+ */
+public final class Metrics {
+
+    // rebalances kept for the snapshot, oldest dropped first
+    public static final int MAX_REBALANCES = 64;
+
+    private static volatile boolean enabled;
+    private static final Map<Long, NodeMetrics> nodes = new ConcurrentHashMap<>();
+    private static final Deque<RebalanceSnapshot> rebalances = new ConcurrentLinkedDeque<>();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    // drops everything recorded so far
+    public static void reset() {
+        nodes.clear();
+        rebalances.clear();
+    }
+
+    public static void recordAccess(long nodeId, String nodeName, Method method, long nanos, boolean failed) {
+        node(nodeId, nodeName).recordAccess(method, nanos, failed);
+    }
+
+    // a write replacing previous, either may be null
+    public static void recordWrite(long nodeId, String nodeName, Entity previous, Entity written) {
+        node(nodeId, nodeName).recordWrite(previous, written);
+    }
+
+    public static void recordGossip(long nodeId, String nodeName, long nanos) {
+        node(nodeId, nodeName).recordGossip(nanos);
+    }
+
+    public static void recordRebalance(RebalanceSnapshot rebalance) {
+        rebalances.addLast(rebalance);
+        while (rebalances.size() > MAX_REBALANCES) {
+            rebalances.pollFirst();
+        }
+    }
+
+    public static MetricsSnapshot snapshot() {
+        Map<String, NodeSnapshot> nodeSnapshots = new TreeMap<>();
+        for (NodeMetrics node : nodes.values()) {
+            nodeSnapshots.put(node.nodeName(), node.snapshot());
+        }
+
+        return new MetricsSnapshot(nodeSnapshots, new ArrayList<>(rebalances));
+    }
+
+    private static NodeMetrics node(long nodeId, String nodeName) {
+        return nodes.computeIfAbsent(nodeId, id -> new NodeMetrics(nodeName));
+    }
+
+    public record MetricsSnapshot(Map<String, NodeSnapshot> nodes, List<RebalanceSnapshot> rebalances) {
+    }
+
+    // keys and bytes count the net change written while enabled
+    public record NodeSnapshot(String nodeName, Map<Method, TimerSnapshot> accesses, TimerSnapshot gossip, long keys, long bytes) {
+    }
+
+    // latencies in nanoseconds, upper bounds of their histogram buckets
+    public record TimerSnapshot(long count, long errors, long p50, long p99, long p999) {
+    }
+
+    public record RebalanceSnapshot(String description, int ranges, long entities, long bytes, long durationNanos, boolean failed) {
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.metrics;
+
+import org.example.LatencyHistogram;
+import org.example.db.Entity;
+import org.example.db.Method;
+import org.example.stream.StreamScheduler;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters and histograms of one node
+final class NodeMetrics {
+
+    private final String nodeName;
+    private final Map<Method, Timer> accesses = new EnumMap<>(Method.class);
+    private final Timer gossip = new Timer();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    NodeMetrics(String nodeName) {
+        this.nodeName = nodeName;
+        for (Method method : Method.values()) {
+            accesses.put(method, new Timer());
+        }
+    }
+
+    String nodeName() {
+        return nodeName;
+    }
+
+    void recordAccess(Method method, long nanos, boolean failed) {
+        accesses.get(method).record(nanos, failed);
+    }
+
+    void recordGossip(long nanos) {
+        gossip.record(nanos, false);
+    }
+
+    void recordWrite(Entity previous, Entity written) {
+        if (previous != null) {
+            keys.decrement();
+            bytes.add(-StreamScheduler.sizeOf(previous));
+        }
+        if (written != null) {
+            keys.increment();
+            bytes.add(StreamScheduler.sizeOf(written));
+        }
+    }
+
+    Metrics.NodeSnapshot snapshot() {
+        Map<Method, Metrics.TimerSnapshot> accessSnapshots = new EnumMap<>(Method.class);
+        accesses.forEach((method, timer) -> accessSnapshots.put(method, timer.snapshot()));
+        return new Metrics.NodeSnapshot(nodeName, accessSnapshots, gossip.snapshot(), keys.sum(), bytes.sum());
+    }
+
+    private static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        void record(long nanos, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            latencies.record(nanos);
+        }
+
+        Metrics.TimerSnapshot snapshot() {
+            return new Metrics.TimerSnapshot(count.sum(), errors.sum(),
+                latencies.percentile(0.5), latencies.percentile(0.99), latencies.percentile(0.999));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// one range streamed from source to target
+@Name("org.example.RangeScan")
+@Label("Range Scan")
+@Category({"Consistent Hashing", "Streaming"})
+public class RangeScanEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    public String source;
+
+    @Label("Target")
+    public String target;
+
+    @Label("From Partition")
+    public int fromPartition;
+
+    @Label("To Partition")
+    public int toPartition;
+
+    @Label("Entities")
+    public long entities;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,27 @@
+package org.example.sim;
+
+/**
+ * Outcome of one {@link SimulationEvent}, measured over every key of the simulation once the event is applied.
+ * Balance counts primary keys per member; the request figures are only set by workloads.
+ */
+public record EventReport(
+    SimulationEvent event,
+    int members,
+    int downNodes,
+    // keys whose primary changed
+    long movedKeys,
+    // key copies streamed to replicas that did not hold them
+    long streamedReplicas,
+    long rebalanceBytes,
+    // primary keys of the most loaded member over the mean
+    double maxOverMean,
+    // standard deviation of the primary keys per member over the mean
+    double coefficientOfVariation,
+    // keys without a live replica
+    long unavailableKeys,
+    long failedOperations,
+    // requests of the busiest node over the mean of the live ones
+    double requestMaxOverMean,
+    long wallNanos
+) {
+}
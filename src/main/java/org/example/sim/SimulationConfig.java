@@ -0,0 +1,38 @@
+package org.example.sim;
+
+import org.example.PartitionStrategy;
+import org.example.RandomTokenAllocator;
+import org.example.ReplicationStrategy;
+import org.example.SimpleStrategy;
+import org.example.TokenAllocator;
+
+/**
+ * Cluster and key space of a {@link Simulator} run. Nodes are spread round-robin over {@code racks}.
+ * Keys are never stored, only hashed, so {@code keys} can go far beyond what the nodes could hold.
+ */
+public record SimulationConfig(
+    int initialNodes,
+    int vnodes,
+    int racks,
+    int replicationFactor,
+    ReplicationStrategy replicationStrategy,
+    PartitionStrategy partitionStrategy,
+    TokenAllocator tokenAllocator,
+    long keys,
+    int valueBytes,
+    long seed,
+    int parallelism
+) {
+
+    public SimulationConfig {
+        if (initialNodes <= 0 || vnodes <= 0 || racks <= 0 || replicationFactor <= 0 || keys <= 0 || valueBytes < 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid simulation: " + initialNodes + " nodes, " + vnodes + " vnodes, " + racks + " racks, RF "
+                + replicationFactor + ", " + keys + " keys of " + valueBytes + " bytes, parallelism " + parallelism);
+        }
+    }
+
+    public SimulationConfig(int initialNodes, int vnodes, long keys, long seed) {
+        this(initialNodes, vnodes, 1, 1, new SimpleStrategy(), PartitionStrategy.RING, new RandomTokenAllocator(),
+            keys, 100, seed, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.sim;
+
+/**
+ * One step of a simulated timeline. Nodes that leave, fail or recover are picked by the simulator's seeded random.
+ */
+public sealed interface SimulationEvent {
+
+    record Join(int nodes) implements SimulationEvent {
+    }
+
+    // at least one member always stays
+    record Decommission(int nodes) implements SimulationEvent {
+    }
+
+    // nodes go down without leaving the ring, their replicas serve their keys
+    record Fail(int nodes) implements SimulationEvent {
+    }
+
+    record Recover(int nodes) implements SimulationEvent {
+    }
+
+    // reads go to the first live replica, writes to every live replica; skew 0 is uniform, closer to 1 favours fewer keys
+    record Workload(long operations, double readRatio, double skew) implements SimulationEvent {
+
+        public Workload {
+            if (operations < 0 || readRatio < 0 || readRatio > 1 || skew < 0 || skew >= 1) {
+                throw new IllegalArgumentException("Invalid workload: " + operations + " operations, read ratio " + readRatio + ", skew " + skew);
+            }
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package org.example.sim;
+
+import org.example.HashGenerator;
+import org.example.Node;
+import org.example.Partitioner;
+import org.example.TokenMetadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Drives the routing metadata of a large cluster through a timeline of joins, decommissions, failures and workloads.
+ * Members are real {@link Node}s in a {@link TokenMetadata}, placed by the configured allocator and partition strategy,
+ * but keys are never stored: after every event each key is hashed again and looked up in the partitioners
+ * before and after it, in parallel chunks on a fork-join pool. That is what a rebalance would stream,
+ * without the streaming; every {@link EventReport} carries the wall time the event took.
+ * Everything random derives from the seed, the same config and timeline give the same reports at any parallelism.
+ */
+public class Simulator implements AutoCloseable {
+
+    // keys hashed per leaf task
+    static final int CHUNK_SIZE = 1 << 16;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final SimulationConfig config;
+    private final ForkJoinPool pool;
+    private final SplittableRandom random;
+    private final TokenMetadata tokenMetadata;
+    // current members in join order
+    private final List<Node> members = new ArrayList<>();
+    // node id : index into the tallies, for every node that ever joined
+    private final Map<Long, Integer> indices = new HashMap<>();
+
+    public Simulator(SimulationConfig config) {
+        this.config = config;
+        this.pool = new ForkJoinPool(config.parallelism());
+        this.random = new SplittableRandom(config.seed());
+        this.tokenMetadata = new TokenMetadata(config.replicationFactor(), config.replicationStrategy(), config.partitionStrategy());
+        join(config.initialNodes());
+    }
+
+    public List<Node> members() {
+        return List.copyOf(members);
+    }
+
+    public TokenMetadata.Snapshot snapshot() {
+        return tokenMetadata.snapshot();
+    }
+
+    public List<EventReport> run(List<? extends SimulationEvent> timeline) {
+        List<EventReport> reports = new ArrayList<>(timeline.size());
+        for (SimulationEvent event : timeline) {
+            reports.add(apply(event));
+        }
+
+        return reports;
+    }
+
+    public EventReport apply(SimulationEvent event) {
+        long start = System.nanoTime();
+        TokenMetadata.Snapshot before = tokenMetadata.snapshot();
+        if (event instanceof SimulationEvent.Join join) {
+            join(join.nodes());
+        } else if (event instanceof SimulationEvent.Decommission decommission) {
+            decommission(decommission.nodes());
+        } else if (event instanceof SimulationEvent.Fail fail) {
+            setRunning(fail.nodes(), false);
+        } else if (event instanceof SimulationEvent.Recover recover) {
+            setRunning(recover.nodes(), true);
+        }
+        TokenMetadata.Snapshot after = tokenMetadata.snapshot();
+
+        Routing to = new Routing(after.partitioner());
+        // liveness changes keep the partitioner, nothing moves
+        Routing from = before.partitioner() == after.partitioner() ? null : new Routing(before.partitioner());
+        boolean[] down = new boolean[indices.size()];
+        for (Node member : members) {
+            down[indices.get(member.id())] = !member.isRunning();
+        }
+        Tally tally = pool.invoke(new KeyScan(from, to, down, 0, chunks(config.keys())));
+
+        long failedOperations = 0;
+        double requestMaxOverMean = 0;
+        if (event instanceof SimulationEvent.Workload workload) {
+            Tally requests = pool.invoke(new WorkloadScan(workload, random.nextLong(), to, down, 0, chunks(workload.operations())));
+            failedOperations = requests.failedOperations;
+            requestMaxOverMean = requestMaxOverMean(requests.requests);
+        }
+
+        long[] owned = new long[members.size()];
+        int downNodes = 0;
+        for (int i = 0; i < members.size(); i++) {
+            owned[i] = tally.owned[indices.get(members.get(i).id())];
+            downNodes += members.get(i).isRunning() ? 0 : 1;
+        }
+        double mean = (double) config.keys() / members.size();
+        double variance = 0;
+        long max = 0;
+        for (long keys : owned) {
+            variance += (keys - mean) * (keys - mean);
+            max = Math.max(max, keys);
+        }
+        variance /= owned.length;
+
+        return new EventReport(event, members.size(), downNodes,
+            tally.movedKeys, tally.streamedReplicas, tally.streamedReplicas * (Long.BYTES + config.valueBytes()),
+            max / mean, Math.sqrt(variance) / mean,
+            tally.unavailableKeys, failedOperations, requestMaxOverMean, System.nanoTime() - start);
+    }
+
+    /**
+     * Joins, decommissions, failures, recoveries and workloads in random order, up to {@code maxNodes} nodes per event.
+     */
+    public static List<SimulationEvent> randomTimeline(long seed, int events, int maxNodes, long operations) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<SimulationEvent> timeline = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            int nodes = 1 + random.nextInt(maxNodes);
+            int kind = random.nextInt(10);
+            if (kind < 3) {
+                timeline.add(new SimulationEvent.Join(nodes));
+            } else if (kind < 5) {
+                timeline.add(new SimulationEvent.Decommission(nodes));
+            } else if (kind < 6) {
+                timeline.add(new SimulationEvent.Fail(nodes));
+            } else if (kind < 7) {
+                timeline.add(new SimulationEvent.Recover(nodes));
+            } else {
+                double readRatio = Math.round(50 + random.nextDouble() * 50) / 100.0;
+                double skew = Math.round(random.nextDouble() * 90) / 100.0;
+                timeline.add(new SimulationEvent.Workload(operations, readRatio, skew));
+            }
+        }
+
+        return timeline;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // java org.example.sim.Simulator [nodes] [vnodes] [keys] [events] [seed]
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int vnodes = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        long keys = args.length > 2 ? Long.parseLong(args[2]) : 100_000_000L;
+        int events = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        long start = System.nanoTime();
+        try (Simulator simulator = new Simulator(new SimulationConfig(nodes, vnodes, keys, seed))) {
+            System.out.printf("%d nodes x %d vnodes placed in %d ms%n", nodes, vnodes, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("%-52s %7s %5s %8s %14s %8s %8s %12s %8s %9s%n",
+                "event", "members", "down", "moved%", "rebalance MB", "max/avg", "cv", "unavailable", "req max", "wall ms");
+            for (SimulationEvent event : randomTimeline(seed, events, Math.max(1, nodes / 100), keys / 10)) {
+                EventReport report = simulator.apply(event);
+                System.out.printf("%-52s %7d %5d %8.3f %14.1f %8.3f %8.4f %12d %8.3f %9d%n",
+                    report.event(), report.members(), report.downNodes(), 100.0 * report.movedKeys() / keys,
+                    report.rebalanceBytes() / 1e6, report.maxOverMean(), report.coefficientOfVariation(),
+                    report.unavailableKeys(), report.requestMaxOverMean(), report.wallNanos() / 1_000_000);
+            }
+        }
+    }
+
+    // the nodes of one event publish their tokens together, as if they bootstrapped at once
+    private void join(int nodes) {
+        List<Node> joining = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            int index = indices.size();
+            Node node = new Node(random.nextLong(), "node-" + index, "rack" + (index % config.racks()));
+            indices.put(node.id(), index);
+            joining.add(node);
+        }
+        tokenMetadata.updateNormalTokens(config.tokenAllocator().allocateAll(tokenMetadata.snapshot(), joining, config.vnodes()));
+        members.addAll(joining);
+    }
+
+    private void decommission(int nodes) {
+        for (int i = 0; i < nodes && members.size() > 1; i++) {
+            Node node = members.remove(random.nextInt(members.size()));
+            tokenMetadata.removeEndpoint(node);
+        }
+    }
+
+    // stops or starts nodes picked among the members in the other state
+    private void setRunning(int nodes, boolean running) {
+        List<Node> candidates = new ArrayList<>();
+        for (Node member : members) {
+            if (member.isRunning() != running) {
+                candidates.add(member);
+            }
+        }
+        for (int i = 0; i < nodes && !candidates.isEmpty(); i++) {
+            Node node = candidates.remove(random.nextInt(candidates.size()));
+            if (running) {
+                node.start();
+                tokenMetadata.markUp(node);
+            } else {
+                node.stop();
+                tokenMetadata.markDown(node);
+            }
+        }
+    }
+
+    private double requestMaxOverMean(long[] requests) {
+        long total = 0;
+        long max = 0;
+        int live = 0;
+        for (Node member : members) {
+            if (member.isRunning()) {
+                long nodeRequests = requests[indices.get(member.id())];
+                total += nodeRequests;
+                max = Math.max(max, nodeRequests);
+                live++;
+            }
+        }
+
+        return total == 0 ? 0 : max / ((double) total / live);
+    }
+
+    private static long chunks(long count) {
+        return (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    long keyOf(long index) {
+        return config.seed() ^ (index * GOLDEN_GAMMA);
+    }
+
+    // hashes the keys at [first, first + keys.length)
+    private void hashKeys(long[] keys, int[] partitions, long first) {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyOf(first + i);
+        }
+        HashGenerator.hash(keys, partitions);
+    }
+
+    // owner indices of one partitioner translated to tally indices
+    private final class Routing {
+
+        private final Partitioner partitioner;
+        private final int[] indexOf;
+
+        Routing(Partitioner partitioner) {
+            this.partitioner = partitioner;
+            this.indexOf = new int[partitioner.nodeCount()];
+            for (int i = 0; i < indexOf.length; i++) {
+                indexOf[i] = indices.get(partitioner.node(i).id());
+            }
+        }
+
+        // tally indices of the replicas, primary first
+        void replicas(int partition, int[] ownerSink, int[] sink) {
+            partitioner.replicaOwnerIndices(partition, ownerSink);
+            for (int i = 0; i < ownerSink.length; i++) {
+                sink[i] = indexOf[ownerSink[i]];
+            }
+        }
+
+        int replicaCount() {
+            return partitioner.replicas();
+        }
+    }
+
+    // per-node counts and totals of a range of chunks
+    private static final class Tally {
+
+        private final long[] owned;
+        private final long[] requests;
+        private long movedKeys;
+        private long streamedReplicas;
+        private long unavailableKeys;
+        private long failedOperations;
+
+        Tally(int nodes) {
+            this.owned = new long[nodes];
+            this.requests = new long[nodes];
+        }
+
+        Tally merge(Tally other) {
+            for (int i = 0; i < owned.length; i++) {
+                owned[i] += other.owned[i];
+                requests[i] += other.requests[i];
+            }
+            movedKeys += other.movedKeys;
+            streamedReplicas += other.streamedReplicas;
+            unavailableKeys += other.unavailableKeys;
+            failedOperations += other.failedOperations;
+            return this;
+        }
+    }
+
+    // splits [fromChunk, toChunk) in halves down to single chunks
+    @SuppressWarnings("serial")
+    private abstract static class ChunkTask extends RecursiveTask<Tally> {
+
+        final long fromChunk;
+        final long toChunk;
+
+        ChunkTask(long fromChunk, long toChunk) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        abstract Tally chunk(long chunk);
+
+        abstract ChunkTask subtask(long fromChunk, long toChunk);
+
+        @Override
+        protected Tally compute() {
+            if (toChunk - fromChunk <= 1) {
+                return chunk(fromChunk);
+            }
+
+            long middle = (fromChunk + toChunk) >>> 1;
+            ChunkTask left = subtask(fromChunk, middle);
+            left.fork();
+            Tally right = subtask(middle, toChunk).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // ownership, movement and availability of every key
+    @SuppressWarnings("serial")
+    private final class KeyScan extends ChunkTask {
+
+        private final Routing from;
+        private final Routing to;
+        private final boolean[] down;
+
+        KeyScan(Routing from, Routing to, boolean[] down, long fromChunk, long toChunk) {
+            super(fromChunk, toChunk);
+            this.from = from;
+            this.to = to;
+            this.down = down;
+        }
+
+        @Override
+        ChunkTask subtask(long fromChunk, long toChunk) {
+            return new KeyScan(from, to, down, fromChunk, toChunk);
+        }
+
+        @Override
+        Tally chunk(long chunk) {
+            Tally tally = new Tally(down.length);
+            long first = chunk * CHUNK_SIZE;
+            if (first >= config.keys()) {
+                return tally;
+            }
+            long[] keys = new long[(int) Math.min(CHUNK_SIZE, config.keys() - first)];
+            int[] partitions = new int[keys.length];
+            hashKeys(keys, partitions, first);
+
+            int[] afterOwners = new int[to.replicaCount()];
+            int[] after = new int[afterOwners.length];
+            int[] beforeOwners = new int[from == null ? 0 : from.replicaCount()];
+            int[] before = new int[beforeOwners.length];
+            for (int partition : partitions) {
+                to.replicas(partition, afterOwners, after);
+                tally.owned[after[0]]++;
+                boolean available = false;
+                for (int replica : after) {
+                    available |= !down[replica];
+                }
+                if (!available) {
+                    tally.unavailableKeys++;
+                }
+                if (from == null) {
+                    continue;
+                }
+
+                from.replicas(partition, beforeOwners, before);
+                if (before[0] != after[0]) {
+                    tally.movedKeys++;
+                }
+                for (int replica : after) {
+                    if (!contains(before, replica)) {
+                        tally.streamedReplicas++;
+                    }
+                }
+            }
+
+            return tally;
+        }
+    }
+
+    // requests per node of a slice of the workload, every chunk draws from its own seeded random
+    @SuppressWarnings("serial")
+    private final class WorkloadScan extends ChunkTask {
+
+        private final SimulationEvent.Workload workload;
+        private final long seed;
+        private final Routing to;
+        private final boolean[] down;
+
+        WorkloadScan(SimulationEvent.Workload workload, long seed, Routing to, boolean[] down, long fromChunk, long toChunk) {
+            super(fromChunk, toChunk);
+            this.workload = workload;
+            this.seed = seed;
+            this.to = to;
+            this.down = down;
+        }
+
+        @Override
+        ChunkTask subtask(long fromChunk, long toChunk) {
+            return new WorkloadScan(workload, seed, to, down, fromChunk, toChunk);
+        }
+
+        @Override
+        Tally chunk(long chunk) {
+            Tally tally = new Tally(down.length);
+            long first = chunk * CHUNK_SIZE;
+            if (first >= workload.operations()) {
+                return tally;
+            }
+            SplittableRandom chunkRandom = new SplittableRandom(seed + chunk);
+            long[] keys = new long[(int) Math.min(CHUNK_SIZE, workload.operations() - first)];
+            int[] partitions = new int[keys.length];
+            // continuous power law over the key indices, density ~ x^-skew
+            double exponent = 1 / (1 - workload.skew());
+            for (int i = 0; i < keys.length; i++) {
+                long index = (long) (config.keys() * Math.pow(chunkRandom.nextDouble(), exponent));
+                keys[i] = keyOf(Math.min(index, config.keys() - 1));
+            }
+            HashGenerator.hash(keys, partitions);
+
+            int[] ownerSink = new int[to.replicaCount()];
+            int[] replicas = new int[to.replicaCount()];
+            for (int partition : partitions) {
+                to.replicas(partition, ownerSink, replicas);
+                boolean read = chunkRandom.nextDouble() < workload.readRatio();
+                boolean served = false;
+                for (int replica : replicas) {
+                    if (down[replica]) {
+                        continue;
+                    }
+                    tally.requests[replica]++;
+                    served = true;
+                    if (read) {
+                        break;
+                    }
+                }
+                if (!served) {
+                    tally.failedOperations++;
+                }
+            }
+
+            return tally;
+        }
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.stream;
+
+/**
+ * Point-in-time progress of one range transfer, the range is {@code [fromPartition, toPartition)}.
+ */
+public record RangeProgress(
+    String source,
+    String target,
+    int fromPartition,
+    int toPartition,
+    State state,
+    long entities,
+    long bytes
+) {
+
+    public enum State {
+        PENDING,
+        STREAMING,
+        COMPLETED,
+        FAILED
+    }
+}
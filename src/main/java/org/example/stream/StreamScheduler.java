@@ -0,0 +1,110 @@
+package org.example.stream;
+
+import org.example.db.Entity;
+import org.example.db.ScanCursor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the range transfers of bootstrap and decommission in parallel on a bounded executor.
+ * Concurrent streams are capped per source and per target node, and every stream shares one bytes/sec throttle,
+ * so donors keep capacity for foreground traffic.
+ * On JDK 21+ a virtual-thread executor ({@code Executors.newVirtualThreadPerTaskExecutor()}) can be passed in,
+ * since waiting on the limits then costs no platform thread.
+ */
+public class StreamScheduler {
+
+    private final ExecutorService executor;
+    private final int maxStreamsPerSource;
+    private final int maxStreamsPerTarget;
+    private final Throttle throttle;
+    private final int pageSize;
+    private final Map<Long, Semaphore> sourceLimits = new ConcurrentHashMap<>();
+    private final Map<Long, Semaphore> targetLimits = new ConcurrentHashMap<>();
+    private final List<StreamSession> activeSessions = new CopyOnWriteArrayList<>();
+
+    public StreamScheduler() {
+        this(defaultExecutor(), 2, 2, 0, ScanCursor.DEFAULT_PAGE_SIZE);
+    }
+
+    // bytesPerSecond <= 0 disables throttling
+    public StreamScheduler(ExecutorService executor,
+                           int maxStreamsPerSource,
+                           int maxStreamsPerTarget,
+                           long bytesPerSecond,
+                           int pageSize
+    ) {
+        if (maxStreamsPerSource <= 0 || maxStreamsPerTarget <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Stream limits and page size must be positive");
+        }
+        this.executor = executor;
+        this.maxStreamsPerSource = maxStreamsPerSource;
+        this.maxStreamsPerTarget = maxStreamsPerTarget;
+        this.throttle = new Throttle(bytesPerSecond);
+        this.pageSize = pageSize;
+    }
+
+    public StreamSession newSession(String description) {
+        StreamSession session = new StreamSession(this, description);
+        activeSessions.add(session);
+        return session;
+    }
+
+    // sessions not awaited yet, for progress reporting
+    public List<StreamSession> activeSessions() {
+        return List.copyOf(activeSessions);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // one thread per core, idle threads exit
+    private static ExecutorService defaultExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // approximate wire size of a streamed entity
+    public static long sizeOf(Entity entity) {
+        return Long.BYTES + (entity.value() == null ? 0 : entity.value().length());
+    }
+
+    void complete(StreamSession session) {
+        activeSessions.remove(session);
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+
+    Throttle throttle() {
+        return throttle;
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+
+    Semaphore sourceLimit(long nodeId) {
+        return sourceLimits.computeIfAbsent(nodeId, id -> new Semaphore(maxStreamsPerSource));
+    }
+
+    Semaphore targetLimit(long nodeId) {
+        return targetLimits.computeIfAbsent(nodeId, id -> new Semaphore(maxStreamsPerTarget));
+    }
+}
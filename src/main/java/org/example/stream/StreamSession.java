@@ -0,0 +1,276 @@
+package org.example.stream;
+
+import org.example.Node;
+import org.example.Result;
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.ScanCursor;
+import org.example.metrics.HandoffEvent;
+import org.example.metrics.Metrics;
+import org.example.metrics.RangeScanEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Range transfers of one topology change, e.g. every range a joining node takes over.
+ * Each range holds one scan page in memory at a time.
+ */
+public class StreamSession {
+
+    private final StreamScheduler scheduler;
+    private final String description;
+    private final List<RangeTransfer> transfers = new CopyOnWriteArrayList<>();
+    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    private final long startNanos = System.nanoTime();
+    private volatile long durationNanos = -1;
+
+    StreamSession(StreamScheduler scheduler, String description) {
+        this.scheduler = scheduler;
+        this.description = description;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    // streams [fromPartition, toPartition) from source to target
+    public void submit(Node source, Node target, int fromPartition, int toPartition) {
+        submit(new RangeTransfer(source, target, fromPartition, toPartition, partition -> target));
+    }
+
+    /**
+     * Streams every entity of {@code [fromPartition, toPartition)} to the node the route picks for its partition,
+     * in one scan of the source with a batch per target; entities routed to null or the source stay.
+     * Its progress has no single target.
+     */
+    public void submit(Node source, int fromPartition, int toPartition, IntFunction<Node> route) {
+        submit(new RangeTransfer(source, null, fromPartition, toPartition, route));
+    }
+
+    private void submit(RangeTransfer transfer) {
+        transfers.add(transfer);
+        futures.add(scheduler.executor().submit(transfer::run));
+    }
+
+    // blocks until every submitted range is streamed, rethrows the first failure
+    public void await() {
+        DatabaseOperationFailedException failure;
+        try {
+            failure = awaitAll();
+        } finally {
+            durationNanos = System.nanoTime() - startNanos;
+            scheduler.complete(this);
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.recordRebalance(summary());
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private DatabaseOperationFailedException awaitAll() {
+        DatabaseOperationFailedException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new DatabaseOperationFailedException("Error while streaming " + description, e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatabaseOperationFailedException("Interrupted while streaming " + description, e);
+            }
+        }
+
+        return failure;
+    }
+
+    public List<RangeProgress> progress() {
+        List<RangeProgress> progress = new ArrayList<>(transfers.size());
+        for (RangeTransfer transfer : transfers) {
+            progress.add(transfer.progress());
+        }
+
+        return progress;
+    }
+
+    // totals over every range, the duration runs until await returns
+    public Metrics.RebalanceSnapshot summary() {
+        long entities = 0;
+        long bytes = 0;
+        boolean failed = false;
+        List<RangeProgress> progress = progress();
+        for (RangeProgress range : progress) {
+            entities += range.entities();
+            bytes += range.bytes();
+            failed |= range.state() == RangeProgress.State.FAILED;
+        }
+        long duration = durationNanos >= 0 ? durationNanos : System.nanoTime() - startNanos;
+
+        return new Metrics.RebalanceSnapshot(description, progress.size(), entities, bytes, duration, failed);
+    }
+
+    private final class RangeTransfer {
+
+        private final Node source;
+        // null when routed per partition
+        private final Node target;
+        private final int fromPartition;
+        private final int toPartition;
+        private final IntFunction<Node> route;
+        private final AtomicLong entities = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile RangeProgress.State state = RangeProgress.State.PENDING;
+
+        RangeTransfer(Node source, Node target, int fromPartition, int toPartition, IntFunction<Node> route) {
+            this.source = source;
+            this.target = target;
+            this.fromPartition = fromPartition;
+            this.toPartition = toPartition;
+            this.route = route;
+        }
+
+        RangeProgress progress() {
+            return new RangeProgress(source.nodeName(), target == null ? null : target.nodeName(), fromPartition, toPartition, state, entities.get(), bytes.get());
+        }
+
+        void run() {
+            // sources are always acquired before targets, so transfers cannot deadlock on the limits
+            // a routed transfer takes the limit of each target for one handoff at a time
+            Semaphore sourceLimit = scheduler.sourceLimit(source.id());
+            try {
+                sourceLimit.acquire();
+                try {
+                    if (target != null) {
+                        scheduler.targetLimit(target.id()).acquire();
+                    }
+                    try {
+                        state = RangeProgress.State.STREAMING;
+                        stream();
+                        state = RangeProgress.State.COMPLETED;
+                    } finally {
+                        if (target != null) {
+                            scheduler.targetLimit(target.id()).release();
+                        }
+                    }
+                } finally {
+                    sourceLimit.release();
+                }
+            } catch (InterruptedException e) {
+                state = RangeProgress.State.FAILED;
+                Thread.currentThread().interrupt();
+                throw new DatabaseOperationFailedException("Interrupted while streaming from node " + source.nodeName(), e);
+            } catch (RuntimeException e) {
+                state = RangeProgress.State.FAILED;
+                throw e;
+            }
+        }
+
+        private void stream() throws InterruptedException {
+            RangeScanEvent event = new RangeScanEvent();
+            event.begin();
+            scan();
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source.nodeName();
+                event.target = target == null ? null : target.nodeName();
+                event.fromPartition = fromPartition;
+                event.toPartition = toPartition;
+                event.entities = entities.get();
+                event.bytes = bytes.get();
+                event.commit();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void scan() throws InterruptedException {
+            int pageSize = scheduler.pageSize();
+            Result result = source.process(new DbAccess.ScanAccess(fromPartition, toPartition, pageSize));
+            if (result instanceof Result.Error) {
+                throw new DatabaseOperationFailedException("Error while scanning node " + source.nodeName());
+            }
+
+            ScanCursor cursor = ((Result.Ok<ScanCursor>) result).value();
+            // one pending batch per target
+            Map<Node, Batch> batches = new LinkedHashMap<>();
+            while (cursor.hasNext()) {
+                Entity entity = cursor.next();
+                int partition = cursor.partition();
+                Node to = route.apply(partition);
+                if (to == null || to == source) {
+                    continue;
+                }
+                Batch batch = batches.computeIfAbsent(to, node -> new Batch(pageSize));
+                batch.accesses.add(new DbAccess.PutAccess(entity.id(), partition, entity.value()));
+                batch.bytes += StreamScheduler.sizeOf(entity);
+                if (batch.accesses.size() == pageSize) {
+                    handoff(to, batches.remove(to));
+                }
+            }
+            for (Map.Entry<Node, Batch> batch : batches.entrySet()) {
+                handoff(batch.getKey(), batch.getValue());
+            }
+        }
+
+        private void handoff(Node to, Batch batch) throws InterruptedException {
+            if (target != null) {
+                handoff(to, batch.accesses, batch.bytes);
+                return;
+            }
+
+            Semaphore targetLimit = scheduler.targetLimit(to.id());
+            targetLimit.acquire();
+            try {
+                handoff(to, batch.accesses, batch.bytes);
+            } finally {
+                targetLimit.release();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void handoff(Node target, List<DbAccess> batch, long batchBytes) throws InterruptedException {
+            scheduler.throttle().acquire(batchBytes);
+            HandoffEvent event = new HandoffEvent();
+            event.begin();
+            Result result = target.processBatch(batch);
+            event.end();
+            if (event.shouldCommit()) {
+                event.target = target.nodeName();
+                event.entities = batch.size();
+                event.bytes = batchBytes;
+                event.commit();
+            }
+            if (result instanceof Result.Error
+                || ((Result.Ok<List<Result>>) result).value().stream().anyMatch(r -> r instanceof Result.Error)) {
+                throw new DatabaseOperationFailedException("Error while handing off to node " + target.nodeName());
+            }
+
+            entities.addAndGet(batch.size());
+            bytes.addAndGet(batchBytes);
+        }
+    }
+
+    private static final class Batch {
+        private final List<DbAccess> accesses;
+        private long bytes;
+
+        Batch(int pageSize) {
+            this.accesses = new ArrayList<>(pageSize);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.stream;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by every stream of a scheduler, callers going over the rate sleep off their debt.
+ */
+public final class Throttle {
+
+    private final long bytesPerSecond;
+    private long available;
+    private long refilledAt;
+
+    // bytesPerSecond <= 0 disables throttling
+    public Throttle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = bytesPerSecond;
+        this.refilledAt = System.nanoTime();
+    }
+
+    public boolean isUnlimited() {
+        return bytesPerSecond <= 0;
+    }
+
+    public void acquire(long bytes) throws InterruptedException {
+        if (isUnlimited()) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // beyond a second the bucket is full anyway
+            long elapsed = Math.min(now - refilledAt, TimeUnit.SECONDS.toNanos(1));
+            long refill = elapsed * bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+            if (refill > 0) {
+                // at most one second of burst
+                available = Math.min(bytesPerSecond, available + refill);
+                refilledAt = now;
+            }
+            available -= bytes;
+            waitNanos = available >= 0 ? 0 : -available * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        }
+
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
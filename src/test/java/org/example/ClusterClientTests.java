@@ -0,0 +1,46 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.Snowflake;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+public class ClusterClientTests {
+
+    @Test
+    void test_batch_is_routed_to_owners() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(128);
+        for (int i = 0; i < 3; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        TokenMetadata tokenMetadata = topology.nodes.values().iterator().next().getTokenMetadata();
+        ClusterClient client = new ClusterClient(tokenMetadata);
+
+        int size = 1000;
+        long[] keys = new long[size];
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+            values[i] = "v" + i;
+        }
+        client.putAll(keys, values);
+
+        List<Entity> entities = client.getAll(keys);
+        for (int i = 0; i < size; i++) {
+            Assertions.assertEquals(values[i], entities.get(i).value());
+            // stored on the owner
+            Node owner = tokenMetadata.getTokenRing().getNode(HashGenerator.hash(keys[i]));
+            @SuppressWarnings("unchecked")
+            Entity stored = ((Result.Ok<Entity>) owner.process(new DbAccess.GetAccess(keys[i]))).value();
+            Assertions.assertEquals(values[i], stored.value());
+        }
+
+        client.deleteAll(keys);
+        Assertions.assertTrue(client.getAll(keys).stream().allMatch(entity -> entity == null));
+    }
+}
@@ -3,12 +3,14 @@ package org.example;
 import org.example.db.DbAccess;
 import org.example.db.Entity;
 import org.example.db.Snowflake;
+import org.example.stream.StreamScheduler;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 public class ConsistentHashingTests {
 
@@ -126,4 +128,81 @@ public class ConsistentHashingTests {
 
         Assertions.assertTrue(rebalanced);
     }
+
+    @Test
+    void test_data_follows_ownership_on_node_joins() throws NoSuchAlgorithmException {
+        int vnodes = 256;
+        // small pages, many of them per range
+        StreamScheduler streamScheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 16);
+        Topology topology = new Topology(vnodes, streamScheduler);
+        String nodeId1 = "node-1";
+        Node n1 = new Node(HashGenerator.generateNodeId(nodeId1), nodeId1);
+        topology.join(n1);
+
+        // insert
+        long[] ids = new long[4096];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Snowflake.getInstance().nextId();
+            n1.process(new DbAccess.PutAccess(ids[i], "v" + i));
+        }
+
+        // new nodes join
+        for (String nodeId : new String[]{"node-2", "node-3"}) {
+            Node node = new Node(HashGenerator.generateNodeId(nodeId), nodeId);
+            topology.join(node);
+        }
+
+        TokenRing ring = n1.getTokenMetadata().getTokenRing();
+        for (int i = 0; i < ids.length; i++) {
+            Node owner = ring.getNode(HashGenerator.hash(ids[i]));
+            Result result = owner.process(new DbAccess.GetAccess(ids[i]));
+
+            @SuppressWarnings("unchecked")
+            Entity entity = ((Result.Ok<Entity>) result).value();
+            Assertions.assertNotNull(entity, "missing on owner " + owner.nodeName());
+            Assertions.assertEquals("v" + i, entity.value());
+        }
+        streamScheduler.shutdown();
+    }
+
+    @Test
+    void test_balance_loads_moves_data_with_spilled_ranges() throws NoSuchAlgorithmException {
+        StreamScheduler streamScheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 64);
+        Topology topology = new Topology(8, streamScheduler);
+        for (int i = 0; i < 4; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        Node n1 = topology.nodes.values().iterator().next();
+        long[] ids = new long[8192];
+        String[] values = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Snowflake.getInstance().nextId();
+            values[i] = "v" + i;
+        }
+        new ClusterClient(n1.getTokenMetadata()).putAll(ids, values);
+        long maxBefore = maxLoad(n1.getTokenMetadata().getTokenRing(), ids);
+
+        topology.balanceLoads(0.1);
+
+        TokenRing ring = n1.getTokenMetadata().getTokenRing();
+        Assertions.assertTrue(maxLoad(ring, ids) <= maxBefore);
+        for (int i = 0; i < ids.length; i++) {
+            Node owner = ring.getNode(HashGenerator.hash(ids[i]));
+            @SuppressWarnings("unchecked")
+            Entity entity = ((Result.Ok<Entity>) owner.process(new DbAccess.GetAccess(ids[i]))).value();
+            Assertions.assertNotNull(entity, "missing on owner " + owner.nodeName());
+            Assertions.assertEquals("v" + i, entity.value());
+        }
+        streamScheduler.shutdown();
+    }
+
+    private static long maxLoad(TokenRing ring, long[] ids) {
+        Map<Node, Long> loads = new HashMap<>();
+        for (long id : ids) {
+            loads.merge(ring.getNode(HashGenerator.hash(id)), 1L, Long::sum);
+        }
+
+        return loads.values().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
 }
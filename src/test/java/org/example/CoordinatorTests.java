@@ -0,0 +1,135 @@
+package org.example;
+
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.Snowflake;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CoordinatorTests {
+
+    @Test
+    void test_levels_tolerate_failed_replicas() throws NoSuchAlgorithmException {
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String nodeName = "node-" + i;
+            nodes.add(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        Node failing = new Node(HashGenerator.generateNodeId("node-3"), "node-3") {
+            @Override
+            public Result process(DbAccess access) {
+                return new Result.Error(new DatabaseOperationFailedException("disk failure"));
+            }
+        };
+        nodes.add(failing);
+        for (Node node : nodes) {
+            List<Token> tokens = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tokens.add(new Token(HashGenerator.hash(node.id() * 31 + i), "murmur3"));
+            }
+            tokenMetadata.updateNormalToken(node, tokens);
+        }
+        Coordinator coordinator = new Coordinator(tokenMetadata);
+
+        // a key replicated on the failing node
+        long key;
+        do {
+            key = Snowflake.getInstance().nextId();
+        } while (!tokenMetadata.getTokenRing().getReplicas(HashGenerator.hash(key)).contains(failing));
+        final long replicatedKey = key;
+
+        coordinator.put(replicatedKey, "v", ConsistencyLevel.QUORUM);
+        Assertions.assertEquals("v", coordinator.get(replicatedKey, ConsistencyLevel.ONE).value());
+        Assertions.assertEquals("v", coordinator.get(replicatedKey, ConsistencyLevel.QUORUM).value());
+        Assertions.assertThrows(DatabaseOperationFailedException.class, () -> coordinator.get(replicatedKey, ConsistencyLevel.ALL));
+        Assertions.assertThrows(DatabaseOperationFailedException.class, () -> coordinator.put(replicatedKey, "w", ConsistencyLevel.ALL));
+
+        // the healthy replicas hold the write
+        for (Node replica : tokenMetadata.getTokenRing().getReplicas(HashGenerator.hash(replicatedKey))) {
+            if (replica != failing) {
+                @SuppressWarnings("unchecked")
+                Entity stored = ((Result.Ok<Entity>) replica.process(new DbAccess.GetAccess(replicatedKey))).value();
+                Assertions.assertNotNull(stored);
+            }
+        }
+
+        coordinator.delete(replicatedKey, ConsistencyLevel.QUORUM);
+        Assertions.assertNull(coordinator.get(replicatedKey, ConsistencyLevel.QUORUM));
+    }
+
+    @Test
+    void test_hedged_reads_avoid_a_slow_replica() throws Exception {
+        // the snitch only refreshes when this clock moves
+        AtomicLong clock = new AtomicLong();
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String nodeName = "node-" + i;
+            nodes.add(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        // once held, the slow replica answers nothing until released
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean holding = new AtomicBoolean();
+        Node slow = new Node(HashGenerator.generateNodeId("node-3"), "node-3") {
+            @Override
+            public Result process(DbAccess access) {
+                if (holding.get()) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.process(access);
+            }
+        };
+        nodes.add(slow);
+        for (Node node : nodes) {
+            List<Token> tokens = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tokens.add(new Token(HashGenerator.hash(node.id() * 31 + i), "murmur3"));
+            }
+            tokenMetadata.updateNormalToken(node, tokens);
+        }
+        ExecutorService executor = Executors.newCachedThreadPool();
+        Coordinator coordinator = new Coordinator(tokenMetadata, executor, new LatencyTracker(LatencyTracker.DEFAULT_WINDOW_NANOS, clock::get), 0.99);
+
+        // written through another coordinator, reads start without latency samples
+        Coordinator writer = new Coordinator(tokenMetadata, executor);
+        List<Long> keys = new ArrayList<>();
+        while (keys.size() < 20) {
+            long key = Snowflake.getInstance().nextId();
+            if (tokenMetadata.getTokenRing().getReplicas(HashGenerator.hash(key)).get(0) == slow) {
+                writer.put(key, "v", ConsistencyLevel.ALL);
+                keys.add(key);
+            }
+        }
+
+        holding.set(true);
+        for (long key : keys) {
+            // a read completing while the slow replica is held was answered by the others
+            Result result = coordinator.submit(new DbAccess.GetAccess(key), ConsistencyLevel.QUORUM).get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals("v", ((Entity) ((Result.Ok<?>) result).value()).value());
+        }
+
+        // once its late replies are measured and the snitch refreshes, the slow replica ranks last
+        release.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        clock.addAndGet(DynamicSnitch.DEFAULT_UPDATE_INTERVAL_NANOS);
+        List<Node> ranked = coordinator.getSnitch().sortByProximity(tokenMetadata.getTokenRing().getReplicas(HashGenerator.hash(keys.get(0))));
+        Assertions.assertSame(slow, ranked.get(ranked.size() - 1));
+    }
+}
@@ -0,0 +1,39 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Storage;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Node whose accesses are held back by an injected delay, for simulating GC pauses, compaction or streaming load.
+ */
+public class DelayedNode extends Node {
+
+    private volatile LongSupplier delayNanos;
+
+    public DelayedNode(long id, String nodeName, LongSupplier delayNanos) {
+        super(id, nodeName);
+        this.delayNanos = delayNanos;
+    }
+
+    public DelayedNode(long id, String nodeName, String rack, Storage database, LongSupplier delayNanos) {
+        super(id, nodeName, rack, database);
+        this.delayNanos = delayNanos;
+    }
+
+    public void setDelay(LongSupplier delayNanos) {
+        this.delayNanos = delayNanos;
+    }
+
+    @Override
+    public Result process(DbAccess access) {
+        long deadline = System.nanoTime() + delayNanos.getAsLong();
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+
+        return super.process(access);
+    }
+}
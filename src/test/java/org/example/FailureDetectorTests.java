@@ -0,0 +1,207 @@
+package org.example;
+
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.gossip.GossipNetwork;
+import org.example.gossip.GossipScheduler;
+import org.example.gossip.Gossiper;
+import org.example.stream.StreamScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FailureDetectorTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void test_phi_adapts_to_the_heartbeat_interval() {
+        AtomicLong clock = new AtomicLong();
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        Node node = new Node(1, "node-1");
+        FailureDetector detector = new FailureDetector(8, SECOND, clock::get, FailureDetector.tokenMetadataListener(tokenMetadata));
+
+        for (int i = 0; i < 20; i++) {
+            detector.heartbeat(node);
+            clock.addAndGet(SECOND / 10);
+        }
+        // ten intervals of silence
+        clock.addAndGet(SECOND - SECOND / 10);
+        detector.interpret();
+        Assertions.assertTrue(detector.isAlive(node), "phi " + detector.phi(node));
+        Assertions.assertFalse(tokenMetadata.isDown(node));
+
+        clock.addAndGet(SECOND);
+        detector.interpret();
+        Assertions.assertFalse(detector.isAlive(node), "phi " + detector.phi(node));
+        Assertions.assertTrue(tokenMetadata.isDown(node));
+
+        detector.heartbeat(node);
+        Assertions.assertTrue(detector.isAlive(node));
+        Assertions.assertFalse(tokenMetadata.isDown(node));
+    }
+
+    @Test
+    void test_transitions_reach_the_listener_in_order() throws InterruptedException {
+        AtomicLong clock = new AtomicLong();
+        Node node = new Node(1, "node-1");
+        List<String> transitions = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch convicting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FailureDetector detector = new FailureDetector(8, SECOND, clock::get, new FailureDetector.Listener() {
+            @Override
+            public void onDown(Node down) {
+                convicting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                transitions.add("down");
+            }
+
+            @Override
+            public void onUp(Node up) {
+                transitions.add("up");
+            }
+        });
+        detector.heartbeat(node);
+        clock.addAndGet(100 * SECOND);
+
+        Thread interpreter = new Thread(detector::interpret);
+        interpreter.start();
+        convicting.await();
+        // the heartbeat revives the node while its conviction is being delivered
+        Thread heartbeat = new Thread(() -> detector.heartbeat(node));
+        heartbeat.start();
+        heartbeat.join(100);
+        release.countDown();
+        interpreter.join();
+        heartbeat.join();
+
+        Assertions.assertEquals(List.of("down", "up"), transitions);
+        Assertions.assertTrue(detector.isAlive(node));
+    }
+
+    @Test
+    void test_gossip_convicts_a_stopped_node() {
+        AtomicLong clock = new AtomicLong();
+        GossipNetwork network = new GossipNetwork();
+        List<Node> nodes = new ArrayList<>();
+        List<Gossiper> gossipers = new ArrayList<>();
+        List<FailureDetector> detectors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Node node = new Node(i, "node-" + i);
+            node.updateTokenMetadata(new TokenMetadata());
+            FailureDetector detector = new FailureDetector(8, SECOND, clock::get, FailureDetector.tokenMetadataListener(node.getTokenMetadata()));
+            Gossiper gossiper = new Gossiper(node, network, 4, 1, null, detector);
+            gossiper.publish(NodeStatus.STABLE, List.of());
+            nodes.add(node);
+            gossipers.add(gossiper);
+            detectors.add(detector);
+        }
+        for (int i = 1; i < gossipers.size(); i++) {
+            gossipers.get(i).addSeed(gossipers.get(0));
+        }
+
+        SplittableRandom random = new SplittableRandom(1);
+        Node stopped = nodes.get(4);
+        for (int round = 0; round < 60; round++) {
+            if (round == 20) {
+                stopped.stop();
+            }
+            if (round == 50) {
+                stopped.start();
+            }
+            for (FailureDetector detector : detectors) {
+                detector.interpret();
+            }
+            for (Gossiper gossiper : gossipers) {
+                gossiper.round(random);
+            }
+            clock.addAndGet(SECOND);
+
+            boolean down = nodes.get(0).getTokenMetadata().isDown(stopped);
+            if (round < 20 || round >= 50) {
+                Assertions.assertFalse(down, "down in round " + round);
+            } else if (round >= 45) {
+                Assertions.assertTrue(down, "up in round " + round);
+            }
+        }
+    }
+
+    @Test
+    void test_routing_skips_down_replicas() {
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        AtomicInteger accesses = new AtomicInteger();
+        List<Node> nodes = List.of(new Node(0, "node-0"), new Node(1, "node-1"), new Node(2, "node-2") {
+            @Override
+            public Result process(DbAccess access) {
+                accesses.incrementAndGet();
+                return super.process(access);
+            }
+        });
+        for (int i = 0; i < nodes.size(); i++) {
+            tokenMetadata.updateNormalToken(nodes.get(i), List.of(new Token(i * 1_000_000_000, "test")));
+        }
+        tokenMetadata.markDown(nodes.get(2));
+        Coordinator coordinator = new Coordinator(tokenMetadata, Runnable::run, new LatencyTracker(), 0, null);
+        ClusterClient client = new ClusterClient(tokenMetadata);
+
+        coordinator.put(42, "v", ConsistencyLevel.QUORUM);
+        Assertions.assertEquals("v", coordinator.get(42, ConsistencyLevel.QUORUM).value());
+        Assertions.assertThrows(DatabaseOperationFailedException.class, () -> coordinator.get(42, ConsistencyLevel.ALL));
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("v", client.getAll(new long[]{42}).get(0).value());
+        }
+        Assertions.assertEquals(0, accesses.get());
+    }
+
+    @Test
+    void test_topology_convicts_a_stopped_node_on_the_gossip_scheduler() throws Exception {
+        GossipScheduler scheduler = new GossipScheduler(2);
+        try {
+            Topology topology = new Topology(8, 2, new SimpleStrategy(), PartitionStrategy.RING, new RandomTokenAllocator(),
+                new StreamScheduler(), scheduler, 10);
+            List<Node> nodes = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Node node = new Node(i, "node-" + i);
+                topology.join(node);
+                nodes.add(node);
+            }
+            Node observer = nodes.get(0);
+            Node stopped = nodes.get(2);
+            FailureDetector detector = topology.getFailureDetector(observer);
+            // a node never heard from is never suspected, wait for its heartbeats to arrive
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (detector.phi(stopped) == 0) {
+                Assertions.assertTrue(System.nanoTime() - deadline < 0, "never heard from " + stopped.nodeName());
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+
+            stopped.stop();
+            awaitDown(observer, stopped, true);
+            stopped.start();
+            awaitDown(observer, stopped, false);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void awaitDown(Node observer, Node node, boolean down) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (observer.getTokenMetadata().isDown(node) != down) {
+            Assertions.assertTrue(System.nanoTime() - deadline < 0, (down ? "never down: " : "never up: ") + node.nodeName());
+            Thread.sleep(10);
+        }
+    }
+}
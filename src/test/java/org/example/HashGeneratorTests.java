@@ -0,0 +1,54 @@
+package org.example;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class HashGeneratorTests {
+
+    @Test
+    void test_bulk_hash_matches_murmur3() {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < 4 ? new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE}[i] : random.nextLong();
+        }
+
+        int[] partitions = new int[keys.length];
+        HashGenerator.hash(keys, partitions);
+        for (int i = 0; i < keys.length; i++) {
+            Assertions.assertEquals(MurmurHash3.hash32(keys[i]), partitions[i]);
+        }
+    }
+
+    @Test
+    void test_node_ids_are_stable_across_threads() throws Exception {
+        long expected = HashGenerator.generateNodeId("node-1");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (HashGenerator.generateNodeId("node-1") != expected) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assertions.assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
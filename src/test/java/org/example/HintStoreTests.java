@@ -0,0 +1,225 @@
+package org.example;
+
+import org.example.db.DatabaseOperationFailedException;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.gossip.GossipNetwork;
+import org.example.gossip.Gossiper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HintStoreTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_missed_writes_are_replayed_when_the_node_is_back() {
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Node node = new Node(i, "node-" + i);
+            tokenMetadata.updateNormalToken(node, List.of(new Token(i * 1_000_000_000, "test")));
+            nodes.add(node);
+        }
+        HintStore hintStore = new HintStore();
+        // replies complete before put returns
+        Coordinator coordinator = new Coordinator(tokenMetadata, Runnable::run, new LatencyTracker(), 0, hintStore);
+
+        GossipNetwork network = new GossipNetwork();
+        Gossiper local = new Gossiper(nodes.get(0), network, 2, 1, hintStore.replayOnStable(Runnable::run));
+        local.publish(NodeStatus.STABLE, List.of());
+
+        Node restarted = nodes.get(2);
+        restarted.stop();
+        for (long key = 0; key < 50; key++) {
+            coordinator.put(key, "v" + key, ConsistencyLevel.QUORUM);
+        }
+        coordinator.delete(7, ConsistencyLevel.QUORUM);
+        Assertions.assertEquals(51, hintStore.pending(restarted));
+
+        restarted.start();
+        Gossiper announcement = new Gossiper(restarted, network, 2, 2, null);
+        announcement.publish(NodeStatus.STABLE, List.of());
+        announcement.addSeed(local);
+        Assertions.assertTrue(network.runUntilConverged(1, 10).converged());
+
+        Assertions.assertEquals(0, hintStore.pending(restarted));
+        Assertions.assertEquals(0, hintStore.bytes());
+        for (long key = 0; key < 50; key++) {
+            Entity stored = ((Result.Ok<Entity>) restarted.process(new DbAccess.GetAccess(key))).value();
+            if (key == 7) {
+                Assertions.assertNull(stored);
+            } else {
+                Assertions.assertEquals("v" + key, stored.value());
+            }
+        }
+    }
+
+    @Test
+    void test_hints_are_bounded_and_expire() {
+        AtomicLong clock = new AtomicLong();
+        HintStore hintStore = new HintStore(200, 1_000, clock::get);
+        Node target = new Node(1, "node-1");
+        target.stop();
+
+        int stored = 0;
+        for (long key = 0; key < 100; key++) {
+            if (hintStore.store(target, new DbAccess.PutAccess(key, "value"))) {
+                stored++;
+            }
+        }
+        Assertions.assertTrue(stored > 0 && stored < 100);
+        Assertions.assertEquals(100 - stored, hintStore.dropped());
+        Assertions.assertTrue(hintStore.bytes() <= 200);
+
+        // still down, hints stay queued
+        Assertions.assertEquals(0, hintStore.replay(target));
+        Assertions.assertEquals(stored, hintStore.pending(target));
+
+        target.start();
+        clock.set(1_000);
+        Assertions.assertEquals(0, hintStore.replay(target));
+        Assertions.assertEquals(0, hintStore.pending(target));
+        Assertions.assertEquals(100, hintStore.dropped());
+        Assertions.assertEquals(0, hintStore.bytes());
+    }
+
+    @Test
+    void test_expired_hints_are_purged_when_the_store_is_full() {
+        AtomicLong clock = new AtomicLong();
+        HintStore hintStore = new HintStore(200, 1_000, clock::get);
+        Node gone = new Node(1, "node-1");
+        Node target = new Node(2, "node-2");
+
+        long key = 0;
+        while (hintStore.store(gone, new DbAccess.PutAccess(key, "value"))) {
+            key++;
+        }
+        Assertions.assertEquals(1, hintStore.dropped());
+
+        // the hints of a node that never comes back expire and make room
+        clock.set(1_000);
+        Assertions.assertTrue(hintStore.store(target, new DbAccess.PutAccess(key, "value")));
+        Assertions.assertEquals(0, hintStore.pending(gone));
+        Assertions.assertEquals(1, hintStore.pending(target));
+        Assertions.assertEquals(key + 1, hintStore.dropped());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_writes_are_hinted_while_a_replay_sends() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Node target = new Node(1, "node-1") {
+            @Override
+            public Result processBatch(List<DbAccess> accesses) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.processBatch(accesses);
+            }
+        };
+        HintStore hintStore = new HintStore();
+        hintStore.store(target, new DbAccess.PutAccess(1, "v1"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> replay = executor.submit(() -> hintStore.replay(target));
+            sending.await();
+            // the replay holds no lock while it sends
+            executor.submit(() -> hintStore.store(target, new DbAccess.PutAccess(2, "v2"))).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(1, hintStore.pending(target));
+
+            release.countDown();
+            Assertions.assertEquals(2, (int) replay.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, hintStore.pending(target));
+            Assertions.assertEquals("v2", ((Result.Ok<Entity>) target.process(new DbAccess.GetAccess(2))).value().value());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_a_direct_write_discards_older_hints() {
+        TokenMetadata tokenMetadata = new TokenMetadata(3, new SimpleStrategy());
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Node node = new Node(i, "node-" + i);
+            tokenMetadata.updateNormalToken(node, List.of(new Token(i * 1_000_000_000, "test")));
+            nodes.add(node);
+        }
+        HintStore hintStore = new HintStore();
+        Coordinator coordinator = new Coordinator(tokenMetadata, Runnable::run, new LatencyTracker(), 0, hintStore);
+
+        Node restarted = nodes.get(2);
+        restarted.stop();
+        coordinator.put(1, "old", ConsistencyLevel.QUORUM);
+        coordinator.put(2, "old", ConsistencyLevel.QUORUM);
+        Assertions.assertEquals(2, hintStore.pending(restarted));
+
+        restarted.start();
+        coordinator.put(1, "new", ConsistencyLevel.QUORUM);
+        Assertions.assertEquals(1, hintStore.pending(restarted));
+
+        Assertions.assertEquals(1, hintStore.replay(restarted));
+        Assertions.assertEquals("new", ((Result.Ok<Entity>) restarted.process(new DbAccess.GetAccess(1))).value().value());
+        Assertions.assertEquals("old", ((Result.Ok<Entity>) restarted.process(new DbAccess.GetAccess(2))).value().value());
+        Assertions.assertEquals(0, hintStore.bytes());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_a_partly_failed_batch_resends_from_the_failed_hint() {
+        AtomicLong failures = new AtomicLong(1);
+        List<Long> applied = new ArrayList<>();
+        Node target = new Node(1, "node-1") {
+            @Override
+            public Result process(DbAccess access) {
+                long key = ((DbAccess.KeyAccess) access).getKey();
+                if (key == 3 && failures.getAndDecrement() > 0) {
+                    return new Result.Error(new DatabaseOperationFailedException("Disk full"));
+                }
+                applied.add(key);
+                return super.process(access);
+            }
+        };
+        HintStore hintStore = new HintStore();
+        for (long key = 0; key < 6; key++) {
+            hintStore.store(target, new DbAccess.PutAccess(key, "v" + key));
+        }
+
+        Assertions.assertEquals(3, hintStore.replay(target));
+        Assertions.assertEquals(3, hintStore.pending(target));
+        Assertions.assertEquals(3, hintStore.replay(target));
+        Assertions.assertEquals(0, hintStore.pending(target));
+        Assertions.assertEquals(0, hintStore.bytes());
+        // hints after the failed one are resent, the ones before it are not
+        Assertions.assertEquals(List.of(0L, 1L, 2L, 4L, 5L, 3L, 4L, 5L), applied);
+    }
+
+    @Test
+    void test_hints_are_charged_their_encoded_size() {
+        HintStore hintStore = new HintStore();
+        Node target = new Node(1, "node-1");
+
+        hintStore.store(target, new DbAccess.PutAccess(1, "aaaa"));
+        long ascii = hintStore.bytes();
+        hintStore.store(target, new DbAccess.PutAccess(2, "\u00e9\u00e9\u00e9\u00e9"));
+        // two bytes per character in UTF-8
+        Assertions.assertEquals(ascii + 4, hintStore.bytes() - ascii, "size of the second hint");
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LatencyHistogramTests {
+
+    @Test
+    void test_percentiles_are_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong(1_000_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double quantile : new double[]{0.5, 0.95, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long estimate = histogram.percentile(quantile);
+            Assertions.assertTrue(estimate >= exact && estimate <= exact * 1.016, quantile + ": " + estimate + " vs " + exact);
+        }
+    }
+
+    @Test
+    void test_old_samples_age_out() throws NoSuchAlgorithmException {
+        AtomicLong clock = new AtomicLong();
+        LatencyTracker tracker = new LatencyTracker(1_000, clock::get);
+        Node node = new Node(HashGenerator.generateNodeId("node-0"), "node-0");
+
+        tracker.record(node, 120);
+        Assertions.assertEquals(120, tracker.percentile(node, 0.5));
+        clock.set(1_500);
+        tracker.record(node, 100);
+        Assertions.assertEquals(2, tracker.count(node));
+        clock.set(2_600);
+        Assertions.assertEquals(1, tracker.count(node));
+        Assertions.assertEquals(100, tracker.percentile(node, 0.99));
+        clock.set(10_000);
+        Assertions.assertEquals(-1, tracker.percentile(node, 0.5));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.LocalFileSystem;
+import org.example.db.Snowflake;
+import org.example.stream.StreamScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executors;
+
+public class MerkleTreeTests {
+
+    @Test
+    void test_tree_follows_writes_and_deletes() {
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        for (long key = 0; key < 1000; key++) {
+            n1.process(new DbAccess.PutAccess(key, "v" + key));
+            n2.process(new DbAccess.PutAccess(999 - key, "v" + (999 - key)));
+        }
+        // same data in a different order
+        Assertions.assertEquals(n1.getMerkleTree().rootHash(), n2.getMerkleTree().rootHash());
+        Assertions.assertTrue(n1.getMerkleTree().differences(n2.getMerkleTree(), Integer.MIN_VALUE, Integer.MAX_VALUE).isEmpty());
+
+        n2.process(new DbAccess.PutAccess(7, "changed"));
+        int partition = HashGenerator.hash(7);
+        var differences = n1.getMerkleTree().differences(n2.getMerkleTree(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        Assertions.assertEquals(1, differences.size());
+        Assertions.assertTrue(differences.get(0).first() <= partition && partition <= differences.get(0).last());
+
+        for (long key = 0; key < 1000; key++) {
+            n1.process(new DbAccess.DeleteAccess(key));
+        }
+        Assertions.assertEquals(0, n1.getMerkleTree().rootHash());
+    }
+
+    @Test
+    void test_restart_rebuilds_tree_under_stored_partitions() {
+        LocalFileSystem storage = new LocalFileSystem();
+        MerkleTree expected = new MerkleTree();
+        for (long id = 0; id < 1000; id++) {
+            // streamed entities keep the partition of their range, not the hash of their id
+            int partition = (int) (id * 4_294_967L);
+            Entity entity = new Entity(id, "v" + id);
+            storage.write(partition, entity);
+            expected.update(partition, null, entity);
+        }
+
+        Node restarted = new Node(1, "node-1", storage);
+        Assertions.assertEquals(expected.rootHash(), restarted.getMerkleTree().rootHash());
+        Assertions.assertTrue(expected.differences(restarted.getMerkleTree(), Integer.MIN_VALUE, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_repair_streams_only_diverged_ranges() throws NoSuchAlgorithmException {
+        StreamScheduler scheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 16);
+        Topology topology = new Topology(16, 2, new SimpleStrategy(), scheduler);
+        for (int i = 0; i < 3; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        int size = 2000;
+        long[] keys = new long[size];
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+            values[i] = "v" + i;
+        }
+        TokenRing ring = topology.nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+        new ClusterClient(topology.nodes.values().iterator().next().getTokenMetadata()).putAll(keys, values);
+        Assertions.assertEquals(0, topology.repair());
+
+        // a replica loses a few keys, e.g. to a failed handoff
+        for (int i = 0; i < 5; i++) {
+            ring.getReplicas(HashGenerator.hash(keys[i])).get(1).process(new DbAccess.DeleteAccess(keys[i]));
+        }
+
+        int slices = topology.repair();
+        Assertions.assertTrue(slices > 0 && slices <= 5, "streamed " + slices + " slices");
+        for (int i = 0; i < size; i++) {
+            for (Node replica : ring.getReplicas(HashGenerator.hash(keys[i]))) {
+                Entity stored = ((Result.Ok<Entity>) replica.process(new DbAccess.GetAccess(keys[i]))).value();
+                Assertions.assertNotNull(stored, "missing on " + replica.nodeName());
+            }
+        }
+        Assertions.assertEquals(0, topology.repair());
+
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class NearCacheTests {
+
+    @Test
+    void test_hottest_keys_are_reported_first() {
+        Node node = new Node(1, "node-1");
+        node.setHotKeyTracking(false);
+        node.process(new DbAccess.GetAccess(0));
+        Assertions.assertTrue(node.getHotKeys().isEmpty());
+
+        node.setHotKeyTracking(true);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200_000; i++) {
+            // keys 0 to 2 take half of the reads
+            long key = random.nextBoolean() ? random.nextInt(3) : 100 + random.nextInt(100_000);
+            node.process(new DbAccess.GetAccess(key));
+        }
+
+        List<HeavyHitters.Entry> hotKeys = node.getHotKeys();
+        Assertions.assertEquals(Node.HOT_KEYS, hotKeys.size());
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(hotKeys.get(i).item() < 3, "unexpected hot key " + hotKeys.get(i));
+        }
+        long hottestPartition = node.getHotPartitions().get(0).item();
+        Assertions.assertTrue(hottestPartition == HashGenerator.hash(0) || hottestPartition == HashGenerator.hash(1) || hottestPartition == HashGenerator.hash(2));
+    }
+
+    @Test
+    void test_admission_ttl_and_ownership_change() {
+        AtomicLong clock = new AtomicLong();
+        NearCache cache = new NearCache(100, 1_000, clock::get);
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        TokenRing ring = TokenRing.of(Map.of(new Token(0, "test"), n1, new Token(Integer.MAX_VALUE, "test"), n2));
+
+        // hot keys read often
+        for (int round = 0; round < 10; round++) {
+            for (long key = 0; key < 50; key++) {
+                if (cache.get(key, ring) == null) {
+                    cache.put(new Entity(key, "v" + key), HashGenerator.hash(key), ring);
+                }
+            }
+        }
+        // a scan of one-off keys
+        for (long key = 1000; key < 2000; key++) {
+            cache.get(key, ring);
+            cache.put(new Entity(key, "v" + key), HashGenerator.hash(key), ring);
+        }
+        int hot = 0;
+        for (long key = 0; key < 50; key++) {
+            if (cache.get(key, ring) != null) {
+                hot++;
+            }
+        }
+        Assertions.assertTrue(hot >= 45, "only " + hot + " hot keys survived the scan");
+
+        // n2 takes over every partition
+        TokenRing moved = TokenRing.of(Map.of(new Token(Integer.MAX_VALUE, "test"), n2));
+        for (long key = 0; key < 50; key++) {
+            Entity cached = cache.get(key, moved);
+            if (ring.getNode(HashGenerator.hash(key)) == n1) {
+                Assertions.assertNull(cached);
+            }
+        }
+
+        clock.addAndGet(1_000);
+        for (long key = 0; key < 50; key++) {
+            Assertions.assertNull(cache.get(key, moved));
+        }
+    }
+
+    @Test
+    void test_coordinator_serves_hot_keys_from_the_near_cache() {
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        AtomicInteger gets = new AtomicInteger();
+        Node node = new Node(1, "node-1") {
+            @Override
+            public Result process(DbAccess access) {
+                if (access instanceof DbAccess.GetAccess) {
+                    gets.incrementAndGet();
+                }
+                return super.process(access);
+            }
+        };
+        tokenMetadata.updateNormalToken(node, List.of(new Token(0, "test")));
+        Coordinator coordinator = new Coordinator(tokenMetadata, Runnable::run, new LatencyTracker(), 0, null, new NearCache(100));
+
+        coordinator.put(42, "v", ConsistencyLevel.ONE);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("v", coordinator.get(42, ConsistencyLevel.ONE).value());
+        }
+        Assertions.assertEquals(1, gets.get());
+
+        coordinator.put(42, "w", ConsistencyLevel.ONE);
+        Assertions.assertEquals("w", coordinator.get(42, ConsistencyLevel.ONE).value());
+        Assertions.assertEquals(2, gets.get());
+        Assertions.assertEquals(9, coordinator.getNearCache().stats().hits());
+    }
+
+    @Test
+    void test_a_read_racing_a_write_is_not_cached() {
+        NearCache cache = new NearCache(100);
+        Node n1 = new Node(1, "node-1");
+        TokenRing ring = TokenRing.of(Map.of(new Token(0, "test"), n1));
+
+        // the read starts, a write invalidates the key before the old value comes back
+        long epoch = cache.epoch(42);
+        cache.invalidate(42);
+        cache.put(new Entity(42, "old"), HashGenerator.hash(42), ring, epoch);
+        Assertions.assertNull(cache.get(42, ring));
+
+        cache.put(new Entity(42, "new"), HashGenerator.hash(42), ring, cache.epoch(42));
+        Assertions.assertEquals("new", cache.get(42, ring).value());
+    }
+
+    @Test
+    void test_stripes_share_the_capacity() {
+        NearCache cache = new NearCache(4096, NearCache.DEFAULT_TTL_NANOS, System::nanoTime, 4);
+        Node n1 = new Node(1, "node-1");
+        TokenRing ring = TokenRing.of(Map.of(new Token(0, "test"), n1));
+        for (long key = 0; key < 100_000; key++) {
+            cache.put(new Entity(key, "v" + key), HashGenerator.hash(key), ring);
+        }
+
+        Assertions.assertTrue(cache.stats().size() <= 4096, "size " + cache.stats().size());
+        Assertions.assertTrue(cache.stats().size() > 3000, "size " + cache.stats().size());
+        Assertions.assertEquals(4, NearCache.stripesFor(4096));
+        Assertions.assertEquals(1, NearCache.stripesFor(100));
+    }
+}
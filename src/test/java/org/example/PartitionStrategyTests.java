@@ -0,0 +1,114 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.Snowflake;
+import org.example.stream.StreamScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+
+public class PartitionStrategyTests {
+
+    @Test
+    void test_engines_balance_and_move_little_on_join() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Node> members = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            members.add(new Node(random.nextLong(), "node-" + i));
+        }
+        List<Node> grown = new ArrayList<>(members);
+        grown.add(new Node(random.nextLong(), "node-10"));
+
+        for (PartitionStrategy strategy : List.of(PartitionStrategy.JUMP_HASH, PartitionStrategy.RENDEZVOUS, PartitionStrategy.MAGLEV)) {
+            Partitioner before = strategy.partitioner(TokenRing.empty(), members);
+            Partitioner after = strategy.partitioner(TokenRing.empty(), grown);
+
+            int keys = 100_000;
+            int[] loads = new int[members.size()];
+            int moved = 0;
+            for (int i = 0; i < keys; i++) {
+                int partition = HashGenerator.hash(random.nextLong());
+                loads[before.ownerIndexOf(partition)]++;
+                Node owner = after.getNode(partition);
+                if (owner != before.getNode(partition)) {
+                    moved++;
+                    // maglev also shuffles a few table slots between old members
+                    if (strategy != PartitionStrategy.MAGLEV) {
+                        Assertions.assertSame(grown.get(10), owner, strategy + " moved a key between old members");
+                    }
+                }
+            }
+
+            for (int load : loads) {
+                Assertions.assertEquals(keys / members.size(), load, keys / members.size() * 0.1, strategy.toString());
+            }
+            // about 1/11 of the keys
+            Assertions.assertEquals(keys / grown.size(), moved, keys / grown.size() * 0.2, strategy.toString());
+        }
+    }
+
+    @Test
+    void test_maglev_table_grows_with_members() {
+        Assertions.assertEquals(MaglevPartitioner.DEFAULT_TABLE_SIZE, MaglevPartitioner.tableSizeFor(1));
+        Assertions.assertEquals(MaglevPartitioner.DEFAULT_TABLE_SIZE, MaglevPartitioner.tableSizeFor(655));
+        for (int members : new int[]{656, 1000, 5000}) {
+            int tableSize = MaglevPartitioner.tableSizeFor(members);
+            Assertions.assertTrue(tableSize >= members * MaglevPartitioner.MIN_SLOTS_PER_MEMBER);
+            Assertions.assertTrue(BigInteger.valueOf(tableSize).isProbablePrime(50));
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        List<Node> members = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            members.add(new Node(random.nextLong(), "node-" + i));
+        }
+        MaglevPartitioner partitioner = (MaglevPartitioner) PartitionStrategy.MAGLEV.partitioner(TokenRing.empty(), members);
+        Assertions.assertEquals(MaglevPartitioner.tableSizeFor(1000), partitioner.tableSize());
+    }
+
+    @Test
+    void test_data_follows_owners_on_join_and_decommission() throws NoSuchAlgorithmException {
+        for (PartitionStrategy strategy : List.of(PartitionStrategy.JUMP_HASH, PartitionStrategy.RENDEZVOUS, PartitionStrategy.MAGLEV)) {
+            StreamScheduler streamScheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 64);
+            Topology topology = new Topology(16, strategy, streamScheduler);
+            List<Node> nodes = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String nodeName = "node-" + i;
+                Node node = new Node(HashGenerator.generateNodeId(nodeName), nodeName);
+                topology.join(node);
+                nodes.add(node);
+            }
+
+            long[] ids = new long[2048];
+            String[] values = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = Snowflake.getInstance().nextId();
+                values[i] = "v" + i;
+            }
+            new ClusterClient(nodes.get(0).getTokenMetadata()).putAll(ids, values);
+
+            topology.join(new Node(HashGenerator.generateNodeId("node-3"), "node-3"));
+            assertOnOwners(nodes.get(2), ids);
+            topology.decommission(nodes.get(0));
+            assertOnOwners(nodes.get(2), ids);
+            streamScheduler.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertOnOwners(Node node, long[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            Node owner = node.getOwner(HashGenerator.hash(ids[i]));
+            Entity entity = ((Result.Ok<Entity>) owner.process(new DbAccess.GetAccess(ids[i]))).value();
+            Assertions.assertNotNull(entity, "missing on owner " + owner.nodeName());
+            Assertions.assertEquals("v" + i, entity.value());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.example.db.Snowflake;
+import org.example.stream.StreamScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+public class ReplicationTests {
+
+    @Test
+    void test_replicas_are_distinct_nodes_with_primary_first() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(32, 3, new SimpleStrategy());
+        for (int i = 0; i < 5; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        TokenRing ring = topology.nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+
+        Assertions.assertEquals(3, ring.replicas());
+        for (int i = 0; i < ring.size(); i++) {
+            List<Node> replicas = ring.getReplicas(ring.partitionAt(i));
+            Assertions.assertSame(ring.nodeAt(i), replicas.get(0));
+            Assertions.assertEquals(3, new HashSet<>(replicas).size());
+        }
+    }
+
+    @Test
+    void test_rack_aware_replicas_span_racks() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(32, 3, new RackAwareStrategy());
+        for (int i = 0; i < 6; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName, "rack" + (i % 3)));
+        }
+        TokenRing ring = topology.nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+
+        for (int i = 0; i < ring.size(); i++) {
+            Set<String> racks = new HashSet<>();
+            for (Node replica : ring.getReplicas(ring.partitionAt(i))) {
+                racks.add(replica.rack());
+            }
+            Assertions.assertEquals(3, racks.size());
+        }
+    }
+
+    @Test
+    void test_every_replica_holds_data_after_join_and_decommission() throws NoSuchAlgorithmException {
+        StreamScheduler scheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 16);
+        Topology topology = new Topology(16, 2, new SimpleStrategy(), scheduler);
+        for (int i = 0; i < 3; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+
+        int size = 500;
+        long[] keys = new long[size];
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+            values[i] = "v" + i;
+        }
+        new ClusterClient(topology.nodes.values().iterator().next().getTokenMetadata()).putAll(keys, values);
+
+        Node joining = new Node(HashGenerator.generateNodeId("node-3"), "node-3");
+        topology.join(joining);
+        assertStoredOnReplicas(topology, keys, values);
+
+        Node leaving = topology.nodes.values().stream().filter(node -> node != joining).findFirst().orElseThrow();
+        topology.decommission(leaving);
+        assertStoredOnReplicas(topology, keys, values);
+
+        scheduler.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertStoredOnReplicas(Topology topology, long[] keys, String[] values) {
+        TokenRing ring = topology.nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+        Assertions.assertEquals(2, ring.replicas());
+        for (int i = 0; i < keys.length; i++) {
+            for (Node replica : ring.getReplicas(HashGenerator.hash(keys[i]))) {
+                Entity stored = ((Result.Ok<Entity>) replica.process(new DbAccess.GetAccess(keys[i]))).value();
+                Assertions.assertNotNull(stored, "missing on " + replica.nodeName());
+                Assertions.assertEquals(values[i], stored.value());
+            }
+        }
+    }
+}
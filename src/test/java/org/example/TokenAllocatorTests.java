@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class TokenAllocatorTests {
+
+    @Test
+    void test_random_tokens_are_distinct_past_64_vnodes() {
+        Node node = new Node(42, "node-1");
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        List<Token> tokens = new RandomTokenAllocator().allocate(tokenMetadata.snapshot(), node, 256);
+
+        Assertions.assertEquals(256, tokens.stream().map(Token::partition).distinct().count());
+    }
+
+    @Test
+    void test_16_balanced_vnodes_beat_1024_random_ones() {
+        double balanced = maxMeanOwnership(new BalancedTokenAllocator(), 16, 16);
+        double random = maxMeanOwnership(new RandomTokenAllocator(), 16, 1024);
+
+        Assertions.assertTrue(balanced <= random, balanced + " > " + random);
+        Assertions.assertTrue(balanced < 1.05, "max/mean " + balanced);
+    }
+
+    @Test
+    void test_balanced_allocation_returns_every_vnode() {
+        SplittableRandom random = new SplittableRandom(7);
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        BalancedTokenAllocator allocator = new BalancedTokenAllocator();
+        for (int i = 0; i < 12; i++) {
+            Node node = new Node(random.nextLong(), "node-" + i);
+            // far more vnodes than the ring has ranges, then fewer than there are donors
+            int vnodes = i % 2 == 0 ? 512 : 3;
+            List<Token> tokens = allocator.allocate(tokenMetadata.snapshot(), node, vnodes);
+
+            Assertions.assertEquals(vnodes, tokens.stream().map(Token::partition).distinct().count());
+            Assertions.assertTrue(tokens.stream().noneMatch(tokenMetadata.getTokenToNode()::containsKey));
+            tokenMetadata.updateNormalToken(node, tokens);
+        }
+    }
+
+    static double maxMeanOwnership(TokenAllocator allocator, int nodes, int vnodes) {
+        SplittableRandom random = new SplittableRandom(42);
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        for (int i = 0; i < nodes; i++) {
+            Node node = new Node(random.nextLong(), "node-" + i);
+            tokenMetadata.updateNormalToken(node, allocator.allocate(tokenMetadata.snapshot(), node, vnodes));
+        }
+
+        TokenRing ring = tokenMetadata.getTokenRing();
+        long[] owned = new long[ring.nodeCount()];
+        for (int i = 0; i < ring.size(); i++) {
+            owned[ring.ownerIndexAt(i)] += (ring.partitionAt(i) - ring.rangeStart(i) + 1) & 0xFFFFFFFFL;
+        }
+        long max = 0;
+        for (long ownership : owned) {
+            max = Math.max(max, ownership);
+        }
+
+        return max / ((double) (1L << 32) / ring.nodeCount());
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+public class TokenMetadataTests {
+
+    @Test
+    void test_readers_share_the_published_version() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(16);
+        Node n1 = new Node(HashGenerator.generateNodeId("node-1"), "node-1");
+        topology.join(n1);
+
+        TokenMetadata tokenMetadata = n1.getTokenMetadata();
+        TokenMetadata.Snapshot before = tokenMetadata.snapshot();
+        // zero-copy views
+        Assertions.assertSame(tokenMetadata.getRing(), tokenMetadata.getRing());
+        Assertions.assertSame(tokenMetadata.getTokenToNode(), tokenMetadata.getTokenToNode());
+
+        Node n2 = new Node(HashGenerator.generateNodeId("node-2"), "node-2");
+        topology.join(n2);
+
+        TokenMetadata.Snapshot after = tokenMetadata.snapshot();
+        Assertions.assertTrue(after.version() > before.version());
+        // older versions stay untouched
+        Assertions.assertEquals(16, before.ring().size());
+        Assertions.assertEquals(32, after.ring().size());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+            () -> after.tokenToNode().put(new Token(0, "murmur3"), n1));
+    }
+
+    @Test
+    void test_remove_endpoint_publishes_new_version() {
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        tokenMetadata.updateNormalToken(n1, List.of(new Token(-10, "murmur3")));
+        tokenMetadata.updateNormalToken(n2, List.of(new Token(10, "murmur3")));
+        TokenMetadata copy = tokenMetadata.copy();
+
+        tokenMetadata.removeEndpoint(n2);
+
+        Assertions.assertSame(n1, tokenMetadata.getTokenRing().getNode(0));
+        Assertions.assertSame(n2, copy.getTokenRing().getNode(0));
+        Assertions.assertEquals(3, tokenMetadata.version());
+    }
+
+    @Test
+    void test_stale_endpoint_states_are_ignored() {
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        tokenMetadata.updateNormalToken(n1, List.of(new Token(-10, "murmur3")));
+        Assertions.assertTrue(tokenMetadata.updateNormalToken(n2, List.of(new Token(10, "murmur3")), new TokenMetadata.EndpointVersion(1, 2)));
+
+        // a replayed older state neither removes nor moves the endpoint
+        Assertions.assertFalse(tokenMetadata.removeEndpoint(n2, new TokenMetadata.EndpointVersion(1, 1)));
+        Assertions.assertFalse(tokenMetadata.updateNormalToken(n2, List.of(new Token(20, "murmur3")), new TokenMetadata.EndpointVersion(1, 2)));
+        Assertions.assertEquals(List.of(new Token(10, "murmur3")), tokenMetadata.snapshot().nodeToTokens().get(n2));
+
+        // the removal is remembered, the tokens it announced before do not bring the endpoint back
+        Assertions.assertTrue(tokenMetadata.removeEndpoint(n2, new TokenMetadata.EndpointVersion(1, 3)));
+        Assertions.assertFalse(tokenMetadata.updateNormalToken(n2, List.of(new Token(10, "murmur3")), new TokenMetadata.EndpointVersion(1, 2)));
+        Assertions.assertFalse(tokenMetadata.snapshot().members().contains(n2));
+
+        // a restart starts a newer generation
+        Assertions.assertTrue(tokenMetadata.updateNormalToken(n2, List.of(new Token(10, "murmur3")), new TokenMetadata.EndpointVersion(2, 1)));
+        Assertions.assertEquals(new TokenMetadata.EndpointVersion(2, 1), tokenMetadata.snapshot().endpointVersion(n2));
+    }
+
+    @Test
+    void test_loads_of_changed_ranges_are_dropped() {
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        Node n3 = new Node(3, "node-3");
+        Token a = new Token(-100, "murmur3");
+        Token b = new Token(0, "murmur3");
+        Token c = new Token(100, "murmur3");
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        tokenMetadata.updateNormalToken(n1, List.of(a));
+        tokenMetadata.updateNormalToken(n2, List.of(b, c));
+        tokenMetadata.updateLoads(Map.of(a, 1L, b, 2L, c, 3L), 0.5);
+
+        // a token at 50 splits (0, 100], the range of c
+        tokenMetadata.updateNormalToken(n3, List.of(new Token(50, "murmur3")));
+        Assertions.assertEquals(Map.of(a, 1L, b, 2L), tokenMetadata.snapshot().loads());
+
+        // without a, the range of b now starts at 100 and wraps around
+        tokenMetadata.removeEndpoint(n1);
+        Assertions.assertEquals(Map.of(), tokenMetadata.snapshot().loads());
+    }
+}
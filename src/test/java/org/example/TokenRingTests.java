@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SplittableRandom;
+
+public class TokenRingTests {
+
+    @Test
+    void test_lookup_matches_tree_map() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(128);
+        for (int i = 0; i < 4; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+
+        Node node = topology.nodes.values().iterator().next();
+        TokenMetadata tokenMetadata = node.getTokenMetadata();
+        NavigableMap<Integer, Token> treeRing = tokenMetadata.getRing();
+        Map<Token, Node> tokenToNode = tokenMetadata.getTokenToNode();
+        TokenRing tokenRing = tokenMetadata.getTokenRing();
+
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 100_000; i++) {
+            int partition = random.nextInt();
+            Token expected = node.getToken(partition, treeRing);
+            Assertions.assertEquals(expected, tokenRing.getToken(partition));
+            Assertions.assertSame(tokenToNode.get(expected), tokenRing.getNode(partition));
+        }
+    }
+
+    @Test
+    void test_wrap_around() {
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        Map<Token, Node> tokenToNode = new HashMap<>();
+        tokenToNode.put(new Token(-100, "murmur3"), n1);
+        tokenToNode.put(new Token(100, "murmur3"), n2);
+        TokenRing ring = TokenRing.of(tokenToNode);
+
+        Assertions.assertSame(n1, ring.getNode(Integer.MIN_VALUE));
+        Assertions.assertSame(n1, ring.getNode(-100));
+        Assertions.assertSame(n2, ring.getNode(-99));
+        Assertions.assertSame(n2, ring.getNode(100));
+        Assertions.assertSame(n1, ring.getNode(101)); // wrap-around
+        Assertions.assertSame(n1, ring.getNode(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void test_bounded_loads_cap_every_node() throws NoSuchAlgorithmException {
+        Topology topology = new Topology(64);
+        for (int i = 0; i < 8; i++) {
+            String nodeName = "node-" + i;
+            topology.join(new Node(HashGenerator.generateNodeId(nodeName), nodeName));
+        }
+        TokenRing ring = topology.nodes.values().iterator().next().getTokenMetadata().getTokenRing();
+
+        // skewed loads, every fourth range is hot
+        long[] rangeLoads = new long[ring.size()];
+        long total = 0;
+        for (int i = 0; i < ring.size(); i++) {
+            rangeLoads[i] = i % 4 == 0 ? 40 : 10;
+            total += rangeLoads[i];
+        }
+        double epsilon = 0.25;
+        TokenRing bounded = ring.withBoundedLoads(rangeLoads, epsilon);
+
+        long[] nodeLoads = new long[bounded.nodeCount()];
+        int moved = 0;
+        for (int i = 0; i < bounded.size(); i++) {
+            nodeLoads[bounded.ownerIndexAt(i)] += rangeLoads[i];
+            if (bounded.nodeAt(i) != ring.nodeAt(i)) {
+                moved++;
+            }
+        }
+        long capacity = (long) Math.ceil((1 + epsilon) * total / bounded.nodeCount());
+        for (long nodeLoad : nodeLoads) {
+            Assertions.assertTrue(nodeLoad <= capacity, nodeLoad + " > " + capacity);
+        }
+        Assertions.assertTrue(moved < ring.size() / 4, "moved " + moved);
+
+        // same loads, same owners
+        TokenRing again = ring.withBoundedLoads(rangeLoads, epsilon);
+        for (int i = 0; i < bounded.size(); i++) {
+            Assertions.assertSame(bounded.nodeAt(i), again.nodeAt(i));
+        }
+    }
+
+    @Test
+    void test_bounded_loads_spill_clockwise() {
+        Node n1 = new Node(1, "node-1");
+        Node n2 = new Node(2, "node-2");
+        Node n3 = new Node(3, "node-3");
+        Map<Token, Node> tokenToNode = new HashMap<>();
+        tokenToNode.put(new Token(-200, "murmur3"), n2);
+        tokenToNode.put(new Token(-100, "murmur3"), n1);
+        tokenToNode.put(new Token(0, "murmur3"), n1);
+        tokenToNode.put(new Token(100, "murmur3"), n2);
+        tokenToNode.put(new Token(200, "murmur3"), n3);
+        TokenRing ring = TokenRing.of(tokenToNode);
+
+        // capacity is 8, the second range of node-1 overflows it
+        TokenRing bounded = ring.withBoundedLoads(new long[]{2, 6, 6, 1, 0}, 0.5);
+
+        Assertions.assertSame(n2, bounded.nodeAt(0));
+        Assertions.assertSame(n1, bounded.nodeAt(1));
+        // next vnode clockwise, not node-3 which is the least loaded
+        Assertions.assertSame(n2, bounded.nodeAt(2));
+        // node-2 is full now, its own range skips ahead to node-3
+        Assertions.assertSame(n3, bounded.nodeAt(3));
+        Assertions.assertSame(n3, bounded.nodeAt(4));
+    }
+}
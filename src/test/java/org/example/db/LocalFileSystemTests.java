@@ -0,0 +1,83 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LocalFileSystemTests {
+
+    @Test
+    void test_concurrent_writes_and_scans() throws Exception {
+        LocalFileSystem database = new LocalFileSystem();
+        int writers = 4;
+        int keysPerWriter = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final long base = (long) w * keysPerWriter;
+                futures.add(executor.submit(() -> {
+                    for (long id = base; id < base + keysPerWriter; id++) {
+                        database.write(HashGenerator.hash(id), new Entity(id, "v"));
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    database.scan(Integer.MIN_VALUE, Integer.MAX_VALUE, 100).forEachRemaining(entity -> {});
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (long id = 0; id < (long) writers * keysPerWriter; id++) {
+            Assertions.assertNotNull(database.read(HashGenerator.hash(id), id));
+        }
+    }
+
+    @Test
+    void test_colliding_ids_do_not_overwrite_each_other() {
+        // find two ids sharing a partition
+        SplittableRandom random = new SplittableRandom(42);
+        Map<Integer, Long> seen = new HashMap<>();
+        long first = -1;
+        long second = -1;
+        while (second < 0) {
+            long id = random.nextLong(Long.MAX_VALUE);
+            Long previous = seen.putIfAbsent(HashGenerator.hash(id), id);
+            if (previous != null) {
+                first = previous;
+                second = id;
+            }
+        }
+        int partition = HashGenerator.hash(first);
+
+        LocalFileSystem database = new LocalFileSystem();
+        Assertions.assertNull(database.write(partition, new Entity(first, "a")));
+        Assertions.assertNull(database.write(partition, new Entity(second, "b")));
+        Assertions.assertEquals("a", database.read(partition, first).value());
+        Assertions.assertEquals("b", database.read(partition, second).value());
+        List<Entity> scanned = new ArrayList<>();
+        database.scan(partition, partition + 1, 1).forEachRemaining(scanned::add);
+        Assertions.assertEquals(2, scanned.size());
+
+        Assertions.assertEquals("a", database.write(partition, new Entity(first, "c")).value());
+        Assertions.assertEquals("c", database.delete(partition, first).value());
+        Assertions.assertNull(database.read(partition, first));
+        Assertions.assertEquals("b", database.read(partition, second).value());
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class MappedLogStorageTests {
+
+    @Test
+    void test_recovers_after_restart() throws IOException {
+        Path directory = Files.createTempDirectory("mapped-log");
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            for (long id = 0; id < 1000; id++) {
+                storage.write(HashGenerator.hash(id), new Entity(id, "v" + id));
+            }
+            storage.write(HashGenerator.hash(1L), new Entity(1L, "overwritten"));
+            storage.delete(HashGenerator.hash(2L), 2L);
+        }
+
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            Assertions.assertEquals(999, storage.size());
+            Assertions.assertEquals("v0", storage.read(HashGenerator.hash(0L), 0L).value());
+            Assertions.assertEquals("overwritten", storage.read(HashGenerator.hash(1L), 1L).value());
+            Assertions.assertNull(storage.read(HashGenerator.hash(2L), 2L));
+            Assertions.assertEquals("v999", StandardCharsets.UTF_8.decode(storage.readValue(HashGenerator.hash(999L), 999L)).toString());
+
+            // the partition order is rebuilt with the id index
+            ScanCursor cursor = storage.scan(Integer.MIN_VALUE, Integer.MIN_VALUE, 10);
+            int previous = Integer.MIN_VALUE;
+            int scanned = 0;
+            while (cursor.hasNext()) {
+                int partition = HashGenerator.hash(cursor.next().id());
+                Assertions.assertTrue(previous <= partition);
+                previous = partition;
+                scanned++;
+            }
+            Assertions.assertEquals(999, scanned);
+        }
+    }
+
+    @Test
+    void test_compaction_reclaims_garbage() throws IOException {
+        Path directory = Files.createTempDirectory("mapped-log");
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            for (int round = 0; round < 5; round++) {
+                for (long id = 0; id < 200; id++) {
+                    storage.write(HashGenerator.hash(id), new Entity(id, "v" + round));
+                }
+            }
+            for (long id = 0; id < 100; id++) {
+                storage.delete(HashGenerator.hash(id), id);
+            }
+            long before = segmentCount(directory);
+            Assertions.assertTrue(storage.garbageRatio() > 0.5);
+
+            // mostly garbage segments first, then whatever garbage is left
+            Assertions.assertTrue(storage.compact() > 0);
+            Assertions.assertTrue(segmentCount(directory) < before);
+            storage.compact(0);
+            Assertions.assertEquals(0, storage.garbageRatio(), 0.0001);
+            ScanCursor cursor = storage.scan(Integer.MIN_VALUE, Integer.MIN_VALUE, 7);
+            int scanned = 0;
+            while (cursor.hasNext()) {
+                cursor.next();
+                scanned++;
+            }
+            Assertions.assertEquals(100, scanned);
+        }
+
+        // no deleted entity comes back
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            Assertions.assertEquals(100, storage.size());
+            Assertions.assertNull(storage.read(HashGenerator.hash(0L), 0L));
+            Assertions.assertEquals("v4", storage.read(HashGenerator.hash(150L), 150L).value());
+        }
+    }
+
+    @Test
+    void test_compaction_keeps_tombstones_over_older_segments() throws IOException {
+        Path directory = Files.createTempDirectory("mapped-log");
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            // the oldest segments hold kept and deleted entities side by side, half garbage once deleted
+            for (long id = 0; id < 1000; id++) {
+                storage.write(HashGenerator.hash(id), new Entity(id, "v" + id));
+            }
+            for (long id = 0; id < 1000; id += 2) {
+                storage.delete(HashGenerator.hash(id), id);
+            }
+
+            // only the segments of tombstones are compacted, their tombstones still shadow the older records
+            Assertions.assertTrue(storage.compact(0.9) > 0);
+            Assertions.assertEquals(500, storage.size());
+        }
+
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            Assertions.assertEquals(500, storage.size());
+            for (long id = 0; id < 1000; id++) {
+                Entity entity = storage.read(HashGenerator.hash(id), id);
+                Assertions.assertEquals(id % 2 == 0 ? null : "v" + id, entity == null ? null : entity.value());
+            }
+        }
+    }
+
+    @Test
+    void test_entities_are_keyed_by_partition_and_id() throws IOException {
+        Path directory = Files.createTempDirectory("mapped-log");
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            Assertions.assertNull(storage.write(1, new Entity(42, "a")));
+            Assertions.assertNull(storage.write(2, new Entity(42, "b")));
+            Assertions.assertNull(storage.read(3, 42));
+            Assertions.assertEquals("a", storage.delete(1, 42).value());
+            Assertions.assertNull(storage.read(1, 42));
+            Assertions.assertEquals("b", storage.read(2, 42).value());
+        }
+
+        try (MappedLogStorage storage = new MappedLogStorage(directory, 4096)) {
+            Assertions.assertEquals(1, storage.size());
+            Assertions.assertNull(storage.read(1, 42));
+            Assertions.assertEquals("b", storage.read(2, 42).value());
+        }
+    }
+
+    private static long segmentCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
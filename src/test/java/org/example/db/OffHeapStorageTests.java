@@ -0,0 +1,190 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class OffHeapStorageTests {
+
+    @Test
+    void test_behaves_like_local_file_system() {
+        LocalFileSystem expected = new LocalFileSystem();
+        SplittableRandom random = new SplittableRandom(42);
+        try (OffHeapStorage actual = new OffHeapStorage(4096)) {
+            for (int i = 0; i < 20_000; i++) {
+                long id = random.nextLong(5000);
+                int partition = HashGenerator.hash(id);
+                int operation = random.nextInt(10);
+                if (operation < 6) {
+                    String value = operation == 0 ? null : "välue-" + "x".repeat(random.nextInt(300));
+                    Assertions.assertEquals(expected.write(partition, new Entity(id, value)), actual.write(partition, new Entity(id, value)));
+                } else if (operation < 8) {
+                    Assertions.assertEquals(expected.delete(partition, id), actual.delete(partition, id));
+                } else {
+                    Assertions.assertEquals(expected.read(partition, id), actual.read(partition, id));
+                }
+            }
+
+            Assertions.assertEquals(scan(expected, 0, 0, 100).size(), actual.size());
+            for (int pageSize : new int[]{1, 7, 1000}) {
+                Assertions.assertEquals(sorted(scan(expected, 0, 0, pageSize)), sorted(scan(actual, 0, 0, pageSize)));
+                // across the wrap-around point
+                Assertions.assertEquals(sorted(scan(expected, Integer.MAX_VALUE / 2, Integer.MIN_VALUE / 2, pageSize)),
+                    sorted(scan(actual, Integer.MAX_VALUE / 2, Integer.MIN_VALUE / 2, pageSize)));
+            }
+            // partition order is kept
+            List<Entity> scanned = scan(actual, Integer.MIN_VALUE, Integer.MAX_VALUE, 13);
+            for (int i = 1; i < scanned.size(); i++) {
+                Assertions.assertTrue(HashGenerator.hash(scanned.get(i - 1).id()) <= HashGenerator.hash(scanned.get(i).id()));
+            }
+        }
+    }
+
+    @Test
+    void test_ids_under_several_partitions_match_local_file_system() {
+        LocalFileSystem expected = new LocalFileSystem();
+        SplittableRandom random = new SplittableRandom(7);
+        try (OffHeapStorage actual = new OffHeapStorage(4096)) {
+            for (int i = 0; i < 20_000; i++) {
+                long id = random.nextLong(500);
+                // the same id under its own hash, a neighbour and a partition shared by many ids
+                int[] choices = {HashGenerator.hash(id), HashGenerator.hash(id) + 1, (int) (id % 7)};
+                int partition = choices[random.nextInt(choices.length)];
+                int operation = random.nextInt(10);
+                if (operation < 5) {
+                    Entity entity = new Entity(id, "v" + i);
+                    Assertions.assertEquals(expected.write(partition, entity), actual.write(partition, entity));
+                } else if (operation < 7) {
+                    Assertions.assertEquals(expected.delete(partition, id), actual.delete(partition, id));
+                } else {
+                    Assertions.assertEquals(expected.read(partition, id), actual.read(partition, id));
+                }
+            }
+
+            Assertions.assertEquals(records(expected), records(actual));
+            Assertions.assertEquals(records(expected).size(), actual.size());
+        }
+    }
+
+    @Test
+    void test_overwrites_and_deletes_reuse_chunks() {
+        try (OffHeapStorage storage = new OffHeapStorage(1 << 16)) {
+            for (long id = 0; id < 10_000; id++) {
+                storage.write(HashGenerator.hash(id), new Entity(id, "value-" + id));
+            }
+            long offHeapBytes = storage.offHeapBytes();
+            long valueBytes = storage.valueBytes();
+
+            for (int round = 0; round < 5; round++) {
+                for (long id = 0; id < 10_000; id++) {
+                    storage.write(HashGenerator.hash(id), new Entity(id, "other-" + id));
+                }
+            }
+            Assertions.assertEquals(offHeapBytes, storage.offHeapBytes());
+            Assertions.assertEquals(valueBytes, storage.valueBytes());
+
+            for (long id = 0; id < 10_000; id++) {
+                storage.delete(HashGenerator.hash(id), id);
+            }
+            Assertions.assertEquals(0, storage.size());
+            Assertions.assertEquals(0, storage.valueBytes());
+            for (long id = 0; id < 10_000; id++) {
+                storage.write(HashGenerator.hash(id), new Entity(id, "again-" + id));
+            }
+            Assertions.assertEquals(offHeapBytes, storage.offHeapBytes());
+
+            // larger than a slab
+            String large = "y".repeat(100_000);
+            storage.write(HashGenerator.hash(1L), new Entity(1L, large));
+            Assertions.assertEquals(large, storage.read(HashGenerator.hash(1L), 1L).value());
+        }
+    }
+
+    @Test
+    void test_concurrent_writes_and_scans() throws Exception {
+        int writers = 4;
+        int keysPerWriter = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try (OffHeapStorage storage = new OffHeapStorage()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final long base = (long) w * keysPerWriter;
+                futures.add(executor.submit(() -> {
+                    for (long id = base; id < base + keysPerWriter; id++) {
+                        storage.write(HashGenerator.hash(id), new Entity(id, "v" + id));
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    storage.scan(Integer.MIN_VALUE, Integer.MAX_VALUE, 100).forEachRemaining(entity -> {});
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            for (long id = 0; id < (long) writers * keysPerWriter; id++) {
+                Assertions.assertEquals("v" + id, storage.read(HashGenerator.hash(id), id).value());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void test_index_spans_several_buffers() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        int count = 1_000_000;
+        for (long id = 0; id < count; id++) {
+            index.put((int) id, id, id * 2);
+        }
+        for (long id = 0; id < count; id += 2) {
+            index.remove((int) id, id);
+        }
+
+        Assertions.assertEquals(count / 2, index.size());
+        // more slots than one buffer holds
+        Assertions.assertTrue(index.capacityBytes() > 24L << 20);
+        for (long id = 0; id < count; id++) {
+            Assertions.assertEquals(id % 2 == 0 ? OffHeapIndex.MISSING : id * 2, index.get((int) id, id));
+        }
+        long[] visited = new long[1];
+        index.forEach((id, partition, location) -> {
+            Assertions.assertEquals(id, partition);
+            visited[0]++;
+        });
+        Assertions.assertEquals(count / 2, visited[0]);
+        index.clear();
+    }
+
+    private static List<Entity> scan(Storage storage, int from, int to, int pageSize) {
+        List<Entity> entities = new ArrayList<>();
+        storage.scan(from, to, pageSize).forEachRemaining(entities::add);
+        return entities;
+    }
+
+    // partition order, ids ascending within a partition
+    private static List<String> records(Storage storage) {
+        List<String> records = new ArrayList<>();
+        storage.forEach((partition, entity) -> records.add(partition + "/" + entity.id() + "=" + entity.value()));
+        records.sort(Comparator.comparing((String record) -> Integer.parseInt(record.substring(0, record.indexOf('/'))))
+            .thenComparing(record -> Long.parseLong(record.substring(record.indexOf('/') + 1, record.indexOf('=')))));
+        return records;
+    }
+
+    private static List<Entity> sorted(List<Entity> entities) {
+        List<Entity> sorted = new ArrayList<>(entities);
+        sorted.sort((a, b) -> Long.compare(a.id(), b.id()));
+        return sorted;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.db;
+
+import org.example.HashGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScanCursorTests {
+
+    @Test
+    void test_pages_preserve_ring_order() throws IOException {
+        try (MappedLogStorage mappedLogStorage = new MappedLogStorage(Files.createTempDirectory("mapped-log"), 1 << 20)) {
+            for (Storage storage : List.of(new LocalFileSystem(), mappedLogStorage)) {
+                for (long id = 0; id < 2000; id++) {
+                    storage.write(HashGenerator.hash(id), new Entity(id, "v"));
+                }
+
+                // [0, MIN) wraps around: [0, MAX] then nothing below MIN
+                List<Integer> partitions = scan(storage, 0, Integer.MIN_VALUE, 13);
+                Assertions.assertTrue(partitions.stream().allMatch(partition -> partition >= 0));
+                assertAscending(partitions);
+
+                // [1 << 30, -(1 << 30)) wraps around: [1 << 30, MAX] then [MIN, -(1 << 30))
+                partitions = scan(storage, 1 << 30, -(1 << 30), 13);
+                int wrapped = 0;
+                while (wrapped < partitions.size() && partitions.get(wrapped) >= 1 << 30) {
+                    wrapped++;
+                }
+                assertAscending(partitions.subList(0, wrapped));
+                assertAscending(partitions.subList(wrapped, partitions.size()));
+                Assertions.assertTrue(partitions.subList(wrapped, partitions.size()).stream().allMatch(partition -> partition < -(1 << 30)));
+
+                // equal bounds cover the whole ring
+                Assertions.assertEquals(2000, scan(storage, 42, 42, 100).size());
+                Assertions.assertEquals(2000, scan(storage, 0, Integer.MIN_VALUE, 100).size() + scan(storage, Integer.MIN_VALUE, 0, 100).size());
+            }
+        }
+    }
+
+    @Test
+    void test_cursor_reports_stored_partitions() throws IOException {
+        try (MappedLogStorage mappedLogStorage = new MappedLogStorage(Files.createTempDirectory("mapped-log"), 1 << 20);
+             OffHeapStorage offHeapStorage = new OffHeapStorage()) {
+            for (Storage storage : List.of(new LocalFileSystem(), mappedLogStorage, offHeapStorage)) {
+                // partitions unrelated to the hash of the id, with several entities per partition
+                for (long id = 0; id < 500; id++) {
+                    storage.write((int) (id / 3) * 7, new Entity(id, "v"));
+                }
+
+                ScanCursor cursor = storage.scan(0, 0, 10);
+                int scanned = 0;
+                while (cursor.hasNext()) {
+                    Entity entity = cursor.next();
+                    Assertions.assertEquals((int) (entity.id() / 3) * 7, cursor.partition());
+                    scanned++;
+                }
+                Assertions.assertEquals(500, scanned);
+            }
+        }
+    }
+
+    private static List<Integer> scan(Storage storage, int fromKey, int toKey, int pageSize) {
+        List<Integer> partitions = new ArrayList<>();
+        storage.scan(fromKey, toKey, pageSize).forEachRemaining(entity -> partitions.add(HashGenerator.hash(entity.id())));
+        return partitions;
+    }
+
+    private static void assertAscending(List<Integer> partitions) {
+        for (int i = 1; i < partitions.size(); i++) {
+            Assertions.assertTrue(partitions.get(i - 1) <= partitions.get(i));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.db;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SnowflakeTests {
+
+    private static final long EPOCH = 1420070400000L;
+
+    @Test
+    void test_concurrent_ids_are_unique_and_increasing_per_thread() throws Exception {
+        Snowflake snowflake = new Snowflake(7);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final boolean batched = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[50_000];
+                    for (int i = 0; i < ids.length; ) {
+                        if (batched) {
+                            long[] block = snowflake.nextIds(Math.min(100, ids.length - i));
+                            System.arraycopy(block, 0, ids, i, block.length);
+                            i += block.length;
+                        } else {
+                            ids[i++] = snowflake.nextId();
+                        }
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<Long> seen = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    Assertions.assertTrue(seen.add(ids[i]), "duplicate id " + ids[i]);
+                    Assertions.assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                    Assertions.assertEquals(7, snowflake.parse(ids[i])[1]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void test_bursts_borrow_the_next_millisecond() {
+        AtomicLong clock = new AtomicLong(EPOCH + 1_000);
+        Snowflake snowflake = new Snowflake(1, EPOCH, clock::get);
+
+        long[] ids = snowflake.nextIds(5_000);
+        for (int i = 1; i < ids.length; i++) {
+            Assertions.assertEquals(ids[i - 1] + 1 + (i == 4096 ? (1L << 22) - 4096 : 0), ids[i]);
+        }
+        long[] first = snowflake.parse(ids[0]);
+        long[] last = snowflake.parse(ids[ids.length - 1]);
+        Assertions.assertEquals(EPOCH + 1_000, first[0]);
+        Assertions.assertEquals(0, first[2]);
+        Assertions.assertEquals(EPOCH + 1_001, last[0]);
+        Assertions.assertEquals(5_000 - 4096 - 1, last[2]);
+
+        // a clock falling behind the borrowed millisecond continues from the last id
+        clock.addAndGet(-1);
+        Assertions.assertTrue(snowflake.nextId() > ids[ids.length - 1]);
+        clock.addAndGet(-100);
+        Assertions.assertThrows(IllegalStateException.class, snowflake::nextId);
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.gossip;
+
+import org.example.HashGenerator;
+import org.example.Node;
+import org.example.NodeStatus;
+import org.example.Token;
+import org.example.TokenMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GossipTests {
+
+    @Test
+    void test_hundred_nodes_converge_from_one_seed() {
+        GossipNetwork network = new GossipNetwork();
+        List<Gossiper> gossipers = cluster(network, 100, 3, null);
+
+        GossipNetwork.Stats stats = network.runUntilConverged(42, 50);
+
+        Assertions.assertTrue(stats.converged(), "not converged after " + stats.rounds() + " rounds");
+        for (Gossiper gossiper : gossipers) {
+            Assertions.assertEquals(100, gossiper.states().size());
+        }
+    }
+
+    @Test
+    void test_version_bump_sends_only_the_delta() {
+        GossipNetwork network = new GossipNetwork();
+        List<Gossiper> gossipers = cluster(network, 100, 3, null);
+        network.runUntilConverged(42, 50);
+        long fullStateBytes = 0;
+        for (EndpointState state : gossipers.get(0).states()) {
+            fullStateBytes += state.serializedSize();
+        }
+
+        Gossiper changed = gossipers.get(17);
+        network.resetStats();
+        changed.publish(NodeStatus.LEAVING, changed.state(changed.local().id()).tokens());
+        GossipNetwork.Stats stats = network.runUntilConverged(7, 50);
+
+        Assertions.assertTrue(stats.converged());
+        for (Gossiper gossiper : gossipers) {
+            Assertions.assertEquals(NodeStatus.LEAVING, gossiper.state(changed.local().id()).status());
+        }
+        // digests still travel every round, but a full-state push-pull would send both states per exchange
+        long fullStateExchanges = stats.messages() / 3 * 2 * fullStateBytes;
+        Assertions.assertTrue(stats.bytes() * 2 < fullStateExchanges, stats.bytes() + " bytes against " + fullStateExchanges);
+    }
+
+    @Test
+    void test_token_metadata_converges_through_gossip() throws NoSuchAlgorithmException {
+        GossipNetwork network = new GossipNetwork();
+        List<Node> nodes = new ArrayList<>();
+        List<Gossiper> gossipers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String nodeName = "node-" + i;
+            Node node = new Node(HashGenerator.generateNodeId(nodeName), nodeName);
+            node.updateTokenMetadata(new TokenMetadata());
+            nodes.add(node);
+            gossipers.add(new Gossiper(node, network, 2, 1, Gossiper.tokenMetadataListener(node)));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            List<Token> tokens = List.of(new Token(i * 100_000_000, "test"), new Token(i * 100_000_000 + 50_000_000, "test"));
+            nodes.get(i).getTokenMetadata().updateNormalToken(nodes.get(i), tokens);
+            gossipers.get(i).publish(NodeStatus.STABLE, tokens);
+        }
+        for (int i = 1; i < gossipers.size(); i++) {
+            gossipers.get(i).addSeed(gossipers.get(0));
+        }
+
+        Assertions.assertTrue(network.runUntilConverged(1, 50).converged());
+
+        TokenMetadata expected = nodes.get(0).getTokenMetadata();
+        Assertions.assertEquals(20, expected.getTokenToNode().size());
+        for (Node node : nodes) {
+            Assertions.assertEquals(expected.getRing(), node.getTokenMetadata().getRing());
+        }
+    }
+
+    private static List<Gossiper> cluster(GossipNetwork network, int size, int fanout, Gossiper.StateListener listener) {
+        List<Gossiper> gossipers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Gossiper gossiper = new Gossiper(new Node(i, "node-" + i), network, fanout, 1, listener);
+            gossiper.publish(NodeStatus.STABLE, List.of(new Token(i, "test")));
+            gossipers.add(gossiper);
+        }
+        for (int i = 1; i < size; i++) {
+            gossipers.get(i).addSeed(gossipers.get(0));
+        }
+
+        return gossipers;
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.metrics;
+
+import org.example.ClusterClient;
+import org.example.HashGenerator;
+import org.example.Node;
+import org.example.SimpleStrategy;
+import org.example.Topology;
+import org.example.db.DbAccess;
+import org.example.db.Method;
+import org.example.db.Snowflake;
+import org.example.stream.StreamScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executors;
+
+public class MetricsTests {
+
+    @AfterEach
+    void tearDown() {
+        Metrics.disable();
+        Metrics.reset();
+    }
+
+    @Test
+    void test_nothing_is_recorded_while_disabled() {
+        Node node = new Node(1, "node-1");
+        node.process(new DbAccess.PutAccess(1, "v1"));
+        node.process(new DbAccess.GetAccess(1));
+
+        Metrics.MetricsSnapshot snapshot = Metrics.snapshot();
+        Assertions.assertTrue(snapshot.nodes().isEmpty());
+        Assertions.assertTrue(snapshot.rebalances().isEmpty());
+    }
+
+    @Test
+    void test_accesses_and_owned_keys_per_node() {
+        Metrics.enable();
+        Node node = new Node(1, "node-1");
+        for (long key = 0; key < 100; key++) {
+            node.process(new DbAccess.PutAccess(key, "v" + key));
+        }
+        node.process(new DbAccess.PutAccess(0, "overwritten"));
+        for (long key = 0; key < 10; key++) {
+            node.process(new DbAccess.DeleteAccess(key));
+            node.process(new DbAccess.GetAccess(key));
+        }
+        node.stop();
+        node.process(new DbAccess.GetAccess(42));
+
+        Metrics.NodeSnapshot snapshot = Metrics.snapshot().nodes().get("node-1");
+        Assertions.assertEquals(101, snapshot.accesses().get(Method.PUT).count());
+        Assertions.assertEquals(10, snapshot.accesses().get(Method.DELETE).count());
+        Assertions.assertEquals(11, snapshot.accesses().get(Method.GET).count());
+        Assertions.assertEquals(1, snapshot.accesses().get(Method.GET).errors());
+        Assertions.assertTrue(snapshot.accesses().get(Method.PUT).p99() > 0);
+        Assertions.assertEquals(90, snapshot.keys());
+        long bytes = 0;
+        for (long key = 10; key < 100; key++) {
+            bytes += Long.BYTES + ("v" + key).length();
+        }
+        Assertions.assertEquals(bytes, snapshot.bytes());
+    }
+
+    @Test
+    void test_rebalances_and_vnode_loads() throws NoSuchAlgorithmException {
+        Metrics.enable();
+        StreamScheduler scheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 16);
+        Topology topology = new Topology(8, 1, new SimpleStrategy(), scheduler);
+        Node first = new Node(HashGenerator.generateNodeId("node-0"), "node-0");
+        topology.join(first);
+
+        int size = 1000;
+        long[] keys = new long[size];
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = Snowflake.getInstance().nextId();
+            values[i] = "v" + i;
+        }
+        new ClusterClient(first.getTokenMetadata()).putAll(keys, values);
+        topology.join(new Node(HashGenerator.generateNodeId("node-1"), "node-1"));
+
+        Metrics.MetricsSnapshot snapshot = Metrics.snapshot();
+        Assertions.assertEquals(1, snapshot.rebalances().size());
+        Metrics.RebalanceSnapshot rebalance = snapshot.rebalances().get(0);
+        Assertions.assertEquals("bootstrap of node-1", rebalance.description());
+        Assertions.assertFalse(rebalance.failed());
+        Assertions.assertTrue(rebalance.entities() > 0 && rebalance.entities() < size);
+        // the joining node holds exactly what was streamed to it
+        Assertions.assertEquals(rebalance.entities(), snapshot.nodes().get("node-1").keys());
+        Assertions.assertEquals(rebalance.bytes(), snapshot.nodes().get("node-1").bytes());
+        Assertions.assertTrue(snapshot.nodes().get("node-0").gossip().count() >= 2);
+
+        var loads = topology.vnodeLoads();
+        Assertions.assertEquals(16, loads.size());
+        Assertions.assertEquals(size, loads.stream().mapToLong(Topology.VnodeLoad::keys).sum());
+        long streamedKeys = loads.stream().filter(load -> load.nodeName().equals("node-1")).mapToLong(Topology.VnodeLoad::keys).sum();
+        Assertions.assertEquals(rebalance.entities(), streamedKeys);
+
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.sim;
+
+import org.example.ClusterClient;
+import org.example.Node;
+import org.example.PartitionStrategy;
+import org.example.RandomTokenAllocator;
+import org.example.Result;
+import org.example.SimpleStrategy;
+import org.example.Topology;
+import org.example.db.DbAccess;
+import org.example.db.ScanCursor;
+import org.example.stream.StreamScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+
+public class SimulatorTests {
+
+    @Test
+    void test_reports_do_not_depend_on_parallelism() {
+        List<SimulationEvent> timeline = Simulator.randomTimeline(7, 12, 3, 50_000);
+        List<EventReport> sequential;
+        List<EventReport> parallel;
+        try (Simulator simulator = new Simulator(config(1, 20, 200_000))) {
+            sequential = simulator.run(timeline);
+        }
+        try (Simulator simulator = new Simulator(config(4, 20, 200_000))) {
+            parallel = simulator.run(timeline);
+        }
+
+        for (int i = 0; i < timeline.size(); i++) {
+            EventReport expected = sequential.get(i);
+            EventReport actual = parallel.get(i);
+            Assertions.assertEquals(expected.members(), actual.members());
+            Assertions.assertEquals(expected.movedKeys(), actual.movedKeys());
+            Assertions.assertEquals(expected.rebalanceBytes(), actual.rebalanceBytes());
+            Assertions.assertEquals(expected.maxOverMean(), actual.maxOverMean());
+            Assertions.assertEquals(expected.unavailableKeys(), actual.unavailableKeys());
+            Assertions.assertEquals(expected.requestMaxOverMean(), actual.requestMaxOverMean());
+        }
+    }
+
+    @Test
+    void test_failures_only_lose_keys_without_live_replicas() {
+        try (Simulator simulator = new Simulator(config(2, 8, 100_000))) {
+            EventReport failed = simulator.apply(new SimulationEvent.Fail(1));
+            Assertions.assertEquals(0, failed.movedKeys());
+            Assertions.assertEquals(0, failed.unavailableKeys());
+            Assertions.assertEquals(1, failed.downNodes());
+
+            EventReport workload = simulator.apply(new SimulationEvent.Workload(100_000, 0.9, 0.5));
+            Assertions.assertEquals(0, workload.failedOperations());
+            Assertions.assertTrue(workload.requestMaxOverMean() > 1);
+
+            // keys whose two replicas are both down
+            EventReport secondFailed = simulator.apply(new SimulationEvent.Fail(1));
+            Assertions.assertTrue(secondFailed.unavailableKeys() > 0);
+            Assertions.assertEquals(0, simulator.apply(new SimulationEvent.Recover(2)).unavailableKeys());
+        }
+    }
+
+    @Test
+    void test_join_moves_what_the_topology_streams() {
+        int keys = 5000;
+        SimulationConfig config = new SimulationConfig(4, 16, 1, 1, new SimpleStrategy(), PartitionStrategy.RING,
+            new RandomTokenAllocator(), keys, 10, 11, 2);
+        StreamScheduler scheduler = new StreamScheduler(Executors.newFixedThreadPool(2), 2, 2, 0, 64);
+        try (Simulator simulator = new Simulator(config)) {
+            // the same nodes get the same tokens in a real topology
+            Topology topology = new Topology(16, scheduler);
+            simulator.members().forEach(topology::join);
+            long[] ids = new long[keys];
+            String[] values = new String[keys];
+            for (int i = 0; i < keys; i++) {
+                ids[i] = simulator.keyOf(i);
+                values[i] = "0123456789";
+            }
+            new ClusterClient(topology.nodes.values().iterator().next().getTokenMetadata()).putAll(ids, values);
+
+            EventReport report = simulator.apply(new SimulationEvent.Join(1));
+            Node joined = simulator.members().get(4);
+            topology.join(joined);
+
+            long streamed = count(joined);
+            Assertions.assertEquals(streamed, report.movedKeys());
+            Assertions.assertEquals(streamed, report.streamedReplicas());
+            Assertions.assertEquals(streamed * (Long.BYTES + 10), report.rebalanceBytes());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static SimulationConfig config(int parallelism, int nodes, long keys) {
+        return new SimulationConfig(nodes, 16, 3, 2, new SimpleStrategy(), PartitionStrategy.RING,
+            new RandomTokenAllocator(), keys, 100, 42, parallelism);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long count(Node node) {
+        ScanCursor cursor = ((Result.Ok<ScanCursor>) node.process(new DbAccess.ScanAccess(0, 0))).value();
+        long count = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.stream;
+
+import org.example.Node;
+import org.example.Result;
+import org.example.db.DbAccess;
+import org.example.db.Entity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+
+public class StreamSchedulerTests {
+
+    @Test
+    void test_ranges_stream_in_parallel_with_progress() {
+        StreamScheduler scheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 10);
+        Node source = new Node(1, "source");
+        Node target = new Node(2, "target");
+        for (long id = 0; id < 1000; id++) {
+            source.process(new DbAccess.PutAccess(id, "v"));
+        }
+
+        StreamSession session = scheduler.newSession("test");
+        // four quarters of the ring
+        session.submit(source, target, Integer.MIN_VALUE, -(1 << 30));
+        session.submit(source, target, -(1 << 30), 0);
+        session.submit(source, target, 0, 1 << 30);
+        session.submit(source, target, 1 << 30, Integer.MIN_VALUE);
+        Assertions.assertEquals(List.of(session), scheduler.activeSessions());
+        session.await();
+
+        List<RangeProgress> progress = session.progress();
+        Assertions.assertTrue(progress.stream().allMatch(range -> range.state() == RangeProgress.State.COMPLETED));
+        Assertions.assertEquals(1000, progress.stream().mapToLong(RangeProgress::entities).sum());
+        Assertions.assertTrue(scheduler.activeSessions().isEmpty());
+        for (long id = 0; id < 1000; id++) {
+            @SuppressWarnings("unchecked")
+            Entity entity = ((Result.Ok<Entity>) target.process(new DbAccess.GetAccess(id))).value();
+            Assertions.assertNotNull(entity);
+        }
+        scheduler.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_routed_transfer_scans_the_source_once() {
+        StreamScheduler scheduler = new StreamScheduler(Executors.newFixedThreadPool(4), 2, 2, 0, 10);
+        Node source = new Node(1, "source");
+        Node even = new Node(2, "even");
+        Node odd = new Node(3, "odd");
+        for (long id = 0; id < 1000; id++) {
+            source.process(new DbAccess.PutAccess(id, "v"));
+        }
+
+        StreamSession session = scheduler.newSession("test");
+        // a third of the partitions stays on the source
+        session.submit(source, 0, 0, partition -> Math.floorMod(partition, 3) == 0 ? source : partition % 2 == 0 ? even : odd);
+        session.await();
+
+        Assertions.assertEquals(1, session.progress().size());
+        long moved = 0;
+        for (long id = 0; id < 1000; id++) {
+            DbAccess.GetAccess get = new DbAccess.GetAccess(id);
+            int partition = get.getPartition();
+            Entity onEven = ((Result.Ok<Entity>) even.process(get)).value();
+            Entity onOdd = ((Result.Ok<Entity>) odd.process(get)).value();
+            boolean stays = Math.floorMod(partition, 3) == 0;
+            Assertions.assertEquals(!stays && partition % 2 == 0, onEven != null);
+            Assertions.assertEquals(!stays && partition % 2 != 0, onOdd != null);
+            moved += stays ? 0 : 1;
+        }
+        Assertions.assertEquals(moved, session.summary().entities());
+        scheduler.shutdown();
+    }
+
+    @Test
+    void test_throttle_bounds_the_rate() throws InterruptedException {
+        // 10 KB/s with a one second burst, 15 KB take about half a second
+        Throttle throttle = new Throttle(10_000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 15; i++) {
+            throttle.acquire(1_000);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertTrue(elapsedMillis >= 400, "elapsed " + elapsedMillis + " ms");
+    }
+}